@@ -0,0 +1,113 @@
+package com.moviehub.bench;
+
+import com.moviehub.handler.MoviesHandler;
+import com.moviehub.model.Movie;
+import com.moviehub.server.ExecutionMode;
+import com.moviehub.server.HttpEngine;
+import com.moviehub.server.MoviesServer;
+import com.moviehub.server.ServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Сквозная пропускная способность MoviesServer в том же процессе: 7 читателей на 1 писателя
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class HttpEndToEndBenchmark {
+    private static final int CATALOG = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"JDK", "VIRTUAL"})
+        String engine;
+
+        // для движка VIRTUAL не применяется
+        @Param({"VIRTUAL", "BOUNDED"})
+        String execution;
+
+        @Param({"true", "false"})
+        boolean cache;
+
+        MoviesServer server;
+        String base;
+
+        @Setup(Level.Trial)
+        public void start() {
+            MoviesHandler.getRepository().clear();
+            for (int i = 0; i < CATALOG; i++) {
+                MoviesHandler.getRepository().add(RepositoryBenchmark.movie(i));
+            }
+            server = new MoviesServer(new ServerConfig()
+                    .port(0)
+                    .engine(HttpEngine.valueOf(engine))
+                    .executionMode(ExecutionMode.valueOf(execution))
+                    .cacheEnabled(cache));
+            server.start();
+            base = "http://localhost:" + server.getPort() + "/movies";
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            server.stop();
+            MoviesHandler.getRepository().clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int getById(Server server, Client client) throws Exception {
+        long id = ThreadLocalRandom.current().nextLong(1, CATALOG + 1);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.base + "/" + id)).GET().build();
+        return client.http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public int getByYear(Server server, Client client) throws Exception {
+        int year = 1900 + ThreadLocalRandom.current().nextInt(120);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.base + "?year=" + year)).GET().build();
+        return client.http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public int post(Server server, Client client) throws Exception {
+        Movie movie = RepositoryBenchmark.movie(ThreadLocalRandom.current().nextInt(CATALOG));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.base))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"title\": \"" + movie.title + "\", \"year\": " + movie.year + "}"))
+                .build();
+        return client.http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,57 @@
+package com.moviehub.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviehub.handler.MovieJsonReader;
+import com.moviehub.handler.MovieValidator;
+import com.moviehub.model.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Разбор и проверка тела POST /movies: текущий потоковый путь против прежнего двойного readTree
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostPathBenchmark {
+    private static final byte[] BODY = """
+            {
+            "title": "Начало",
+            "year": 2010
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final MovieJsonReader reader = new MovieJsonReader(mapper.getFactory());
+
+    @Benchmark
+    public List<String> streamingParseAndValidate() throws IOException {
+        Movie movie = reader.read(new ByteArrayInputStream(BODY));
+        return MovieValidator.check(movie.title, movie.year);
+    }
+
+    @Benchmark
+    public List<String> legacyTreeParseTwiceAndValidate() throws IOException {
+        String body = new String(BODY, StandardCharsets.UTF_8).trim();
+        JsonNode titleNode = mapper.readTree(body);
+        String title = titleNode.get("title").asText();
+        JsonNode yearNode = mapper.readTree(body);
+        int year = yearNode.get("year").asInt();
+        return MovieValidator.check(title, year);
+    }
+}
@@ -0,0 +1,79 @@
+package com.moviehub.bench;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieQuery;
+import com.moviehub.storage.MovieRepository;
+import com.moviehub.storage.MovieStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Составные запросы: полный обход с top-N, диапазон лет по индексу, префикс по индексу слов.
+// Масштабирование по ядрам: -Djava.util.concurrent.ForkJoinPool.common.parallelism=N
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class QueryBenchmark {
+    private static final String[] WORDS = {
+            "ночь", "день", "город", "река", "зима", "лето", "война", "мир", "дом", "дорога",
+            "звезда", "море", "небо", "огонь", "тень", "сон", "путь", "берег", "ветер", "песня"
+    };
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    @Param({"skiplist", "compact"})
+    String store;
+
+    private MovieRepository repo;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        repo = new MovieRepository(MovieStore.named(store));
+        List<Movie> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < size; i++) {
+            Movie movie = new Movie();
+            movie.title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            movie.year = 1900 + random.nextInt(125);
+            batch.add(movie);
+            if (batch.size() == 10_000) {
+                repo.addAll(batch);
+                batch = new ArrayList<>(10_000);
+            }
+        }
+        repo.addAll(batch);
+    }
+
+    @Benchmark
+    public List<Movie> fullScanTopByTitle() {
+        return repo.query(new MovieQuery().sort(MovieQuery.Sort.TITLE).limit(100));
+    }
+
+    @Benchmark
+    public List<Movie> yearRangeNewestFirst() {
+        return repo.query(new MovieQuery().yearFrom(1990).yearTo(1999).sort(MovieQuery.Sort.YEAR)
+                .descending(true).limit(100));
+    }
+
+    @Benchmark
+    public List<Movie> titlePrefixTop() {
+        return repo.query(new MovieQuery().titlePrefix("ночь дорога 12").limit(100));
+    }
+}
@@ -0,0 +1,68 @@
+package com.moviehub.bench;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepository;
+import com.moviehub.storage.MovieStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepositoryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    @Param({"skiplist", "compact"})
+    String store;
+
+    private MovieRepository repo;
+
+    static Movie movie(int i) {
+        Movie movie = new Movie();
+        movie.title = "Фильм номер " + i;
+        movie.year = 1900 + i % 120;
+        return movie;
+    }
+
+    @Setup
+    public void setUp() {
+        repo = new MovieRepository(MovieStore.named(store));
+        for (int i = 0; i < size; i++) {
+            repo.add(movie(i));
+        }
+    }
+
+    @Benchmark
+    public Movie findById() {
+        return repo.findById(ThreadLocalRandom.current().nextLong(1, size + 1));
+    }
+
+    @Benchmark
+    public Collection<Movie> findByYear() {
+        return repo.findByYear(1900 + ThreadLocalRandom.current().nextInt(120));
+    }
+
+    // add и deleteById в паре, чтобы размер каталога не рос от итерации к итерации
+    @Benchmark
+    public boolean addThenDelete() {
+        Movie saved = repo.add(movie(size));
+        return repo.deleteById(saved.id);
+    }
+}
@@ -0,0 +1,85 @@
+package com.moviehub.bench;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepository;
+import com.moviehub.storage.MovieStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Поиск по названиям на синтетическом словаре: частые слова встречаются в сотнях тысяч названий
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    private static final String[] SYLLABLES = {
+            "ба", "ва", "га", "да", "жа", "за", "ка", "ла", "ма", "на", "па", "ра", "са", "та",
+            "ре", "ле", "ме", "не", "ки", "ли", "ми", "ни", "ро", "ло", "мо", "но", "ту", "лу", "му", "ну"
+    };
+
+    @Param({"100000", "1000000", "10000000"})
+    int size;
+
+    private MovieRepository repo;
+    private String[] vocabulary;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        vocabulary = new String[50_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = 2 + random.nextInt(3); j > 0; j--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        repo = new MovieRepository(MovieStore.named("compact"));
+        for (int i = 0; i < size; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 1 + random.nextInt(4); j > 0; j--) {
+                if (!title.isEmpty()) {
+                    title.append(' ');
+                }
+                // нормальное распределение частот: начало словаря - самые частые слова
+                int word = (int) Math.min(vocabulary.length - 1, Math.abs(random.nextGaussian()) * 8000);
+                title.append(vocabulary[word]);
+            }
+            Movie movie = new Movie();
+            movie.title = title.toString();
+            movie.year = 1900 + random.nextInt(120);
+            repo.add(movie);
+        }
+    }
+
+    @Benchmark
+    public List<Movie> shortPrefix() {
+        return repo.search("ма", 10);
+    }
+
+    @Benchmark
+    public List<Movie> wholeWord() {
+        return repo.search(vocabulary[100] + " ", 10);
+    }
+
+    @Benchmark
+    public List<Movie> wordThenPrefix() {
+        return repo.search(vocabulary[5] + " " + vocabulary[7].substring(0, 2), 10);
+    }
+}
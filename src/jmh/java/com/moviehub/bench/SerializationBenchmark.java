@@ -0,0 +1,73 @@
+package com.moviehub.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.moviehub.model.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"100", "10000"})
+    int listSize;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Movie single;
+    private List<Movie> list;
+
+    @Setup
+    public void setUp() {
+        list = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            Movie movie = RepositoryBenchmark.movie(i);
+            movie.id = i + 1;
+            list.add(movie);
+        }
+        single = list.get(0);
+    }
+
+    @Benchmark
+    public String writeSingleAsString() throws IOException {
+        return mapper.writeValueAsString(single);
+    }
+
+    @Benchmark
+    public byte[] writeSingleAsBytes() throws IOException {
+        return mapper.writeValueAsBytes(single);
+    }
+
+    @Benchmark
+    public String writeListAsString() throws IOException {
+        return mapper.writeValueAsString(list);
+    }
+
+    // Как в потоковом GET /movies: без промежуточной строки, сразу в поток ответа
+    @Benchmark
+    public void writeListStreaming() throws IOException {
+        try (SequenceWriter writer = mapper.writer().writeValuesAsArray(OutputStream.nullOutputStream())) {
+            for (Movie movie : list) {
+                writer.write(movie);
+            }
+        }
+    }
+}
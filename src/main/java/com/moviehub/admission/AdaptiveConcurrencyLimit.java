@@ -0,0 +1,86 @@
+package com.moviehub.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+// Предел одновременно обрабатываемых запросов по схеме AIMD с задержкой как сигналом перегрузки:
+// пока время ответа близко к минимальному за окно, предел растёт на 1/limit за запрос;
+// когда оно больше минимума в TOLERANCE раз - предел уменьшается в BACKOFF раз, но не чаще
+// одного раза за время самого ответа, чтобы пачка медленных ответов не обрушила его до минимума.
+// Состояние - атомарные числа, обновляемые CAS.
+public class AdaptiveConcurrencyLimit {
+    private static final double TOLERANCE = 2.0;
+    private static final double BACKOFF = 0.9;
+    private static final long MIN_RTT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    // double в битах long
+    private final AtomicLong limit;
+    private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+    private volatile long windowStart = System.nanoTime();
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime() - MIN_RTT_WINDOW_NANOS);
+
+    public AdaptiveConcurrencyLimit(int minLimit, int initialLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Некорректные границы предела параллельности");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = new AtomicLong(Double.doubleToRawLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+    }
+
+    // Число запросов в работе вместе с этим или -1, если предел исчерпан
+    public int tryAcquire() {
+        int current = inflight.incrementAndGet();
+        if (current > getLimit()) {
+            inflight.decrementAndGet();
+            return -1;
+        }
+        return current;
+    }
+
+    // inflightAtStart - значение, которое вернул tryAcquire
+    public void release(int inflightAtStart, long rttNanos) {
+        inflight.decrementAndGet();
+
+        long now = System.nanoTime();
+        if (now - windowStart > MIN_RTT_WINDOW_NANOS) {
+            // окно минимума обновляется, чтобы предел следовал за изменением нагрузки
+            windowStart = now;
+            minRtt.set(rttNanos);
+        } else {
+            minRtt.accumulateAndGet(rttNanos, Math::min);
+        }
+
+        if (rttNanos > minRtt.get() * TOLERANCE) {
+            long last = lastDecrease.get();
+            if (now - last >= rttNanos && lastDecrease.compareAndSet(last, now)) {
+                update(l -> Math.max(minLimit, l * BACKOFF));
+            }
+        } else if (inflightAtStart * 2 >= getLimit()) {
+            // растём, только когда предел действительно используется
+            update(l -> Math.min(maxLimit, l + 1 / l));
+        }
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private void update(DoubleUnaryOperator change) {
+        long current;
+        long next;
+        do {
+            current = limit.get();
+            next = Double.doubleToRawLongBits(change.applyAsDouble(Double.longBitsToDouble(current)));
+        } while (current != next && !limit.compareAndSet(current, next));
+    }
+}
@@ -0,0 +1,87 @@
+package com.moviehub.admission;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Допуск запросов до обработчика: частота по клиенту и методу (429) и адаптивный предел
+// параллельности (503). Отказ отправляется готовыми байтами, тело запроса не читается.
+public class AdmissionFilter extends Filter {
+    private static final byte[] TOO_MANY_REQUESTS = """
+            {
+            "error": "Слишком много запросов"
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OVERLOADED = """
+            {
+            "error": "Сервер перегружен"
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // null - ограничение выключено
+    private final RateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    public AdmissionFilter(RateLimiter rateLimiter, AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        if (rateLimiter != null) {
+            long waitNanos = rateLimiter.acquire(ex.getRemoteAddress().getAddress(), ex.getRequestMethod());
+            if (waitNanos > 0) {
+                reject(ex, 429, TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+                return;
+            }
+        }
+
+        // Long-poll ленты изменений ждёт по замыслу: он не занимает обработку и не должен
+        // учитываться как медленный ответ
+        if (concurrencyLimit == null || isLongPoll(ex)) {
+            chain.doFilter(ex);
+            return;
+        }
+
+        int inflight = concurrencyLimit.tryAcquire();
+        if (inflight < 0) {
+            reject(ex, 503, OVERLOADED, 1);
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(ex);
+        } finally {
+            concurrencyLimit.release(inflight, System.nanoTime() - started);
+        }
+    }
+
+    private static boolean isLongPoll(HttpExchange ex) {
+        String query = ex.getRequestURI().getRawQuery();
+        return ex.getRequestURI().getPath().equals("/movies/changes") && query != null && query.contains("wait=");
+    }
+
+    private static void reject(HttpExchange ex, int status, byte[] body, long retryAfterSeconds) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        ex.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        // Непрочитанное тело нельзя оставить в соединении
+        String length = ex.getRequestHeaders().getFirst("Content-Length");
+        if ((length != null && !length.equals("0")) || ex.getRequestHeaders().containsKey("Transfer-Encoding")) {
+            ex.getResponseHeaders().set("Connection", "close");
+        }
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Ограничивает частоту запросов клиентов и число одновременно обрабатываемых запросов";
+    }
+}
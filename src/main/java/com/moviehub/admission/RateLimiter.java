@@ -0,0 +1,75 @@
+package com.moviehub.admission;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограничение частоты по паре (адрес клиента, метод). Корзины создаются по первому запросу.
+// Таблица ограничена: у предела полные корзины (давно молчавшие клиенты) удаляются не чаще
+// раза в SWEEP_INTERVAL, а если места всё равно нет, новые клиенты получают отказ до следующей
+// очистки - поток новых адресов не раздувает таблицу и не обходит её целиком на каждый запрос.
+public class RateLimiter {
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double readPerSecond;
+    private final double writePerSecond;
+    private final int readBurst;
+    private final int writeBurst;
+    private final int maxClients;
+    private final ConcurrentHashMap<ClientKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep;
+
+    private record ClientKey(InetAddress address, String method) {
+    }
+
+    // perSecond <= 0 - метод не ограничивается; burst - сколько запросов можно сделать разом
+    public RateLimiter(double readPerSecond, double writePerSecond, double burstSeconds) {
+        this(readPerSecond, writePerSecond, burstSeconds, MAX_TRACKED_CLIENTS);
+    }
+
+    RateLimiter(double readPerSecond, double writePerSecond, double burstSeconds, int maxClients) {
+        this.readPerSecond = readPerSecond;
+        this.writePerSecond = writePerSecond;
+        this.readBurst = (int) Math.max(1, Math.ceil(readPerSecond * burstSeconds));
+        this.writeBurst = (int) Math.max(1, Math.ceil(writePerSecond * burstSeconds));
+        this.maxClients = maxClients;
+        this.lastSweep = new AtomicLong(System.nanoTime() - SWEEP_INTERVAL_NANOS);
+    }
+
+    // 0 - пропустить, иначе сколько наносекунд клиенту стоит подождать
+    public long acquire(InetAddress address, String method) {
+        boolean read = method.equals("GET") || method.equals("HEAD");
+        double perSecond = read ? readPerSecond : writePerSecond;
+        if (perSecond <= 0) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        ClientKey key = new ClientKey(address, read ? "GET" : method);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                sweep(now);
+                if (buckets.size() >= maxClients) {
+                    return SWEEP_INTERVAL_NANOS;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(perSecond, read ? readBurst : writeBurst, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    public int trackedClients() {
+        return buckets.size();
+    }
+
+    // Полный обход таблицы - не чаще раза в интервал, его выполняет один поток
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.moviehub.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Корзина токенов в форме GCRA: всё состояние - одно "теоретическое время прихода"
+// следующего запроса, поэтому корзина обновляется одним CAS без блокировок.
+final class TokenBucket {
+    private final long intervalNanos;
+    // Насколько запрос может опередить равномерный темп: (burst - 1) интервалов
+    private final long toleranceNanos;
+    private final AtomicLong arrival;
+
+    TokenBucket(double perSecond, int burst, long now) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1L);
+        this.arrival = new AtomicLong(now);
+    }
+
+    // 0 - запрос пропущен, иначе через сколько наносекунд появится токен
+    long tryAcquire(long now) {
+        while (true) {
+            long current = arrival.get();
+            long base = Math.max(current, now);
+            long wait = base - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // Корзина полна: удалить её - то же самое, что создать заново
+    boolean isFull(long now) {
+        return arrival.get() <= now;
+    }
+}
@@ -0,0 +1,210 @@
+package com.moviehub.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ключи идемпотентности POST /movies: ключ -> тело ответа 201, выданного по первому запросу.
+// Ограничено числом ключей и временем жизни; разбито на сегменты со своей блокировкой, как
+// LruByteCache. Срок у всех записей одинаковый, поэтому порядок вставки совпадает с порядком
+// истечения и устаревшие записи снимаются с головы сегмента. При переполнении вытесняются
+// только завершённые записи: ключ, первый запрос по которому ещё выполняется, повтор
+// обязан застать, иначе он вставит второй фильм.
+public class IdempotencyStore {
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+    public static final long DEFAULT_TTL_SECONDS = 24 * 60 * 60;
+    public static final int MAX_KEY_LENGTH = 255;
+    private static final int SEGMENTS = 16;
+    // Оценка накладных расходов записи: узел карты, Entry, future, заголовки строк
+    private static final long ENTRY_OVERHEAD_BYTES = 200;
+
+    private final Segment[] segments;
+    private final int maxKeysPerSegment;
+    private final long ttlNanos;
+
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // fresh - ключ новый, и вызывающий обязан завершить запись через complete или abandon.
+    // reserve возвращает null, если сегмент ключа заполнен незавершёнными запросами.
+    public record Reservation(Entry entry, boolean fresh) {
+    }
+
+    public static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long createdNanos;
+        // null - первый запрос не завершился, ключ свободен для повтора
+        private final CompletableFuture<byte[]> response = new CompletableFuture<>();
+        private long bytes;
+
+        private Entry(String key, String fingerprint, long createdNanos) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdNanos = createdNanos;
+            this.bytes = ENTRY_OVERHEAD_BYTES + 2L * (key.length() + fingerprint.length());
+        }
+
+        // Совпадает ли запрос с тем, для которого ключ был выдан впервые
+        public boolean matches(String fingerprint) {
+            return this.fingerprint.equals(fingerprint);
+        }
+
+        // Тело первого ответа, null - если первый запрос не удался; ждёт не дольше timeoutMillis
+        public byte[] await(long timeoutMillis) throws InterruptedException, TimeoutException {
+            try {
+                return response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+    }
+
+    public IdempotencyStore(int maxKeys, long ttlSeconds) {
+        if (maxKeys < 1 || ttlSeconds < 1) {
+            throw new IllegalArgumentException("Число ключей и время жизни должны быть положительными");
+        }
+        this.maxKeysPerSegment = Math.max(1, (maxKeys + SEGMENTS - 1) / SEGMENTS);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public Reservation reserve(String key, String fingerprint) {
+        Segment segment = segmentFor(key);
+        long now = System.nanoTime();
+        segment.lock.lock();
+        try {
+            segment.expire(now);
+            Entry existing = segment.map.get(key);
+            if (existing != null) {
+                replays.increment();
+                return new Reservation(existing, false);
+            }
+            if (segment.map.size() >= maxKeysPerSegment && !segment.evictCompleted()) {
+                return null;
+            }
+            Entry entry = new Entry(key, fingerprint, now);
+            segment.map.put(key, entry);
+            segment.bytes += entry.bytes;
+            return new Reservation(entry, true);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void complete(Entry entry, byte[] response) {
+        Segment segment = segmentFor(entry.key);
+        segment.lock.lock();
+        try {
+            // запись могла быть вытеснена, пока запрос выполнялся
+            if (segment.map.get(entry.key) == entry) {
+                entry.bytes += response.length;
+                segment.bytes += response.length;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        entry.response.complete(response);
+    }
+
+    // Первый запрос не удался: ключ освобождается, ожидающие повторы выполнятся заново
+    public void abandon(Entry entry) {
+        Segment segment = segmentFor(entry.key);
+        segment.lock.lock();
+        try {
+            if (segment.map.remove(entry.key, entry)) {
+                segment.bytes -= entry.bytes;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        entry.response.complete(null);
+    }
+
+    public long replays() {
+        return replays.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        long now = System.nanoTime();
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.expire(now);
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    // Оценка занятой памяти: ключи, отпечатки запросов, тела ответов и накладные расходы
+    public long bytes() {
+        long now = System.nanoTime();
+        long bytes = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.expire(now);
+                bytes += segment.bytes;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return bytes;
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Entry> map = new LinkedHashMap<>();
+        private long bytes;
+
+        // Вызывается под lock
+        void expire(long now) {
+            Iterator<Map.Entry<String, Entry>> it = map.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry eldest = it.next().getValue();
+                if (now - eldest.createdNanos < ttlNanos) {
+                    return;
+                }
+                bytes -= eldest.bytes;
+                it.remove();
+            }
+        }
+
+        // Снимает самую давнюю завершённую запись; false - все записи ещё выполняются
+        boolean evictCompleted() {
+            Iterator<Entry> it = map.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.response.isDone()) {
+                    bytes -= entry.bytes;
+                    it.remove();
+                    evictions.increment();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.moviehub.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// LRU-кэш готовых байтов ответа, ограниченный суммарным размером значений.
+// Разбит на сегменты со своей блокировкой, чтобы чтения не упирались в один мьютекс.
+public class LruByteCache<K> {
+    private static final int SEGMENTS = 16;
+
+    private final List<Segment<K>> segments;
+    private final long maxEntryBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruByteCache(long maxBytes) {
+        long segmentBytes = Math.max(1, maxBytes / SEGMENTS);
+        this.maxEntryBytes = segmentBytes / 4;
+        List<Segment<K>> created = new ArrayList<>(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            created.add(new Segment<>(segmentBytes));
+        }
+        this.segments = List.copyOf(created);
+    }
+
+    // Поколение сегмента ключа; читается до построения значения и передаётся в put
+    public long generation(K key) {
+        return segmentFor(key).generation;
+    }
+
+    public byte[] get(K key) {
+        Segment<K> segment = segmentFor(key);
+        byte[] value;
+        segment.lock.lock();
+        try {
+            value = segment.map.get(key);
+        } finally {
+            segment.lock.unlock();
+        }
+
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, byte[] value, long expectedGeneration) {
+        if (value.length > maxEntryBytes) {
+            return;
+        }
+
+        Segment<K> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            if (segment.generation != expectedGeneration) {
+                return;
+            }
+            byte[] previous = segment.map.put(key, value);
+            segment.bytes += value.length - (previous == null ? 0 : previous.length);
+            evictions.add(segment.evict());
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.generation++;
+            byte[] removed = segment.map.remove(key);
+            if (removed != null) {
+                segment.bytes -= removed.length;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.generation++;
+                segment.map.clear();
+                segment.bytes = 0;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                bytes += segment.bytes;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return bytes;
+    }
+
+    private Segment<K> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments.get(h & (SEGMENTS - 1));
+    }
+
+    private static final class Segment<K> {
+        final ReentrantLock lock = new ReentrantLock();
+        // accessOrder = true: get переносит запись в конец, первой вытесняется самая давняя
+        final LinkedHashMap<K, byte[]> map = new LinkedHashMap<>(64, 0.75f, true);
+        final long maxBytes;
+        long bytes;
+        // Растёт при каждой инвалидации ключа сегмента (меняется под lock); put с устаревшим
+        // поколением отбрасывается, чтобы ответ, посчитанный до записи в репозиторий, не попал
+        // в кэш после неё. Запись в другой сегмент чужие put не отменяет.
+        volatile long generation;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        int evict() {
+            int evicted = 0;
+            Iterator<Map.Entry<K, byte[]>> it = map.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= it.next().getValue().length;
+                it.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.moviehub.cache;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepositoryListener;
+
+// Сериализованные ответы GET /movies/{id} и GET /movies?year=.
+// Подписан на репозиторий и сбрасывает ровно те записи, которые затронуло изменение.
+public class MovieResponseCache implements MovieRepositoryListener {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Ответ по ID хранится вместе с версией фильма: тело под ключом всегда совпадает с тегом
+    // этой версии, даже если после clear или restore тот же ID получил другой фильм
+    public record EntityKey(long id, long version) {
+        public static EntityKey of(Movie movie) {
+            return new EntityKey(movie.id, movie.version);
+        }
+
+        // Сегмент кэша выбирается только по ID, чтобы поколение можно было прочитать до поиска фильма
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+
+    private final LruByteCache<EntityKey> byId;
+    private final LruByteCache<Integer> byYear;
+
+    public MovieResponseCache(long maxBytes) {
+        this.byId = new LruByteCache<>(maxBytes / 2);
+        this.byYear = new LruByteCache<>(maxBytes / 2);
+    }
+
+    public LruByteCache<EntityKey> byId() {
+        return byId;
+    }
+
+    // Поколение сегмента ответов по ID; версия фильма на выбор сегмента не влияет
+    public long idGeneration(long id) {
+        return byId.generation(new EntityKey(id, 0));
+    }
+
+    public LruByteCache<Integer> byYear() {
+        return byYear;
+    }
+
+    @Override
+    public void onAdd(Movie movie) {
+        byYear.invalidate(movie.year);
+    }
+
+    @Override
+    public void onDelete(Movie movie) {
+        byId.invalidate(EntityKey.of(movie));
+        byYear.invalidate(movie.year);
+    }
+
+    @Override
+    public void onClear() {
+        byId.invalidateAll();
+        byYear.invalidateAll();
+    }
+}
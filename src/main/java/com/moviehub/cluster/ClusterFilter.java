@@ -0,0 +1,35 @@
+package com.moviehub.cluster;
+
+import com.moviehub.storage.MovieRepository;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Маршрутизация запросов кластера. Фильм живёт на узле-владельце своего ID (HashRing):
+// GET и DELETE /movies/{id} пересылаются владельцу, списки, запросы, поиск и сводка собираются
+// со всех узлов, пакеты ID - с владельцев (ClusterHandler). Запросы между узлами помечены заголовком LOCAL_HEADER и обслуживаются только
+// своим шардом. Лента изменений у каждого узла своя и обслуживается локально.
+public class ClusterFilter extends Filter {
+    public static final String LOCAL_HEADER = "X-Moviehub-Local";
+
+    private final ClusterHandler handler;
+
+    public ClusterFilter(HashRing ring, ClusterNode self, MovieRepository repo, Duration timeout,
+                         int compressionMinBytes, int maxBodyBytes) {
+        this.handler = new ClusterHandler(ring, self, repo, timeout, compressionMinBytes, maxBodyBytes);
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        if (ex.getRequestHeaders().containsKey(LOCAL_HEADER) || !handler.serve(ex)) {
+            chain.doFilter(ex);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Пересылает запросы владельцу шарда и собирает списки со всех узлов кластера";
+    }
+}
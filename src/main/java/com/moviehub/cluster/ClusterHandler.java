@@ -0,0 +1,584 @@
+package com.moviehub.cluster;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.moviehub.handler.BaseHttpHandler;
+import com.moviehub.handler.MoviesHandler;
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieQuery;
+import com.moviehub.storage.MovieRepository;
+import com.moviehub.storage.MovieStats;
+import com.moviehub.storage.TitleIndex;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Ответы, которые нельзя собрать с одного шарда: пересылка владельцу ID, списки, страницы, запросы,
+// поиск и сводка со всех узлов, пакеты ID - с узлов-владельцев. serve возвращает false для запросов, которые обслуживает свой шард, - в том числе с неверными
+// параметрами: ошибку 400 с обычным текстом вернёт обработчик фильмов.
+class ClusterHandler extends BaseHttpHandler {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectReader movieReader = mapper.readerFor(Movie.class);
+    private static final ObjectWriter streamWriter = mapper.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final Comparator<Movie> BY_ID = Comparator.comparingLong(m -> m.id);
+    private static final List<String> RELAYED_HEADERS =
+            List.of("Content-Type", "Content-Encoding", "ETag", "Vary", "Retry-After", "Connection");
+
+    private final HashRing ring;
+    private final ClusterNode self;
+    private final MovieRepository repo;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final int maxBodyBytes;
+
+    ClusterHandler(HashRing ring, ClusterNode self, MovieRepository repo, Duration timeout,
+                   int compressionMinBytes, int maxBodyBytes) {
+        super(compressionMinBytes);
+        this.maxBodyBytes = maxBodyBytes;
+        this.ring = ring;
+        this.self = self;
+        this.repo = repo;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    // Сам по себе не регистрируется: запросы своего шарда ClusterFilter передаёт дальше по цепочке
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!serve(ex)) {
+            sendError(ex, 404, "Не найдено");
+        }
+    }
+
+    // false - запрос обслуживается своим шардом, ответ не отправлен
+    boolean serve(HttpExchange ex) throws IOException {
+        String method = ex.getRequestMethod();
+        String path = ex.getRequestURI().getPath();
+
+        Long id = idOf(path);
+        if (id != null && (method.equals("GET") || method.equals("DELETE"))) {
+            ClusterNode owner = ring.ownerOf(id);
+            if (owner.equals(self)) {
+                return false;
+            }
+            forward(ex, owner);
+            return true;
+        }
+
+        if (method.equals("POST") && path.equals("/movies/batch")) {
+            return batchPost(ex);
+        }
+        if (!method.equals("GET")) {
+            return false;
+        }
+        if (path.equals("/movies/stats")) {
+            stats(ex);
+            return true;
+        }
+        if (!path.equals("/movies") && !path.equals("/movies/")) {
+            return false;
+        }
+
+        // Тот же порядок разбора параметров, что у обработчика фильмов
+        Map<String, String> params = parseQuery(ex);
+        if (params.containsKey("ids")) {
+            return batchGet(ex, params.get("ids"));
+        }
+        if (params.containsKey("year")) {
+            return byYear(ex, params.get("year"));
+        }
+        if (params.containsKey("yearFrom") || params.containsKey("yearTo") || params.containsKey("titlePrefix")
+                || params.containsKey("sort") || params.containsKey("order")) {
+            return query(ex, params);
+        }
+        if (params.containsKey("q")) {
+            return search(ex, params);
+        }
+        if (params.containsKey("after") || params.containsKey("limit")) {
+            return page(ex, params);
+        }
+        streamMerged(ex, target(ex.getRequestURI()), () -> repo.iterateAll().iterator(), BY_ID, 0);
+        return true;
+    }
+
+    private static Long idOf(String path) {
+        if (!path.startsWith("/movies/") || path.indexOf('/', "/movies/".length()) >= 0) {
+            return null;
+        }
+        return parseLongOrNull(path.substring("/movies/".length()));
+    }
+
+    // Запрос уходит владельцу как есть; ответ (в том числе 304 и сжатый) возвращается без изменений
+    private void forward(HttpExchange ex, ClusterNode owner) throws IOException {
+        HttpRequest.Builder request = peerRequest(owner, target(ex.getRequestURI()))
+                .method(ex.getRequestMethod(), HttpRequest.BodyPublishers.noBody());
+        for (String header : List.of("If-None-Match", "Accept-Encoding")) {
+            String value = ex.getRequestHeaders().getFirst(header);
+            if (value != null) {
+                request.header(header, value);
+            }
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = await(client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray()));
+        } catch (IOException e) {
+            sendError(ex, 502, "Узел кластера недоступен: " + owner.name());
+            return;
+        }
+
+        for (String header : RELAYED_HEADERS) {
+            response.headers().firstValue(header).ifPresent(v -> ex.getResponseHeaders().set(header, v));
+        }
+        byte[] body = response.body();
+        ex.sendResponseHeaders(response.statusCode(), body.length == 0 ? -1 : body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    // Узлы отдают фильмы года в порядке добавления, поэтому у них запрашивается тот же год
+    // через составной запрос с порядком по ID - иначе упорядоченные ответы не слить
+    private boolean byYear(HttpExchange ex, String value) throws IOException {
+        Integer year = parseIntOrNull(value);
+        if (year == null) {
+            return false;
+        }
+        MovieQuery query = new MovieQuery().yearFrom(year).yearTo(year).sort(MovieQuery.Sort.ID);
+        streamMerged(ex, "/movies?yearFrom=" + year + "&yearTo=" + year + "&sort=id",
+                () -> repo.query(query).iterator(), BY_ID, 0);
+        return true;
+    }
+
+    // Каждый узел отдаёт свои первые limit совпадений в порядке запроса - слияние их и обрезает
+    private boolean query(HttpExchange ex, Map<String, String> params) throws IOException {
+        Integer from = queryInt(params, "yearFrom", Integer.MIN_VALUE);
+        Integer to = queryInt(params, "yearTo", Integer.MAX_VALUE);
+        MovieQuery.Sort sort = params.containsKey("sort") ? MovieQuery.Sort.parse(params.get("sort"))
+                : params.containsKey("yearFrom") || params.containsKey("yearTo") ? MovieQuery.Sort.YEAR : MovieQuery.Sort.ID;
+        String order = params.getOrDefault("order", "asc");
+        Integer limit = queryInt(params, "limit", 0);
+        if (params.containsKey("q") || from == null || to == null || sort == null
+                || (!order.equals("asc") && !order.equals("desc"))
+                || limit == null || limit > MoviesHandler.MAX_PAGE_SIZE || (params.containsKey("limit") && limit < 1)) {
+            return false;
+        }
+
+        MovieQuery query = new MovieQuery()
+                .yearFrom(from)
+                .yearTo(to)
+                .titlePrefix(params.get("titlePrefix"))
+                .sort(sort)
+                .descending(order.equals("desc"))
+                .limit(limit);
+        streamMerged(ex, target(ex.getRequestURI()), () -> repo.query(query).iterator(), query.comparator(), limit);
+        return true;
+    }
+
+    // Страница по курсору: первые limit фильмов после after среди страниц всех узлов.
+    // Следующая страница есть, если слитых фильмов больше limit или она есть у какого-то узла.
+    private boolean page(HttpExchange ex, Map<String, String> params) throws IOException {
+        Long after = queryLong(params, "after", 0);
+        Integer limit = queryInt(params, "limit", MoviesHandler.DEFAULT_PAGE_SIZE);
+        if (after == null || limit == null || limit < 1 || limit > MoviesHandler.MAX_PAGE_SIZE) {
+            return false;
+        }
+
+        try (Scatter scatter = new Scatter(everyPeer(target(ex.getRequestURI())))) {
+            String localTag = MoviesHandler.collectionTag(repo);
+            Iterator<Movie> local = repo.findPage(after, limit + 1).iterator();
+            List<HttpResponse<InputStream>> responses = scatter.await(ex);
+            if (responses == null || notModified(ex, scatter.tag(localTag))) {
+                return true;
+            }
+
+            boolean more = false;
+            List<Source> sources = new ArrayList<>(responses.size() + 1);
+            sources.add(() -> local.hasNext() ? local.next() : null);
+            for (HttpResponse<InputStream> response : responses) {
+                more |= response.headers().firstValue("X-Next-After").isPresent();
+                sources.add(peerSource(response));
+            }
+            Merge merged = new Merge(sources, BY_ID);
+            List<Movie> page = new ArrayList<>(limit);
+            Movie movie;
+            while (page.size() < limit && (movie = merged.next()) != null) {
+                page.add(movie);
+            }
+            if (!page.isEmpty() && (more || merged.next() != null)) {
+                ex.getResponseHeaders().set("X-Next-After", String.valueOf(page.get(page.size() - 1).id));
+            }
+            sendJson(ex, 200, mapper.writeValueAsBytes(page));
+        }
+        return true;
+    }
+
+    // Каждый узел отдаёт свои лучшие limit совпадений; общий порядок - то же ранжирование по ним
+    private boolean search(HttpExchange ex, Map<String, String> params) throws IOException {
+        String q = params.get("q");
+        Integer limit = queryInt(params, "limit", MoviesHandler.DEFAULT_SEARCH_LIMIT);
+        if (q.isBlank() || limit == null || limit < 1 || limit > MoviesHandler.MAX_PAGE_SIZE) {
+            return false;
+        }
+
+        try (Scatter scatter = new Scatter(everyPeer(target(ex.getRequestURI())))) {
+            String localTag = MoviesHandler.collectionTag(repo);
+            List<Movie> found = new ArrayList<>(repo.search(q, limit));
+            List<HttpResponse<InputStream>> responses = scatter.await(ex);
+            if (responses == null || notModified(ex, scatter.tag(localTag))) {
+                return true;
+            }
+            for (HttpResponse<InputStream> response : responses) {
+                found.addAll(Arrays.asList(mapper.readValue(response.body(), Movie[].class)));
+            }
+            sendJson(ex, 200, mapper.writeValueAsBytes(TitleIndex.rank(q, found, limit)));
+        }
+        return true;
+    }
+
+    // Счётчики по годам складываются; сводка остаётся O(лет) на узел
+    private void stats(HttpExchange ex) throws IOException {
+        try (Scatter scatter = new Scatter(everyPeer(target(ex.getRequestURI())))) {
+            String localTag = MoviesHandler.collectionTag(repo);
+            List<MovieStats.Summary> parts = new ArrayList<>();
+            parts.add(repo.stats());
+            List<HttpResponse<InputStream>> responses = scatter.await(ex);
+            if (responses == null || notModified(ex, scatter.tag(localTag))) {
+                return;
+            }
+            for (HttpResponse<InputStream> response : responses) {
+                parts.add(mapper.readValue(response.body(), MovieStats.Summary.class));
+            }
+            sendJson(ex, 200, mapper.writeValueAsBytes(MovieStats.combine(parts)));
+        }
+    }
+
+    // GET /movies?ids=1,2,3
+    private boolean batchGet(HttpExchange ex, String value) throws IOException {
+        String[] parts = value.split(",", -1);
+        if (parts.length > MoviesHandler.MAX_BATCH_IDS) {
+            return false;
+        }
+        long[] ids = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            Long id = parseLongOrNull(parts[i].trim());
+            if (id == null) {
+                return false;
+            }
+            ids[i] = id;
+        }
+        batch(ex, ids, true);
+        return true;
+    }
+
+    // POST /movies/batch. Тело, которое не удалось разобрать, возвращается в обмен: своему
+    // обработчику его нужно прочитать ещё раз, чтобы ответить обычной ошибкой
+    private boolean batchPost(HttpExchange ex) throws IOException {
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.equalsIgnoreCase("application/json")) {
+            return false;
+        }
+
+        InputStream in = ex.getRequestBody();
+        byte[] body = in.readNBytes(maxBodyBytes + 1);
+        BatchRequest request = null;
+        if (body.length <= maxBodyBytes) {
+            try {
+                request = mapper.readValue(body, BatchRequest.class);
+            } catch (JacksonException e) {
+                request = null;
+            }
+        }
+        if (request == null || request.ids() == null || request.ids().length > MoviesHandler.MAX_BATCH_IDS) {
+            ex.setStreams(new SequenceInputStream(new ByteArrayInputStream(body), in), null);
+            return false;
+        }
+        batch(ex, request.ids(), false);
+        return true;
+    }
+
+    // ID группируются по владельцам, каждому уходит один пакетный запрос со своими ID.
+    // Ответ - фильмы в порядке запроса без повторов и ненайденные ID, как у одного узла.
+    // Тег ставится только на GET: ответ на POST не кэшируется.
+    private void batch(HttpExchange ex, long[] ids, boolean get) throws IOException {
+        long[] unique = Arrays.stream(ids).distinct().toArray();
+        Map<ClusterNode, List<Long>> byOwner = new LinkedHashMap<>();
+        for (long id : unique) {
+            byOwner.computeIfAbsent(ring.ownerOf(id), node -> new ArrayList<>()).add(id);
+        }
+        List<Long> localIds = byOwner.remove(self);
+
+        Map<ClusterNode, HttpRequest> requests = new LinkedHashMap<>();
+        for (Map.Entry<ClusterNode, List<Long>> entry : byOwner.entrySet()) {
+            long[] owned = entry.getValue().stream().mapToLong(Long::longValue).toArray();
+            HttpRequest.Builder request = get
+                    ? peerRequest(entry.getKey(), "/movies?ids=" + joinIds(owned)).GET()
+                    : peerRequest(entry.getKey(), "/movies/batch")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(new BatchRequest(owned))));
+            requests.put(entry.getKey(), request.build());
+        }
+
+        try (Scatter scatter = new Scatter(requests)) {
+            String localTag = MoviesHandler.collectionTag(repo);
+            Map<Long, Movie> found = new HashMap<>();
+            if (localIds != null) {
+                for (Movie movie : repo.findByIds(localIds.stream().mapToLong(Long::longValue).toArray())) {
+                    if (movie != null) {
+                        found.put(movie.id, movie);
+                    }
+                }
+            }
+            List<HttpResponse<InputStream>> responses = scatter.await(ex);
+            if (responses == null || (get && notModified(ex, scatter.tag(localTag)))) {
+                return;
+            }
+            for (HttpResponse<InputStream> response : responses) {
+                for (Movie movie : mapper.readValue(response.body(), BatchResult.class).movies()) {
+                    found.put(movie.id, movie);
+                }
+            }
+
+            List<Movie> movies = new ArrayList<>(found.size());
+            List<Long> missing = new ArrayList<>();
+            for (long id : unique) {
+                Movie movie = found.get(id);
+                if (movie != null) {
+                    movies.add(movie);
+                } else {
+                    missing.add(id);
+                }
+            }
+            sendJson(ex, 200, mapper.writeValueAsBytes(new BatchResult(movies, missing)));
+        }
+    }
+
+    private static String joinIds(long[] ids) {
+        StringBuilder joined = new StringBuilder(ids.length * 8);
+        for (long id : ids) {
+            if (!joined.isEmpty()) {
+                joined.append(',');
+            }
+            joined.append(id);
+        }
+        return joined.toString();
+    }
+
+    private record BatchRequest(long[] ids) {
+    }
+
+    private record BatchResult(List<Movie> movies, List<Long> missing) {
+    }
+
+    // Слияние упорядоченных ответов узлов в один поток: запросы уходят до обхода своего шарда,
+    // ответы узлов читаются по мере записи, и память не зависит от размера каталога.
+    // limit - сколько фильмов отдать, 0 - все.
+    private void streamMerged(HttpExchange ex, String target, Supplier<Iterator<Movie>> local,
+                              Comparator<Movie> order, int limit) throws IOException {
+        try (Scatter scatter = new Scatter(everyPeer(target))) {
+            String localTag = MoviesHandler.collectionTag(repo);
+            Iterator<Movie> localMovies = local.get();
+            List<HttpResponse<InputStream>> responses = scatter.await(ex);
+            if (responses == null || notModified(ex, scatter.tag(localTag))) {
+                return;
+            }
+
+            List<Source> sources = new ArrayList<>(responses.size() + 1);
+            sources.add(() -> localMovies.hasNext() ? localMovies.next() : null);
+            for (HttpResponse<InputStream> response : responses) {
+                sources.add(peerSource(response));
+            }
+            Merge merged = new Merge(sources, order);
+
+            // Если узел оборвёт ответ посреди выдачи, поток не закрывается: ответ без завершающего
+            // блока клиент не примет за весь список, а сервер закроет соединение
+            OutputStream os = startJsonStream(ex, 200);
+            SequenceWriter writer = streamWriter.writeValuesAsArray(os);
+            Movie movie;
+            for (int n = 0; (limit == 0 || n < limit) && (movie = merged.next()) != null; n++) {
+                writer.write(movie);
+            }
+            writer.close();
+            os.close();
+        }
+    }
+
+    // Массив фильмов из ответа узла, читается по одному
+    private static Source peerSource(HttpResponse<InputStream> response) throws IOException {
+        MappingIterator<Movie> movies = movieReader.readValues(response.body());
+        return () -> movies.hasNextValue() ? movies.nextValue() : null;
+    }
+
+    private Map<ClusterNode, HttpRequest> everyPeer(String target) {
+        Map<ClusterNode, HttpRequest> requests = new LinkedHashMap<>();
+        for (ClusterNode node : ring.nodes()) {
+            if (!node.equals(self)) {
+                requests.put(node, peerRequest(node, target).GET().build());
+            }
+        }
+        return requests;
+    }
+
+    private static String target(URI uri) {
+        return uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+    }
+
+    private HttpRequest.Builder peerRequest(ClusterNode node, String target) {
+        return HttpRequest.newBuilder(URI.create(node.baseUri() + target))
+                .timeout(timeout)
+                .header(ClusterFilter.LOCAL_HEADER, self.name());
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ожидание узла кластера прервано", e);
+        } catch (ExecutionException | TimeoutException e) {
+            future.cancel(true);
+            throw new IOException("Узел кластера не ответил", e);
+        }
+    }
+
+    // Запросы к узлам, отправленные одновременно. Тело ответа читается потоком, поэтому
+    // ответы становятся доступны по заголовкам; close закрывает все потоки, в том числе
+    // ответов, пришедших уже после ошибки или 304.
+    private final class Scatter implements Closeable {
+        private final List<ClusterNode> nodes;
+        private final List<CompletableFuture<HttpResponse<InputStream>>> pending = new ArrayList<>();
+        private List<HttpResponse<InputStream>> responses;
+
+        Scatter(Map<ClusterNode, HttpRequest> requests) {
+            this.nodes = new ArrayList<>(requests.keySet());
+            for (HttpRequest request : requests.values()) {
+                pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()));
+            }
+        }
+
+        // Ответы в порядке запросов; null - кто-то не ответил 200, клиенту уже отправлен 502:
+        // неполный список хуже ошибки, клиент принял бы его за весь каталог
+        List<HttpResponse<InputStream>> await(HttpExchange ex) throws IOException {
+            List<HttpResponse<InputStream>> result = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                HttpResponse<InputStream> response;
+                try {
+                    response = ClusterHandler.this.await(pending.get(i));
+                } catch (IOException e) {
+                    response = null;
+                }
+                if (response == null || response.statusCode() != 200) {
+                    sendError(ex, 502, "Узел кластера недоступен: " + nodes.get(i).name());
+                    return null;
+                }
+                result.add(response);
+            }
+            responses = result;
+            return result;
+        }
+
+        // Тег собранного ответа - хеш тегов списка всех участвовавших узлов (в порядке имён,
+        // чтобы совпадать при запросе через любой узел). Меняется, как только меняется любой шард.
+        String tag(String localTag) {
+            Map<String, String> tags = new TreeMap<>();
+            tags.put(self.name(), localTag);
+            for (int i = 0; i < nodes.size(); i++) {
+                String tag = responses.get(i).headers().firstValue("ETag").orElse("");
+                tags.put(nodes.get(i).name(), tag.startsWith("W/") ? tag.substring(2) : tag);
+            }
+            long hash = 0xcbf29ce484222325L;
+            for (Map.Entry<String, String> entry : tags.entrySet()) {
+                for (byte b : (entry.getKey() + "=" + entry.getValue() + ";").getBytes(StandardCharsets.UTF_8)) {
+                    hash ^= b & 0xFF;
+                    hash *= 0x100000001b3L;
+                }
+            }
+            return "\"cluster-" + Long.toHexString(hash) + "\"";
+        }
+
+        @Override
+        public void close() {
+            for (CompletableFuture<HttpResponse<InputStream>> future : pending) {
+                future.thenAccept(response -> {
+                    try {
+                        response.body().close();
+                    } catch (IOException e) {
+                        // соединение с узлом просто не будет переиспользовано
+                    }
+                });
+            }
+        }
+    }
+
+    // Упорядоченные фильмы: свой шард или поток ответа узла; null - источник исчерпан
+    private interface Source {
+        Movie next() throws IOException;
+    }
+
+    // k-путевое слияние источников, каждый из которых уже упорядочен order
+    private static final class Merge implements Source {
+        private record Head(Movie movie, Source source) {
+        }
+
+        private final PriorityQueue<Head> heads;
+
+        Merge(List<Source> sources, Comparator<Movie> order) throws IOException {
+            heads = new PriorityQueue<>(sources.size(), Comparator.comparing(Head::movie, order));
+            for (Source source : sources) {
+                advance(source);
+            }
+        }
+
+        @Override
+        public Movie next() throws IOException {
+            Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            advance(head.source());
+            return head.movie();
+        }
+
+        private void advance(Source source) throws IOException {
+            Movie movie = source.next();
+            if (movie != null) {
+                heads.add(new Head(movie, source));
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.moviehub.cluster;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+// Узел кластера: имя (ключ на кольце) и базовый адрес HTTP, например http://localhost:8081
+public record ClusterNode(String name, URI baseUri) {
+
+    // "a=http://localhost:8081,b=http://localhost:8082"
+    public static List<ClusterNode> parseList(String spec) {
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String trimmed = part.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int eq = trimmed.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Ожидается имя=адрес узла: " + trimmed);
+            }
+            String base = trimmed.substring(eq + 1).trim();
+            nodes.add(new ClusterNode(trimmed.substring(0, eq).trim(),
+                    URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) : base)));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,84 @@
+package com.moviehub.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+// Согласованное хеширование ID фильмов по узлам. У каждого узла VIRTUAL_NODES точек на кольце,
+// поэтому доли узлов близки к равным, а при добавлении узла переезжает лишь ~1/N ID.
+// Кольцо неизменяемо: точки лежат в отсортированном массиве, поиск владельца - двоичный.
+public final class HashRing {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<ClusterNode> nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    public HashRing(List<ClusterNode> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("В кластере нет узлов");
+        }
+        HashSet<String> names = new HashSet<>();
+        for (ClusterNode node : nodes) {
+            if (!names.add(node.name())) {
+                throw new IllegalArgumentException("Узел " + node.name() + " указан дважды");
+            }
+        }
+        this.nodes = List.copyOf(nodes);
+
+        int count = nodes.size() * VIRTUAL_NODES;
+        long[] packedPoints = new long[count];
+        int[] packedOwners = new int[count];
+        Integer[] order = new Integer[count];
+        for (int n = 0; n < nodes.size(); n++) {
+            long base = hash(nodes.get(n).name());
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                int i = n * VIRTUAL_NODES + v;
+                packedPoints[i] = mix(base + v * 0x9E3779B97F4A7C15L);
+                packedOwners[i] = n;
+                order[i] = i;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(packedPoints[a], packedPoints[b]));
+        points = new long[count];
+        owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = packedPoints[order[i]];
+            owners[i] = packedOwners[order[i]];
+        }
+    }
+
+    // Первая точка по часовой стрелке от хеша ID
+    public ClusterNode ownerOf(long id) {
+        int i = Arrays.binarySearch(points, mix(id));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return nodes.get(owners[i == points.length ? 0 : i]);
+    }
+
+    public List<ClusterNode> nodes() {
+        return nodes;
+    }
+
+    // Финализатор MurmurHash3: соседние ID расходятся по всему кольцу
+    static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    // FNV-1a по UTF-8 имени узла
+    private static long hash(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+}
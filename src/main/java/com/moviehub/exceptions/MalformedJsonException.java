@@ -0,0 +1,12 @@
+package com.moviehub.exceptions;
+
+// Без стека: бросается на каждое неверное тело запроса
+public class MalformedJsonException extends RuntimeException {
+    public MalformedJsonException(String message) {
+        super(message, null, false, false);
+    }
+
+    public MalformedJsonException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,23 @@
+package com.moviehub.exceptions;
+
+import java.io.IOException;
+
+// IOException, чтобы её можно было бросить прямо из InputStream.read() сквозь парсер Jackson
+public class PayloadTooLargeException extends IOException {
+    private final long limit;
+
+    public PayloadTooLargeException(long limit) {
+        super("Тело запроса превышает " + limit + " байт");
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    // Без стека: у IOException нет конструктора с writableStackTrace
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -2,10 +2,12 @@ package com.moviehub.exceptions;
 
 import java.util.List;
 
+// Без стека: это ошибка клиента, а не программы, и стек ничего не объясняет
 public class ValidationException extends RuntimeException {
     private final List<String> errors;
 
     public ValidationException(List<String> errors) {
+        super(null, null, false, false);
         this.errors = errors;
     }
 
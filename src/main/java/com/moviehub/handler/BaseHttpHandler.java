@@ -3,50 +3,284 @@ package com.moviehub.handler;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BaseHttpHandler implements HttpHandler {
     protected static final String CT_JSON = "application/json; charset=UTF-8"; // !!! Укажите содержимое заголовка Content-Type
+    public static final int DEFAULT_COMPRESSION_MIN_BYTES = 1024;
+    private static final int MAX_CACHED_BODIES = 256;
+    private static final int STREAM_BUFFER_BYTES = 16 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ConcurrentHashMap<String, byte[]> ERROR_BODIES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<List<String>, byte[]> VALIDATION_BODIES = new ConcurrentHashMap<>();
+
+    // Ответы короче порога не сжимаются; отрицательное значение выключает сжатие
+    private final int compressionMinBytes;
+
+    protected BaseHttpHandler() {
+        this(DEFAULT_COMPRESSION_MIN_BYTES);
+    }
+
+    protected BaseHttpHandler(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
 
     protected void sendJson(HttpExchange ex, int status, String json) throws IOException {
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        sendJson(ex, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected void sendJson(HttpExchange ex, int status, byte[] bytes) throws IOException {
         ex.getResponseHeaders().set("Content-Type", CT_JSON);
+
+        ContentEncoding encoding = negotiateEncoding(ex, bytes.length);
+        if (encoding != null) {
+            try (OutputStream os = startCompressed(ex, status, encoding)) {
+                os.write(bytes);
+            }
+            return;
+        }
+
         ex.sendResponseHeaders(status, bytes.length);
         try (OutputStream os = ex.getResponseBody()) {
             os.write(bytes);
         }
     }
 
+    // Ответ неизвестной длины (chunked). Поток нужно закрыть после записи тела.
+    // Длина потокового ответа заранее неизвестна, поэтому он сжимается независимо от порога.
+    protected OutputStream startJsonStream(HttpExchange ex, int status) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", CT_JSON);
+
+        ContentEncoding encoding = negotiateEncoding(ex, Long.MAX_VALUE);
+        if (encoding != null) {
+            return new CoalescingOutputStream(startCompressed(ex, status, encoding));
+        }
+
+        ex.sendResponseHeaders(status, 0);
+        return new CoalescingOutputStream(ex.getResponseBody());
+    }
+
+    // Буфер, который не пропускает промежуточные flush: движок JDK отправляет на каждый flush
+    // отдельный chunk и системный вызов, а сериализаторы сбрасывают поток после каждого значения.
+    // Данные уходят по заполнении буфера и при close.
+    private static final class CoalescingOutputStream extends BufferedOutputStream {
+        CoalescingOutputStream(OutputStream out) {
+            super(out, STREAM_BUFFER_BYTES);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.flush();
+            super.close();
+        }
+    }
+
+    private ContentEncoding negotiateEncoding(HttpExchange ex, long length) {
+        if (compressionMinBytes < 0) {
+            return null;
+        }
+        ex.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (length < compressionMinBytes) {
+            return null;
+        }
+        return ContentEncoding.negotiate(ex.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    // Сжатое представление отличается по байтам, поэтому сильный ETag становится слабым
+    // (так же поступает nginx); If-None-Match сравнивается слабо и продолжает работать.
+    private OutputStream startCompressed(HttpExchange ex, int status, ContentEncoding encoding) throws IOException {
+        String etag = ex.getResponseHeaders().getFirst("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            ex.getResponseHeaders().set("ETag", "W/" + etag);
+        }
+        ex.getResponseHeaders().set("Content-Encoding", encoding.token);
+        ex.sendResponseHeaders(status, 0);
+        return new CompressingOutputStream(ex.getResponseBody(), encoding);
+    }
+
+    protected Map<String, String> parseQuery(HttpExchange ex) {
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, String> params = new HashMap<>();
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // Ставит ETag и, если он совпал с If-None-Match, отвечает 304 без тела
+    protected boolean notModified(HttpExchange ex, String etag) throws IOException {
+        ex.getResponseHeaders().set("ETag", etag);
+
+        String ifNoneMatch = ex.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !matchesAny(ifNoneMatch, etag)) {
+            return false;
+        }
+        ex.sendResponseHeaders(304, -1);
+        return true;
+    }
+
+    // Слабое сравнение (RFC 9110, 13.1.2): префикс W/ не учитывается
+    private static boolean matchesAny(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected void sendNoContent(HttpExchange ex) throws java.io.IOException {
         ex.sendResponseHeaders(204, -1);
     }
 
+    // Тела ошибок строятся один раз на сообщение и дальше отдаются готовым массивом байт:
+    // поток неверных запросов не должен стоить форматирования и аллокаций на каждый ответ.
+    // Сообщения - почти всегда константы; кэш ограничен на случай составных сообщений.
     protected void sendError(HttpExchange ex, int status, String message) throws IOException {
-        String json = """
-                {
-                "error": "%s"
-                }
-                """.formatted(message);
-
-        sendJson(ex, status, json);
+        sendJson(ex, status, errorBody(message));
     }
 
     protected void sendValidationError(HttpExchange ex, List<String> details) throws IOException {
-        String joined = details.stream()
-                .map(d -> "\"" + d + "\"")
-                .collect(Collectors.joining(", "));
-
-        String json = """
-                {
-                "error": "Ошибка валидации",
-                "details": [%s]
+        sendJson(ex, 422, validationBody(details));
+    }
+
+    static byte[] errorBody(String message) {
+        byte[] body = ERROR_BODIES.get(message);
+        if (body == null) {
+            StringBuilder json = new StringBuilder(message.length() + 32).append("{\n\"error\": ");
+            appendJsonString(json, message);
+            body = json.append("\n}\n").toString().getBytes(StandardCharsets.UTF_8);
+            if (ERROR_BODIES.size() < MAX_CACHED_BODIES) {
+                ERROR_BODIES.putIfAbsent(message, body);
+            }
+        }
+        return body;
+    }
+
+    static byte[] validationBody(List<String> details) {
+        byte[] body = VALIDATION_BODIES.get(details);
+        if (body == null) {
+            StringBuilder json = new StringBuilder(128).append("{\n\"error\": \"Ошибка валидации\",\n\"details\": [");
+            for (int i = 0; i < details.size(); i++) {
+                if (i > 0) {
+                    json.append(", ");
                 }
-                """.formatted(joined);
+                appendJsonString(json, details.get(i));
+            }
+            body = json.append("]\n}\n").toString().getBytes(StandardCharsets.UTF_8);
+            if (VALIDATION_BODIES.size() < MAX_CACHED_BODIES) {
+                VALIDATION_BODIES.putIfAbsent(List.copyOf(details), body);
+            }
+        }
+        return body;
+    }
+
+    // Строка JSON в кавычках (RFC 8259, 7): кавычки, обратная косая черта и управляющие символы
+    static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    // Разбор чисел без исключений: NumberFormatException со стеком на каждый неверный
+    // параметр - заметная часть стоимости ответа 400. null - строка не является числом.
+    protected static Long parseLongOrNull(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            if (value.length() == 1) {
+                return null;
+            }
+            negative = first == '-';
+            i = 1;
+        }
+
+        // Накапливаем отрицательное значение, как Long.parseLong: иначе не влезет Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyMin = limit / 10;
+        long result = 0;
+        for (; i < value.length(); i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyMin) {
+                return null;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return null;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    protected static Integer parseIntOrNull(String value) {
+        Long parsed = parseLongOrNull(value);
+        if (parsed == null || parsed < Integer.MIN_VALUE || parsed > Integer.MAX_VALUE) {
+            return null;
+        }
+        return parsed.intValue();
+    }
+
+    // Значение параметра запроса или defaultValue, если его нет; null - параметр не число
+    protected static Long queryLong(Map<String, String> params, String name, long defaultValue) {
+        String value = params.get(name);
+        return value == null ? Long.valueOf(defaultValue) : parseLongOrNull(value);
+    }
 
-        sendJson(ex, 422, json);
+    protected static Integer queryInt(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        return value == null ? Integer.valueOf(defaultValue) : parseIntOrNull(value);
     }
 }
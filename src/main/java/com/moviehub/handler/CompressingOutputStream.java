@@ -0,0 +1,125 @@
+package com.moviehub.handler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+// Потоковое сжатие ответа. Deflater всегда в режиме nowrap (чистый deflate), а рамку
+// gzip (RFC 1952) или zlib (RFC 1950, это и есть HTTP "deflate") пишем сами - так один пул
+// Deflater обслуживает обе кодировки. Deflater держит нативную память, поэтому после
+// ответа он сбрасывается и возвращается в пул, а не создаётся заново.
+final class CompressingOutputStream extends OutputStream {
+    private static final int POOL_SIZE = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final BlockingQueue<Workspace> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    // CMF=0x78 (deflate, окно 32K), FLG=0x9C (уровень по умолчанию, без словаря)
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+
+    private final OutputStream out;
+    private final ContentEncoding encoding;
+    private final Checksum checksum;
+    private Workspace workspace;
+    private long inputBytes;
+
+    private static final class Workspace {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+    }
+
+    CompressingOutputStream(OutputStream out, ContentEncoding encoding) throws IOException {
+        this.out = out;
+        this.encoding = encoding;
+        this.checksum = encoding == ContentEncoding.GZIP ? new CRC32() : new Adler32();
+        Workspace pooled = POOL.poll();
+        this.workspace = pooled != null ? pooled : new Workspace();
+        out.write(encoding == ContentEncoding.GZIP ? GZIP_HEADER : ZLIB_HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (workspace == null) {
+            throw new IOException("Поток уже закрыт");
+        }
+        if (len == 0) {
+            return;
+        }
+        checksum.update(b, off, len);
+        inputBytes += len;
+
+        Deflater deflater = workspace.deflater;
+        deflater.setInput(b, off, len);
+        // Deflater ссылается на массив вызывающего, поэтому всё забираем до возврата
+        while (!deflater.needsInput()) {
+            drain(deflater);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (workspace == null) {
+            return;
+        }
+        Workspace current = workspace;
+        workspace = null;
+        try {
+            Deflater deflater = current.deflater;
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(current.buffer);
+                out.write(current.buffer, 0, n);
+            }
+            writeTrailer();
+        } finally {
+            release(current);
+            out.close();
+        }
+    }
+
+    private void drain(Deflater deflater) throws IOException {
+        int n = deflater.deflate(workspace.buffer);
+        if (n > 0) {
+            out.write(workspace.buffer, 0, n);
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        long value = checksum.getValue();
+        byte[] trailer;
+        if (encoding == ContentEncoding.GZIP) {
+            // CRC32 и длина исходных данных по модулю 2^32, little-endian
+            trailer = new byte[8];
+            writeIntLE(trailer, 0, value);
+            writeIntLE(trailer, 4, inputBytes);
+        } else {
+            // Adler-32, big-endian
+            trailer = new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+        out.write(trailer);
+    }
+
+    private static void writeIntLE(byte[] target, int offset, long value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        target[offset + 2] = (byte) (value >>> 16);
+        target[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static void release(Workspace workspace) {
+        workspace.deflater.reset();
+        if (!POOL.offer(workspace)) {
+            workspace.deflater.end();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.moviehub.handler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.moviehub.exceptions.MalformedJsonException;
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Потоковый импорт POST /movies/bulk: записи разбираются и проверяются по одной,
+// корректные копятся в пакет и вставляются в репозиторий через addAll
+public class MovieBulkImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final JsonFactory factory;
+    private final MovieJsonReader reader;
+    private final MovieRepository repo;
+    private final int batchSize;
+
+    public MovieBulkImporter(JsonFactory factory, MovieRepository repo, int batchSize) {
+        this.factory = factory;
+        this.reader = new MovieJsonReader(factory);
+        this.repo = repo;
+        this.batchSize = batchSize;
+    }
+
+    // ndjson = false: тело - JSON-массив объектов; true - объекты, разделённые переводом строки
+    public Report importFrom(InputStream body, boolean ndjson) throws IOException {
+        Report report = new Report();
+        List<Movie> pending = new ArrayList<>(batchSize);
+
+        // При разрыве или таймауте чтения pending не сохраняется: клиент не увидит
+        // отчёта и повторит загрузку, а вставленная половина пачки дала бы дубликаты
+        try (JsonParser parser = factory.createParser(body)) {
+            JsonToken token = parser.nextToken();
+
+            if (!ndjson) {
+                if (token != JsonToken.START_ARRAY) {
+                    throw new MalformedJsonException("Ожидается JSON-массив");
+                }
+                token = parser.nextToken();
+            }
+
+            long index = 0;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                readRecord(parser, token, index++, pending, report);
+
+                if (pending.size() >= batchSize) {
+                    flush(pending, report);
+                }
+                token = parser.nextToken();
+            }
+
+            if (!ndjson && token == null) {
+                throw new MalformedJsonException("Массив не закрыт");
+            }
+            flush(pending, report);
+        } catch (JacksonException | MalformedJsonException e) {
+            // отчёт дойдёт до клиента: прочитанные до ошибки записи сохраняются
+            report.error = "Неверный JSON";
+            flush(pending, report);
+        }
+
+        return report;
+    }
+
+    private void readRecord(JsonParser parser, JsonToken token, long index,
+                            List<Movie> pending, Report report) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            report.reject(index, "Неверный JSON", List.of("ожидается объект"));
+            return;
+        }
+
+        Movie movie;
+        try {
+            movie = reader.readObject(parser);
+        } catch (MalformedJsonException e) {
+            report.reject(index, "Неверный JSON", List.of(e.getMessage()));
+            return;
+        }
+
+        List<String> errors = MovieValidator.check(movie.title, movie.year);
+        if (errors.isEmpty()) {
+            pending.add(movie);
+        } else {
+            report.reject(index, "Ошибка валидации", errors);
+        }
+    }
+
+    private void flush(List<Movie> pending, Report report) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        repo.addAll(pending);
+        report.imported += pending.size();
+        pending.clear();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Report {
+        public String error;
+        public long imported;
+        public long failed;
+        public List<RecordError> errors = new ArrayList<>();
+
+        // Счётчик failed учитывает все отклонённые записи, а подробности - только первые MAX_REPORTED_ERRORS
+        void reject(long index, String error, List<String> details) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RecordError(index, error, details));
+            }
+        }
+    }
+
+    public static class RecordError {
+        public long index;
+        public String error;
+        public List<String> details;
+
+        RecordError(long index, String error, List<String> details) {
+            this.index = index;
+            this.error = error;
+            this.details = details;
+        }
+    }
+}
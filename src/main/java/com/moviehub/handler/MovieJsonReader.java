@@ -0,0 +1,85 @@
+package com.moviehub.handler;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.moviehub.exceptions.MalformedJsonException;
+import com.moviehub.model.Movie;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Однопроходный разбор тела POST /movies потоковым JsonParser, без построения дерева JsonNode
+public class MovieJsonReader {
+    private final JsonFactory factory;
+
+    public MovieJsonReader(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    public Movie read(InputStream body) throws IOException {
+        try (JsonParser parser = factory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MalformedJsonException("Ожидается JSON-объект");
+            }
+            return readObject(parser);
+        } catch (JacksonException e) {
+            throw new MalformedJsonException("Неверный JSON", e);
+        }
+    }
+
+    // Парсер должен стоять на START_OBJECT; после возврата он стоит на соответствующем END_OBJECT
+    public Movie readObject(JsonParser parser) throws IOException {
+        String title = null;
+        boolean hasYear = false;
+        int year = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("title".equals(field)) {
+                title = value == JsonToken.VALUE_NULL ? null : textOf(parser, value);
+            } else if ("year".equals(field)) {
+                hasYear = value != JsonToken.VALUE_NULL;
+                year = hasYear ? intOf(parser, value) : 0;
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (parser.currentToken() != JsonToken.END_OBJECT) {
+            throw new MalformedJsonException("Неверный JSON");
+        }
+        if (title == null) {
+            throw new MalformedJsonException("нет названия");
+        }
+        if (!hasYear) {
+            throw new MalformedJsonException("нет года");
+        }
+
+        Movie movie = new Movie();
+        movie.title = title;
+        movie.year = year;
+        return movie;
+    }
+
+    // Те же правила приведения, что у JsonNode.asText()/asInt(): у объектов и массивов
+    // текст пустой, а год равен 0, строки с числом приводятся к int
+    private String textOf(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    private int intOf(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isStructStart()) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsInt(0);
+    }
+}
@@ -0,0 +1,58 @@
+package com.moviehub.handler;
+
+import com.moviehub.exceptions.ValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class MovieValidator {
+    private static final String EMPTY_TITLE = "название не должно быть пустым";
+    private static final String TITLE_TOO_LONG = "название не должно превышать 100 символов";
+
+    // Сообщение о годе зависит от текущего года; строится заново только при его смене
+    private static volatile YearRule yearRule = new YearRule(0, "");
+
+    private record YearRule(int maxYear, String message) {
+    }
+
+    private MovieValidator() {
+    }
+
+    public static void validate(String title, int year) throws ValidationException {
+        List<String> errors = check(title, year);
+
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
+    }
+
+    // Пустой список - запись корректна
+    public static List<String> check(String title, int year) {
+        boolean emptyTitle = title == null || title.isBlank();
+        boolean longTitle = title != null && title.length() > 100;
+
+        YearRule rule = yearRule;
+        int maxYear = java.time.Year.now().getValue() + 1;
+        if (rule.maxYear() != maxYear) {
+            rule = new YearRule(maxYear, "год должен быть между 1888 и " + maxYear);
+            yearRule = rule;
+        }
+        boolean badYear = year < 1888 || year > maxYear;
+
+        if (!emptyTitle && !longTitle && !badYear) {
+            return List.of();
+        }
+
+        List<String> errors = new ArrayList<>(3);
+        if (emptyTitle) {
+            errors.add(EMPTY_TITLE);
+        }
+        if (longTitle) {
+            errors.add(TITLE_TOO_LONG);
+        }
+        if (badYear) {
+            errors.add(rule.message());
+        }
+        return errors;
+    }
+}
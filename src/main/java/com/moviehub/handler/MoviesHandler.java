@@ -1,24 +1,85 @@
 package com.moviehub.handler;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JacksonException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.moviehub.exceptions.ValidationException;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.moviehub.cache.IdempotencyStore;
+import com.moviehub.cache.MovieResponseCache;
+import com.moviehub.exceptions.MalformedJsonException;
+import com.moviehub.exceptions.PayloadTooLargeException;
 import com.moviehub.model.Movie;
+import com.moviehub.storage.ChangeLog;
+import com.moviehub.storage.MovieQuery;
 import com.moviehub.storage.MovieRepository;
+import com.moviehub.storage.MovieStore;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 public class MoviesHandler extends BaseHttpHandler {
-    private static final MovieRepository repo = new MovieRepository();
+    private static final System.Logger log = System.getLogger(MoviesHandler.class.getName());
+    // Общий репозиторий обработчиков, созданных без своего
+    private static final MovieRepository defaultRepo = new MovieRepository(
+            MovieStore.named(System.getProperty("moviehub.storage")),
+            Integer.getInteger("moviehub.changes.capacity", ChangeLog.DEFAULT_CAPACITY));
     private static final ObjectMapper mapper = new ObjectMapper();
+    public static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int DEFAULT_CHANGES_LIMIT = 1000;
+    private static final int MAX_CHANGES_LIMIT = 10_000;
+    private static final int MAX_CHANGES_WAIT_SECONDS = 30;
+    public static final int MAX_BATCH_IDS = 1000;
+    // Сколько повтор с тем же ключом идемпотентности ждёт завершения первого запроса
+    private static final long IDEMPOTENT_WAIT_MILLIS = 5000;
+    // Меняется при каждом запуске: версии и счётчик изменений после рестарта начинаются заново
+    private static final String ETAG_EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private final MovieJsonReader jsonReader = new MovieJsonReader(mapper.getFactory());
+    private final MovieRepository repo;
+    private final MovieBulkImporter bulkImporter;
+    private final int maxBodyBytes;
+    // null - кэш ответов выключен
+    private final MovieResponseCache cache;
+    // null - заголовок Idempotency-Key игнорируется
+    private final IdempotencyStore idempotency;
+
+    public MoviesHandler() {
+        this(DEFAULT_MAX_BODY_BYTES, null);
+    }
+
+    public MoviesHandler(int maxBodyBytes, MovieResponseCache cache) {
+        this(maxBodyBytes, cache, DEFAULT_COMPRESSION_MIN_BYTES);
+    }
+
+    public MoviesHandler(int maxBodyBytes, MovieResponseCache cache, int compressionMinBytes) {
+        this(defaultRepo, maxBodyBytes, cache, compressionMinBytes);
+    }
+
+    public MoviesHandler(MovieRepository repo, int maxBodyBytes, MovieResponseCache cache, int compressionMinBytes) {
+        this(repo, maxBodyBytes, cache, compressionMinBytes, null);
+    }
+
+    public MoviesHandler(MovieRepository repo, int maxBodyBytes, MovieResponseCache cache, int compressionMinBytes,
+                         IdempotencyStore idempotency) {
+        super(compressionMinBytes);
+        this.repo = repo;
+        this.bulkImporter = new MovieBulkImporter(mapper.getFactory(), repo, MovieBulkImporter.DEFAULT_BATCH_SIZE);
+        this.maxBodyBytes = maxBodyBytes;
+        this.cache = cache;
+        this.idempotency = idempotency;
+    }
 
     public static MovieRepository getRepository() {
-        return repo;
+        return defaultRepo;
     }
 
     @Override
@@ -37,171 +98,534 @@ public class MoviesHandler extends BaseHttpHandler {
                 sendError(ex, 405, "Метод не поддерживается");
             }
         } catch (Exception e) {
+            log.log(System.Logger.Level.ERROR,
+                    "Ошибка при обработке " + ex.getRequestMethod() + " " + ex.getRequestURI(), e);
             sendError(ex, 500, "Внутренняя ошибка сервера");
         }
     }
 
     private void handlePost(HttpExchange ex) throws IOException {
-        try {
-            requireJsonContentType(ex);
-        } catch (IllegalStateException e) {
+        if (ex.getRequestURI().getPath().equals("/movies/bulk")) {
+            handleBulkImport(ex);
+            return;
+        }
+        if (ex.getRequestURI().getPath().equals("/movies/batch")) {
+            handleBatchPost(ex);
+            return;
+        }
+
+        if (!requireJsonContentType(ex)) {
             return;
         }
 
-        String body = readBody(ex);
+        String declaredLength = ex.getRequestHeaders().getFirst("Content-Length");
+        if (declaredLength != null && exceedsLimit(declaredLength)) {
+            sendPayloadTooLarge(ex);
+            return;
+        }
 
-        String title;
-        int year;
+        Movie movie;
 
         try {
-            title = extractTitle(body);
-            year = extractYear(body);
-        } catch (IllegalArgumentException e) {
+            movie = jsonReader.read(new LimitedInputStream(ex.getRequestBody(), maxBodyBytes));
+        } catch (MalformedJsonException e) {
             sendError(ex, 400, "Неверный JSON");
             return;
+        } catch (PayloadTooLargeException e) {
+            sendPayloadTooLarge(ex);
+            return;
         }
 
-        try {
-            validateMovie(title, year);
-        } catch (ValidationException e) {
-            sendValidationError(ex, e.getErrors());
+        List<String> errors = MovieValidator.check(movie.title, movie.year);
+        if (!errors.isEmpty()) {
+            sendValidationError(ex, errors);
             return;
         }
 
-        Movie movie = new Movie();
-        movie.title = title;
-        movie.year = year;
+        String key = idempotency == null ? null : ex.getRequestHeaders().getFirst("Idempotency-Key");
+        if (key == null) {
+            sendJson(ex, 201, mapper.writeValueAsBytes(repo.add(movie)));
+            return;
+        }
+        if (key.isEmpty() || key.length() > IdempotencyStore.MAX_KEY_LENGTH) {
+            sendError(ex, 400, "Некорректный заголовок Idempotency-Key");
+            return;
+        }
+        handleIdempotentPost(ex, key, movie);
+    }
 
-        Movie saved = repo.add(movie);
+    // Первый запрос с ключом добавляет фильм и запоминает ответ; повторы (в том числе
+    // одновременные) получают тот же ответ без вставки. Тот же ключ с другим телом - 422.
+    private void handleIdempotentPost(HttpExchange ex, String key, Movie movie) throws IOException {
+        String fingerprint = movie.year + ":" + movie.title;
+        while (true) {
+            IdempotencyStore.Reservation reservation = idempotency.reserve(key, fingerprint);
+            if (reservation == null) {
+                ex.getResponseHeaders().set("Retry-After", "1");
+                sendError(ex, 503, "Слишком много незавершённых запросов с ключами идемпотентности");
+                return;
+            }
+            IdempotencyStore.Entry entry = reservation.entry();
+            if (reservation.fresh()) {
+                byte[] body;
+                try {
+                    body = mapper.writeValueAsBytes(repo.add(movie));
+                } catch (RuntimeException | IOException e) {
+                    idempotency.abandon(entry);
+                    throw e;
+                }
+                idempotency.complete(entry, body);
+                sendJson(ex, 201, body);
+                return;
+            }
+
+            if (!entry.matches(fingerprint)) {
+                sendError(ex, 422, "Ключ идемпотентности уже использован для другого запроса");
+                return;
+            }
+            byte[] body;
+            try {
+                body = entry.await(IDEMPOTENT_WAIT_MILLIS);
+            } catch (TimeoutException e) {
+                sendError(ex, 409, "Запрос с этим ключом идемпотентности ещё выполняется");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendError(ex, 503, "Сервер останавливается");
+                return;
+            }
+            if (body != null) {
+                ex.getResponseHeaders().set("Idempotent-Replayed", "true");
+                sendJson(ex, 201, body);
+                return;
+            }
+            // первый запрос не удался и освободил ключ - пробуем занять его сами
+        }
+    }
+
+    private void handleBulkImport(HttpExchange ex) throws IOException {
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        boolean ndjson = contentType != null
+                && (contentType.equalsIgnoreCase("application/x-ndjson")
+                || contentType.equalsIgnoreCase("application/ndjson"));
+
+        if (!ndjson && (contentType == null || !contentType.equalsIgnoreCase("application/json"))) {
+            sendError(ex, 415, "Неподдерживаемый Content-Type");
+            return;
+        }
 
-        String json = mapper.writeValueAsString(saved);
+        MovieBulkImporter.Report report = bulkImporter.importFrom(ex.getRequestBody(), ndjson);
 
-        sendJson(ex, 201, json);
+        sendJson(ex, report.error == null ? 200 : 400, mapper.writeValueAsString(report));
     }
 
-    protected String readBody(HttpExchange ex) throws IOException {
-        return new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
+    // Остаток тела не дочитывается, поэтому соединение нельзя переиспользовать
+    private void sendPayloadTooLarge(HttpExchange ex) throws IOException {
+        ex.getResponseHeaders().set("Connection", "close");
+        sendError(ex, 413, "Слишком большое тело запроса");
     }
 
-    protected void requireJsonContentType(HttpExchange ex) throws IOException {
+    private boolean exceedsLimit(String declaredLength) {
+        Long length = parseLongOrNull(declaredLength.trim());
+        return length != null && length > maxBodyBytes;
+    }
+
+    // false - ответ 415 уже отправлен
+    protected boolean requireJsonContentType(HttpExchange ex) throws IOException {
         String contentType = ex.getRequestHeaders().getFirst("Content-Type");
 
         if (contentType == null || !contentType.equalsIgnoreCase("application/json")) {
             sendError(ex, 415, "Неподдерживаемый Content-Type");
-            throw new IllegalStateException();
+            return false;
         }
+        return true;
     }
 
-    private String extractTitle(String body) throws IllegalArgumentException {
-        try {
-            JsonNode node = mapper.readTree(body);
-            if (!node.has("title") || node.get("title").isNull()) {
-                throw new IllegalArgumentException("нет названия");
+    private void handleGet(HttpExchange ex) throws IOException {
+        Map<String, String> params = parseQuery(ex);
+
+        if (ex.getRequestURI().getPath().equals("/movies/changes")) {
+            handleGetChanges(ex, params);
+            return;
+        }
+
+        if (ex.getRequestURI().getPath().equals("/movies/stats")) {
+            handleGetStats(ex);
+            return;
+        }
+
+        if (params.containsKey("ids")) {
+            handleBatchGet(ex, params.get("ids"));
+            return;
+        }
+
+        if (params.containsKey("year")) {
+            handleGetByYear(ex, params.get("year"));
+            return;
+        }
+
+        if (params.containsKey("yearFrom") || params.containsKey("yearTo") || params.containsKey("titlePrefix")
+                || params.containsKey("sort") || params.containsKey("order")) {
+            handleQuery(ex, params);
+            return;
+        }
+
+        if (params.containsKey("q")) {
+            handleSearch(ex, params);
+            return;
+        }
+
+        String path = ex.getRequestURI().getPath();
+        String[] parts = path.split("/");
+
+        if (parts.length == 2) {
+            if (params.containsKey("after") || params.containsKey("limit")) {
+                handleGetPage(ex, params);
+            } else {
+                handleGetAll(ex);
             }
-            return node.get("title").asText();
-        } catch (Exception e) {
-            throw new IllegalArgumentException("title");
+            return;
+        }
+
+        if (parts.length == 3) {
+            handleGetById(ex, parts[2]);
+            return;
         }
+
+        sendError(ex, 404, "Не найдено");
     }
 
-    private int extractYear(String body) throws IllegalArgumentException {
-        try {
-            JsonNode node = mapper.readTree(body);
-            if (!node.has("year") || node.get("year").isNull()) {
-                throw new IllegalArgumentException("нет года");
+    // Каталог пишется в ответ по мере обхода, без промежуточной строки и массива байт
+    private void handleGetAll(HttpExchange ex) throws IOException {
+        if (notModified(ex, collectionTag())) {
+            return;
+        }
+        // Номер изменения, с которого потребителю продолжать после полной выгрузки.
+        // Читается до обхода: события после него могут уже попасть в выгрузку, их повтор безвреден.
+        ex.getResponseHeaders().set("X-Change-Seq", String.valueOf(repo.getChangeLog().lastSeq()));
+        try (OutputStream os = startJsonStream(ex, 200);
+             SequenceWriter writer = mapper.writer()
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .writeValuesAsArray(os)) {
+            for (Movie movie : repo.iterateAll()) {
+                writer.write(movie);
             }
-            return node.get("year").asInt();
-        } catch (Exception e) {
-            throw new IllegalArgumentException("year");
         }
     }
 
-    private void validateMovie(String title, int year) throws ValidationException {
-        List<String> errors = new ArrayList<>();
+    // Сводка из счётчиков репозитория, без обхода каталога
+    private void handleGetStats(HttpExchange ex) throws IOException {
+        if (notModified(ex, collectionTag())) {
+            return;
+        }
+        sendJson(ex, 200, mapper.writeValueAsBytes(repo.stats()));
+    }
 
-        if (title == null || title.isBlank()) {
-            errors.add("название не должно быть пустым");
+    // Изменения после since; wait - сколько секунд ждать, если новых изменений ещё нет (long-poll)
+    private void handleGetChanges(HttpExchange ex, Map<String, String> params) throws IOException {
+        ChangeLog changes = repo.getChangeLog();
+        if (!params.containsKey("since")) {
+            ex.getResponseHeaders().set("X-Change-Seq", String.valueOf(changes.lastSeq()));
+            sendJson(ex, 200, mapper.writeValueAsBytes(new ChangesPage(List.of(), changes.lastSeq())));
+            return;
         }
 
-        if (title != null && title.length() > 100) {
-            errors.add("название не должно превышать 100 символов");
+        Long since = parseLongOrNull(params.get("since"));
+        if (since == null) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'since'");
+            return;
         }
 
-        int maxYear = java.time.Year.now().getValue() + 1;
+        Integer limit = queryInt(params, "limit", DEFAULT_CHANGES_LIMIT);
+        if (limit == null || limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'limit'");
+            return;
+        }
 
-        if (year < 1888 || year > maxYear) {
-            errors.add("год должен быть между 1888 и " + maxYear);
+        Integer wait = queryInt(params, "wait", 0);
+        if (wait == null || wait < 0 || wait > MAX_CHANGES_WAIT_SECONDS) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'wait'");
+            return;
         }
 
-        if (!errors.isEmpty()) {
-            throw new ValidationException(errors);
+        List<ChangeLog.Event> events;
+        try {
+            events = changes.read(since, limit, wait * 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(ex, 503, "Сервер останавливается");
+            return;
         }
+        if (events == null) {
+            ex.getResponseHeaders().set("X-Change-Seq", String.valueOf(changes.lastSeq()));
+            sendError(ex, 410, "Требуется полная пересинхронизация");
+            return;
+        }
+
+        long next = events.isEmpty() ? since : events.get(events.size() - 1).seq();
+        sendJson(ex, 200, mapper.writeValueAsBytes(new ChangesPage(events, next)));
     }
 
-    private void handleGet(HttpExchange ex) throws IOException {
-        String query = ex.getRequestURI().getQuery();
+    // next - курсор для следующего запроса
+    private record ChangesPage(List<ChangeLog.Event> changes, long next) {
+    }
 
-        if (query != null && query.startsWith("year=")) {
-            handleGetByYear(ex, query);
+    private void handleGetPage(HttpExchange ex, Map<String, String> params) throws IOException {
+        Long after = queryLong(params, "after", 0);
+        if (after == null) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'after'");
             return;
         }
 
-        String path = ex.getRequestURI().getPath();
-        String[] parts = path.split("/");
-
-        if (parts.length == 2) {
-            handleGetAll(ex);
+        Integer limit = queryInt(params, "limit", DEFAULT_PAGE_SIZE);
+        if (limit == null || limit < 1 || limit > MAX_PAGE_SIZE) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'limit'");
             return;
         }
 
-        if (parts.length == 3) {
-            handleGetById(ex, parts[2]);
+        if (notModified(ex, collectionTag())) {
             return;
         }
 
-        sendError(ex, 404, "Не найдено");
+        // Берём на один больше, чтобы понять, есть ли следующая страница
+        List<Movie> page = repo.findPage(after, limit + 1);
+        if (page.size() > limit) {
+            page = page.subList(0, limit);
+            ex.getResponseHeaders().set("X-Next-After", String.valueOf(page.get(limit - 1).id));
+        }
+
+        sendJson(ex, 200, mapper.writeValueAsString(page));
     }
 
-    private void handleGetAll(HttpExchange ex) throws IOException {
-        String json = mapper.writeValueAsString(repo.findAll());
-        sendJson(ex, 200, json);
+    private void handleSearch(HttpExchange ex, Map<String, String> params) throws IOException {
+        String q = params.get("q");
+        if (q.isBlank()) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'q'");
+            return;
+        }
+
+        Integer limit = queryInt(params, "limit", DEFAULT_SEARCH_LIMIT);
+        if (limit == null || limit < 1 || limit > MAX_PAGE_SIZE) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'limit'");
+            return;
+        }
+
+        if (notModified(ex, collectionTag())) {
+            return;
+        }
+
+        sendJson(ex, 200, mapper.writeValueAsBytes(repo.search(q, limit)));
     }
 
     private void handleGetById(HttpExchange ex, String idStr) throws IOException {
-        long id;
 
-        try {
-            id = Long.parseLong(idStr);
-        } catch (NumberFormatException e) {
+        Long id = parseLongOrNull(idStr);
+        if (id == null) {
             sendError(ex, 400, "Некорректный ID");
             return;
         }
 
+        // Поколение читается до поиска фильма: инвалидация между ними отменит put
+        long generation = cache == null ? 0 : cache.idGeneration(id);
         Movie movie = repo.findById(id);
-
         if (movie == null) {
             sendError(ex, 404, "Фильм не найден");
             return;
         }
+        if (notModified(ex, entityTag(movie))) {
+            return;
+        }
 
-        String json = mapper.writeValueAsString(movie);
+        if (cache == null) {
+            sendJson(ex, 200, mapper.writeValueAsBytes(movie));
+            return;
+        }
+
+        MovieResponseCache.EntityKey key = MovieResponseCache.EntityKey.of(movie);
+        byte[] cached = cache.byId().get(key);
+        if (cached == null) {
+            cached = mapper.writeValueAsBytes(movie);
+            cache.byId().put(key, cached, generation);
+        }
 
-        sendJson(ex, 200, json);
+        sendJson(ex, 200, cached);
     }
 
-    private void handleGetByYear(HttpExchange ex, String query) throws IOException {
-        int year;
+    private void handleGetByYear(HttpExchange ex, String yearStr) throws IOException {
 
-        try {
-            year = Integer.parseInt(query.substring("year=".length()));
-        } catch (NumberFormatException e) {
+        Integer year = parseIntOrNull(yearStr);
+        if (year == null) {
             sendError(ex, 400, "Некорректный параметр запроса - 'year'");
             return;
         }
 
-        String json = mapper.writeValueAsString(repo.findByYear(year));
+        if (notModified(ex, collectionTag())) {
+            return;
+        }
+
+        if (cache == null) {
+            sendJson(ex, 200, mapper.writeValueAsBytes(repo.findByYear(year)));
+            return;
+        }
+
+        byte[] cached = cache.byYear().get(year);
+        if (cached == null) {
+            long generation = cache.byYear().generation(year);
+            cached = mapper.writeValueAsBytes(repo.findByYear(year));
+            cache.byYear().put(year, cached, generation);
+        }
+
+        sendJson(ex, 200, cached);
+    }
+
+    // GET /movies?yearFrom=&yearTo=&titlePrefix=&sort=id|year|title&order=asc|desc&limit=
+    // Без sort при заданных годах упорядочивает по году, иначе по ID; без limit отдаёт все совпадения
+    private void handleQuery(HttpExchange ex, Map<String, String> params) throws IOException {
+        // поиск ранжирует по словам и не сочетается с фильтрами и порядком запроса
+        if (params.containsKey("q")) {
+            sendError(ex, 400, "Параметр 'q' нельзя сочетать с yearFrom, yearTo, titlePrefix, sort и order");
+            return;
+        }
+
+        Integer from = queryInt(params, "yearFrom", Integer.MIN_VALUE);
+        if (from == null) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'yearFrom'");
+            return;
+        }
+
+        Integer to = queryInt(params, "yearTo", Integer.MAX_VALUE);
+        if (to == null) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'yearTo'");
+            return;
+        }
+
+        MovieQuery.Sort sort = params.containsKey("sort") ? MovieQuery.Sort.parse(params.get("sort"))
+                : params.containsKey("yearFrom") || params.containsKey("yearTo") ? MovieQuery.Sort.YEAR : MovieQuery.Sort.ID;
+        if (sort == null) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'sort'");
+            return;
+        }
+
+        String order = params.getOrDefault("order", "asc");
+        if (!order.equals("asc") && !order.equals("desc")) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'order'");
+            return;
+        }
+
+        Integer limit = queryInt(params, "limit", 0);
+        if (limit == null || limit > MAX_PAGE_SIZE || (params.containsKey("limit") && limit < 1)) {
+            sendError(ex, 400, "Некорректный параметр запроса - 'limit'");
+            return;
+        }
+
+        if (notModified(ex, collectionTag())) {
+            return;
+        }
+
+        MovieQuery query = new MovieQuery()
+                .yearFrom(from)
+                .yearTo(to)
+                .titlePrefix(params.get("titlePrefix"))
+                .sort(sort)
+                .descending(order.equals("desc"))
+                .limit(limit);
+
+        sendJson(ex, 200, mapper.writeValueAsBytes(repo.query(query)));
+    }
+
+    // GET /movies?ids=1,2,3
+    private void handleBatchGet(HttpExchange ex, String idsStr) throws IOException {
+        String[] parts = idsStr.split(",", -1);
+        if (parts.length > MAX_BATCH_IDS) {
+            sendError(ex, 400, "Слишком много ID в запросе");
+            return;
+        }
+
+        long[] ids = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            Long id = parseLongOrNull(parts[i].trim());
+            if (id == null) {
+                sendError(ex, 400, "Некорректный параметр запроса - 'ids'");
+                return;
+            }
+            ids[i] = id;
+        }
+
+        if (notModified(ex, collectionTag())) {
+            return;
+        }
+        sendBatch(ex, ids);
+    }
+
+    // POST /movies/batch с телом {"ids": [1, 2, 3]} - для списков, не помещающихся в URL
+    private void handleBatchPost(HttpExchange ex) throws IOException {
+        if (!requireJsonContentType(ex)) {
+            return;
+        }
+
+        String declaredLength = ex.getRequestHeaders().getFirst("Content-Length");
+        if (declaredLength != null && exceedsLimit(declaredLength)) {
+            sendPayloadTooLarge(ex);
+            return;
+        }
+
+        BatchRequest request;
+        try {
+            request = mapper.readValue(new LimitedInputStream(ex.getRequestBody(), maxBodyBytes), BatchRequest.class);
+        } catch (JacksonException e) {
+            sendError(ex, 400, "Неверный JSON");
+            return;
+        } catch (PayloadTooLargeException e) {
+            sendPayloadTooLarge(ex);
+            return;
+        }
+
+        if (request == null || request.ids() == null) {
+            sendValidationError(ex, List.of("Поле 'ids' обязательно"));
+            return;
+        }
+        if (request.ids().length > MAX_BATCH_IDS) {
+            sendError(ex, 400, "Слишком много ID в запросе");
+            return;
+        }
+        sendBatch(ex, request.ids());
+    }
 
-        sendJson(ex, 200, json);
+    // Фильмы в порядке запроса без повторов, ненайденные ID - отдельным списком
+    private void sendBatch(HttpExchange ex, long[] ids) throws IOException {
+        long[] unique = Arrays.stream(ids).distinct().toArray();
+        Movie[] found = repo.findByIds(unique);
+
+        List<Movie> movies = new ArrayList<>(found.length);
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < found.length; i++) {
+            if (found[i] != null) {
+                movies.add(found[i]);
+            } else {
+                missing.add(unique[i]);
+            }
+        }
+        sendJson(ex, 200, mapper.writeValueAsBytes(new BatchResult(movies, missing)));
+    }
+
+    private record BatchRequest(long[] ids) {
+    }
+
+    private record BatchResult(List<Movie> movies, List<Long> missing) {
+    }
+
+    private String collectionTag() {
+        return collectionTag(repo);
+    }
+
+    // Тег списка - счётчик изменений репозитория, прочитанный до построения ответа
+    public static String collectionTag(MovieRepository repo) {
+        return "\"" + ETAG_EPOCH + "-" + repo.getModCount() + "\"";
+    }
+
+    // Фильмы не изменяются, поэтому тег фильма - его версия
+    private static String entityTag(Movie movie) {
+        return "\"" + ETAG_EPOCH + "-v" + movie.version + "\"";
     }
 
     private void handleDelete(HttpExchange ex) throws IOException {
@@ -213,10 +637,8 @@ public class MoviesHandler extends BaseHttpHandler {
             return;
         }
 
-        long id;
-        try {
-            id = Long.parseLong(parts[2]);
-        } catch (NumberFormatException e) {
+        Long id = parseLongOrNull(parts[2]);
+        if (id == null) {
             sendError(ex, 400, "Некорректный ID");
             return;
         }
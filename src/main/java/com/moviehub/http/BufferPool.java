@@ -0,0 +1,27 @@
+package com.moviehub.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Пул буферов соединений: буферы чтения, записи и чанков берутся на время соединения
+// или ответа и возвращаются, чтобы поток коротких соединений не плодил мусор по 16 КБ.
+final class BufferPool {
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> pool;
+
+    BufferPool(int bufferSize, int capacity) {
+        this.bufferSize = bufferSize;
+        this.pool = new ArrayBlockingQueue<>(capacity);
+    }
+
+    byte[] acquire() {
+        byte[] buffer = pool.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            pool.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.moviehub.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Тело запроса с Transfer-Encoding: chunked; трейлеры пропускаются
+final class ChunkedInputStream extends InputStream {
+    private static final int MAX_LINE = 4096;
+
+    private final ConnectionInput in;
+    private long remaining;
+    private boolean eof;
+
+    ChunkedInputStream(ConnectionInput in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (remaining == 0 && !eof) {
+            nextChunk();
+        }
+        if (eof) {
+            return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0) {
+            throw new EOFException("Соединение закрыто посреди чанка");
+        }
+        remaining -= n;
+        if (remaining == 0) {
+            String crlf = in.readLine(MAX_LINE);
+            if (crlf == null || !crlf.isEmpty()) {
+                throw new HttpProtocolException(400, "Некорректное окончание чанка");
+            }
+        }
+        return n;
+    }
+
+    private void nextChunk() throws IOException {
+        String line = in.readLine(MAX_LINE);
+        if (line == null) {
+            throw new EOFException("Соединение закрыто до конца тела");
+        }
+        int extension = line.indexOf(';');
+        String hex = (extension < 0 ? line : line.substring(0, extension)).trim();
+        long size;
+        try {
+            size = Long.parseLong(hex, 16);
+        } catch (NumberFormatException e) {
+            throw new HttpProtocolException(400, "Некорректный размер чанка");
+        }
+        if (size < 0) {
+            throw new HttpProtocolException(400, "Некорректный размер чанка");
+        }
+        if (size > 0) {
+            remaining = size;
+            return;
+        }
+        String trailer;
+        while ((trailer = in.readLine(MAX_LINE)) != null && !trailer.isEmpty()) {
+            // трейлеры не используются
+        }
+        eof = true;
+    }
+
+    @Override
+    public int available() {
+        return eof ? 0 : (int) Math.min(in.available(), remaining);
+    }
+}
@@ -0,0 +1,114 @@
+package com.moviehub.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// Буферизованное чтение сокета. Всё, что уже лежит в буфере после текущего запроса, -
+// следующие запросы конвейера (pipelining): available() показывает, есть ли они.
+final class ConnectionInput extends InputStream {
+    private final InputStream in;
+    private final BufferPool pool;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+
+    ConnectionInput(InputStream in, BufferPool pool) {
+        this.in = in;
+        this.pool = pool;
+        this.buf = pool.acquire();
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    // Следующий байт без извлечения; -1 - клиент закрыл соединение
+    int peek() throws IOException {
+        return fill() ? buf[pos] & 0xFF : -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? buf[pos++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        // большое чтение мимо буфера
+        if (pos == limit && len >= buf.length) {
+            return in.read(b, off, len);
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - pos;
+    }
+
+    // Строка до LF без завершающего CR в ISO-8859-1; null - поток кончился до первого байта строки
+    String readLine(int maxLength) throws IOException {
+        StringBuilder line = null;
+        while (true) {
+            if (!fill()) {
+                if (line == null) {
+                    return null;
+                }
+                throw new EOFException("Соединение закрыто посреди строки заголовка");
+            }
+            int end = pos;
+            while (end < limit && buf[end] != '\n') {
+                end++;
+            }
+            int length = end - pos;
+            if ((line == null ? 0 : line.length()) + length > maxLength) {
+                throw new HttpProtocolException(431, "Слишком длинная строка заголовка");
+            }
+            if (end < limit && line == null) {
+                // обычный случай: строка целиком в буфере
+                int stop = length > 0 && buf[end - 1] == '\r' ? end - 1 : end;
+                String result = new String(buf, pos, stop - pos, StandardCharsets.ISO_8859_1);
+                pos = end + 1;
+                return result;
+            }
+            if (line == null) {
+                line = new StringBuilder(length + 32);
+            }
+            line.append(new String(buf, pos, length, StandardCharsets.ISO_8859_1));
+            if (end < limit) {
+                pos = end + 1;
+                int last = line.length() - 1;
+                if (last >= 0 && line.charAt(last) == '\r') {
+                    line.setLength(last);
+                }
+                return line.toString();
+            }
+            pos = limit;
+        }
+    }
+
+    void release() {
+        pool.release(buf);
+        buf = null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.moviehub.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Буферизованная запись в сокет. Сбрасывается соединением, когда во входном буфере
+// не осталось конвейерных запросов, поэтому ответы на них уходят одной записью.
+final class ConnectionOutput extends OutputStream {
+    private final OutputStream out;
+    private final BufferPool pool;
+    private byte[] buf;
+    private int count;
+
+    ConnectionOutput(OutputStream out, BufferPool pool) {
+        this.out = out;
+        this.pool = pool;
+        this.buf = pool.acquire();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buf.length) {
+            drain();
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= buf.length) {
+            drain();
+            out.write(b, off, len);
+            return;
+        }
+        if (len > buf.length - count) {
+            drain();
+        }
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void drain() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    void release() {
+        pool.release(buf);
+        buf = null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.moviehub.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Тело запроса с Content-Length
+final class FixedLengthInputStream extends InputStream {
+    private final ConnectionInput in;
+    private long remaining;
+
+    FixedLengthInputStream(ConnectionInput in, long length) {
+        this.in = in;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Тело запроса короче Content-Length");
+        }
+        remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0) {
+            throw new EOFException("Тело запроса короче Content-Length");
+        }
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    long remaining() {
+        return remaining;
+    }
+}
@@ -0,0 +1,382 @@
+package com.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Одно соединение - один виртуальный поток: запросы читаются и обрабатываются по очереди,
+// так что конвейерные запросы получают ответы в порядке поступления без дополнительной
+// синхронизации. Ответ сбрасывается в сокет, только когда следующего запроса в буфере нет.
+final class HttpConnection implements Runnable {
+    private static final System.Logger log = System.getLogger(HttpConnection.class.getName());
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final int MAX_HEADERS = 200;
+    // Сколько непрочитанного тела запроса дочитывается ради сохранения соединения
+    private static final long MAX_DRAIN_BYTES = 64 * 1024;
+    // Сколько после ответа ждать, пока клиент допишет непрочитанное тело, перед закрытием сокета
+    private static final int LINGER_MILLIS = 2_000;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NOT_FOUND = "{\"error\": \"Не найдено\"}\n".getBytes(StandardCharsets.UTF_8);
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static volatile CachedDate date = new CachedDate(0, "");
+
+    private final VirtualThreadHttpServer server;
+    private final Socket socket;
+    private final BufferPool buffers;
+    private ConnectionInput in;
+    private ConnectionOutput out;
+    private boolean keepAlive;
+    private volatile boolean busy;
+
+    private record CachedDate(long second, String value) {
+    }
+
+    HttpConnection(VirtualThreadHttpServer server, Socket socket, BufferPool buffers) {
+        this.server = server;
+        this.socket = socket;
+        this.buffers = buffers;
+    }
+
+    @Override
+    public void run() {
+        try {
+            socket.setTcpNoDelay(true);
+            in = new ConnectionInput(socket.getInputStream(), buffers);
+            out = new ConnectionOutput(socket.getOutputStream(), buffers);
+            while (!server.isStopping()) {
+                socket.setSoTimeout(server.getIdleTimeoutMillis());
+                if (in.peek() < 0) {
+                    break;
+                }
+                socket.setSoTimeout(server.getReadTimeoutMillis());
+                busy = true;
+                boolean reusable = serveOne();
+                busy = false;
+                if (!reusable) {
+                    break;
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+            lingerClose();
+        } catch (HttpProtocolException e) {
+            rejectQuietly(e.status);
+        } catch (IOException e) {
+            // таймаут, разрыв или остановка сервера: соединение просто закрывается
+        } finally {
+            close();
+        }
+    }
+
+    // true - соединение можно использовать для следующего запроса
+    private boolean serveOne() throws IOException {
+        String requestLine = in.readLine(MAX_HEADER_BYTES);
+        if (requestLine == null) {
+            return false;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/1.")) {
+            throw new HttpProtocolException(400, "Некорректная строка запроса");
+        }
+        String method = parts[0];
+        String protocol = parts[2];
+        URI uri;
+        try {
+            uri = new URI(parts[1]);
+        } catch (URISyntaxException e) {
+            throw new HttpProtocolException(400, "Некорректный URI");
+        }
+
+        Headers headers = readHeaders();
+        boolean http11 = protocol.equals("HTTP/1.1");
+        String connectionHeader = headers.getFirst("Connection");
+        keepAlive = http11
+                ? !hasToken(connectionHeader, "close")
+                : hasToken(connectionHeader, "keep-alive");
+
+        InputStream body = requestBody(headers);
+        boolean hasBody = !(body instanceof FixedLengthInputStream fixed) || fixed.remaining() > 0;
+        if (http11 && hasBody && hasToken(headers.getFirst("Expect"), "100-continue")) {
+            out.write(CONTINUE);
+            out.flush();
+        }
+
+        VirtualThreadHttpContext context = server.findContext(uri.getPath());
+        ResponseBody response = new ResponseBody(out, buffers);
+        VirtualThreadHttpExchange exchange = new VirtualThreadHttpExchange(this, method, uri, protocol, headers,
+                context, body, response);
+
+        try {
+            if (context == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(404, NOT_FOUND.length);
+                exchange.getResponseBody().write(NOT_FOUND);
+            } else {
+                new Filter.Chain(context.getFilters(), context.getHandler()).doFilter(exchange);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.log(System.Logger.Level.DEBUG, "Ошибка обработки " + method + " " + uri, e);
+            if (!response.isStarted()) {
+                keepAlive = false;
+                exchange.sendResponseHeaders(500, -1);
+            }
+            return false;
+        }
+        return finish(exchange);
+    }
+
+    private Headers readHeaders() throws IOException {
+        Headers headers = new Headers();
+        int total = 0;
+        String line;
+        while ((line = in.readLine(MAX_HEADER_BYTES)) != null && !line.isEmpty()) {
+            total += line.length();
+            if (total > MAX_HEADER_BYTES || headers.size() >= MAX_HEADERS) {
+                throw new HttpProtocolException(431, "Слишком большие заголовки запроса");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new HttpProtocolException(400, "Некорректный заголовок");
+            }
+            headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+        if (line == null) {
+            throw new HttpProtocolException(400, "Запрос оборван в заголовках");
+        }
+        return headers;
+    }
+
+    private InputStream requestBody(Headers headers) throws IOException {
+        String transferEncoding = headers.getFirst("Transfer-Encoding");
+        if (transferEncoding != null) {
+            if (!hasToken(transferEncoding, "chunked")) {
+                throw new HttpProtocolException(501, "Неподдерживаемый Transfer-Encoding");
+            }
+            return new ChunkedInputStream(in);
+        }
+        String contentLength = headers.getFirst("Content-Length");
+        if (contentLength == null) {
+            return new FixedLengthInputStream(in, 0);
+        }
+        long length;
+        try {
+            length = Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpProtocolException(400, "Некорректный Content-Length");
+        }
+        if (length < 0) {
+            throw new HttpProtocolException(400, "Некорректный Content-Length");
+        }
+        return new FixedLengthInputStream(in, length);
+    }
+
+    // Поведение sendResponseHeaders как у JDK-сервера: длина > 0 - ровно столько байт,
+    // 0 - chunked, -1 - без тела
+    void writeHead(VirtualThreadHttpExchange exchange, int status, long length) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.remove("Content-Length");
+        headers.remove("Transfer-Encoding");
+        if (hasToken(headers.getFirst("Connection"), "close")) {
+            keepAlive = false;
+        }
+
+        boolean http11 = exchange.getProtocol().equals("HTTP/1.1");
+        boolean bodyless = status < 200 || status == 204 || status == 304;
+        ResponseBody.Mode mode;
+        if (bodyless || exchange.getRequestMethod().equals("HEAD")) {
+            mode = ResponseBody.Mode.EMPTY;
+            if (!bodyless && length > 0) {
+                headers.set("Content-Length", Long.toString(length));
+            }
+        } else if (length > 0) {
+            mode = ResponseBody.Mode.FIXED;
+            headers.set("Content-Length", Long.toString(length));
+        } else if (length == 0 && http11) {
+            mode = ResponseBody.Mode.CHUNKED;
+            headers.set("Transfer-Encoding", "chunked");
+        } else if (length == 0) {
+            mode = ResponseBody.Mode.UNTIL_CLOSE;
+            keepAlive = false;
+        } else {
+            mode = ResponseBody.Mode.EMPTY;
+            headers.set("Content-Length", "0");
+        }
+        if (!keepAlive) {
+            headers.set("Connection", "close");
+        } else if (!http11) {
+            headers.set("Connection", "keep-alive");
+        }
+
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+        head.append("Date: ").append(currentDate()).append("\r\n");
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        exchange.rawResponseBody.start(mode, length);
+    }
+
+    // Завершает ответ и дочитывает остаток тела запроса; true - соединение можно использовать дальше
+    private boolean finish(VirtualThreadHttpExchange exchange) throws IOException {
+        ResponseBody response = exchange.rawResponseBody;
+        if (!response.isStarted()) {
+            // обработчик не ответил
+            keepAlive = false;
+            exchange.sendResponseHeaders(500, -1);
+        }
+        try {
+            response.close();
+        } catch (IOException e) {
+            return false;
+        }
+        if (!keepAlive || !response.isComplete()) {
+            return false;
+        }
+        return drain(exchange.rawRequestBody);
+    }
+
+    private static boolean drain(InputStream body) throws IOException {
+        if (body instanceof FixedLengthInputStream fixed) {
+            if (fixed.remaining() == 0) {
+                return true;
+            }
+            if (fixed.remaining() > MAX_DRAIN_BYTES) {
+                return false;
+            }
+        }
+        byte[] scratch = new byte[4096];
+        long drained = 0;
+        int n;
+        while ((n = body.read(scratch)) >= 0) {
+            drained += n;
+            if (drained > MAX_DRAIN_BYTES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Закрытие сокета с непрочитанными данными отправляет RST, и клиент, ещё передающий тело
+    // (например, после 413), теряет уже отправленный ответ. Поэтому сначала закрывается только
+    // запись, а вход дочитывается до конца или до истечения LINGER_MILLIS.
+    private void lingerClose() throws IOException {
+        if (server.isStopping()) {
+            return;
+        }
+        socket.shutdownOutput();
+        socket.setSoTimeout(LINGER_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MILLIS);
+        byte[] scratch = new byte[8192];
+        while (in.read(scratch) >= 0 && System.nanoTime() < deadline) {
+            // отбрасываем
+        }
+    }
+
+    private void rejectQuietly(int status) {
+        try {
+            String head = "HTTP/1.1 " + status + " " + reason(status) + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+        } catch (IOException e) {
+            // клиент уже ушёл
+        }
+    }
+
+    private static boolean hasToken(String header, String token) {
+        if (header == null) {
+            return false;
+        }
+        for (String part : header.split(",")) {
+            if (part.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate cached = date;
+        if (cached.second != second) {
+            cached = new CachedDate(second, HTTP_DATE.format(Instant.ofEpochSecond(second)));
+            date = cached;
+        }
+        return cached.value;
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 204 -> "No Content";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 410 -> "Gone";
+            case 413 -> "Payload Too Large";
+            case 415 -> "Unsupported Media Type";
+            case 422 -> "Unprocessable Entity";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            default -> "Status " + status;
+        };
+    }
+
+    boolean isBusy() {
+        return busy;
+    }
+
+    InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) socket.getRemoteSocketAddress();
+    }
+
+    InetSocketAddress localAddress() {
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    // Вызывается сервером при остановке: поток соединения получит ошибку чтения и завершится сам
+    void abort() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // закрываем в любом случае
+        }
+    }
+
+    private void close() {
+        abort();
+        if (in != null) {
+            in.release();
+        }
+        if (out != null) {
+            out.release();
+        }
+        server.connectionClosed(this);
+    }
+}
@@ -0,0 +1,18 @@
+package com.moviehub.http;
+
+import java.io.IOException;
+
+// Запрос нельзя разобрать: соединение закрывается после ответа со статусом status
+final class HttpProtocolException extends IOException {
+    final int status;
+
+    HttpProtocolException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
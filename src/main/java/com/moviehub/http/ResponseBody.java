@@ -0,0 +1,135 @@
+package com.moviehub.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Тело ответа. Объект существует с начала обмена (фильтры оборачивают его до отправки заголовков),
+// а способ передачи выбирается в sendResponseHeaders. flush() ничего не отправляет: данные уходят
+// по заполнении буфера и при закрытии, чтобы сброс после каждой записи сериализатора
+// не превращался в системный вызов на каждый элемент.
+final class ResponseBody extends OutputStream {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    enum Mode {
+        PENDING,
+        EMPTY,
+        FIXED,
+        CHUNKED,
+        // HTTP/1.0 без длины: конец тела - закрытие соединения
+        UNTIL_CLOSE
+    }
+
+    private final ConnectionOutput out;
+    private final BufferPool pool;
+    private Mode mode = Mode.PENDING;
+    private long remaining;
+    private byte[] chunk;
+    private int chunkLength;
+    private boolean closed;
+    private boolean incomplete;
+
+    ResponseBody(ConnectionOutput out, BufferPool pool) {
+        this.out = out;
+        this.pool = pool;
+    }
+
+    void start(Mode mode, long length) {
+        this.mode = mode;
+        this.remaining = length;
+        if (mode == Mode.CHUNKED) {
+            chunk = pool.acquire();
+        }
+    }
+
+    boolean isStarted() {
+        return mode != Mode.PENDING;
+    }
+
+    // Ответ передан полностью и соединение можно использовать дальше
+    boolean isComplete() {
+        return closed && !incomplete && mode != Mode.UNTIL_CLOSE;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Поток ответа закрыт");
+        }
+        switch (mode) {
+            case PENDING -> throw new IOException("Заголовки ответа ещё не отправлены");
+            case EMPTY -> {
+                if (len > 0) {
+                    throw new IOException("У этого ответа нет тела");
+                }
+            }
+            case FIXED -> {
+                if (len > remaining) {
+                    incomplete = true;
+                    throw new IOException("Записано больше объявленной длины ответа");
+                }
+                out.write(b, off, len);
+                remaining -= len;
+            }
+            case UNTIL_CLOSE -> out.write(b, off, len);
+            case CHUNKED -> writeChunked(b, off, len);
+        }
+    }
+
+    private void writeChunked(byte[] b, int off, int len) throws IOException {
+        if (chunkLength == 0 && len >= chunk.length) {
+            emitChunk(b, off, len);
+            return;
+        }
+        while (len > 0) {
+            int n = Math.min(len, chunk.length - chunkLength);
+            System.arraycopy(b, off, chunk, chunkLength, n);
+            chunkLength += n;
+            off += n;
+            len -= n;
+            if (chunkLength == chunk.length) {
+                emitChunk(chunk, 0, chunkLength);
+                chunkLength = 0;
+            }
+        }
+    }
+
+    private void emitChunk(byte[] b, int off, int len) throws IOException {
+        out.write(Integer.toHexString(len).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(b, off, len);
+        out.write(CRLF);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (mode == Mode.CHUNKED) {
+            try {
+                if (chunkLength > 0) {
+                    emitChunk(chunk, 0, chunkLength);
+                }
+                out.write(LAST_CHUNK);
+            } finally {
+                pool.release(chunk);
+                chunk = null;
+            }
+        } else if (mode == Mode.FIXED && remaining > 0) {
+            incomplete = true;
+            throw new IOException("Записано меньше объявленной длины ответа");
+        }
+    }
+}
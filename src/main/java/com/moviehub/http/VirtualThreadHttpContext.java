@@ -0,0 +1,75 @@
+package com.moviehub.http;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+final class VirtualThreadHttpContext extends HttpContext {
+    private final String path;
+    private final VirtualThreadHttpServer server;
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private volatile HttpHandler handler;
+
+    VirtualThreadHttpContext(String path, VirtualThreadHttpServer server, HttpHandler handler) {
+        this.path = path;
+        this.server = server;
+        this.handler = handler;
+    }
+
+    @Override
+    public HttpHandler getHandler() {
+        return handler;
+    }
+
+    @Override
+    public void setHandler(HttpHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException("Обработчик не задан");
+        }
+        if (this.handler != null) {
+            throw new IllegalArgumentException("Обработчик контекста уже задан");
+        }
+        this.handler = handler;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public HttpServer getServer() {
+        return server;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public List<Filter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public Authenticator setAuthenticator(Authenticator auth) {
+        if (auth != null) {
+            throw new UnsupportedOperationException("Аутентификация не поддерживается");
+        }
+        return null;
+    }
+
+    @Override
+    public Authenticator getAuthenticator() {
+        return null;
+    }
+}
@@ -0,0 +1,208 @@
+package com.moviehub.http;
+
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// HTTP/1.1-сервер с виртуальным потоком на соединение: keep-alive, конвейерные запросы,
+// пул буферов и таймауты простоя и чтения. Реализует API com.sun.net.httpserver, поэтому
+// контексты, фильтры и обработчики те же, что у JDK-сервера. Обработчик выполняется прямо
+// на потоке соединения: исполнитель из setExecutor не используется.
+public class VirtualThreadHttpServer extends HttpServer {
+    private static final System.Logger log = System.getLogger(VirtualThreadHttpServer.class.getName());
+    private static final long ACCEPT_RETRY_MILLIS = 100;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int POOLED_BUFFERS = 1024;
+
+    private final int idleTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final BufferPool buffers = new BufferPool(BUFFER_SIZE, POOLED_BUFFERS);
+    private final List<VirtualThreadHttpContext> contexts = new CopyOnWriteArrayList<>();
+    private final Set<HttpConnection> connections = ConcurrentHashMap.newKeySet();
+    private final ThreadFactory connectionThreads = Thread.ofVirtual().name("http-conn-", 0).factory();
+    private ServerSocket listener;
+    private Executor executor;
+    private volatile boolean stopping;
+
+    public VirtualThreadHttpServer(int idleTimeoutMillis, int readTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public static VirtualThreadHttpServer create(InetSocketAddress address, int backlog, int idleTimeoutMillis,
+                                                 int readTimeoutMillis) throws IOException {
+        VirtualThreadHttpServer server = new VirtualThreadHttpServer(idleTimeoutMillis, readTimeoutMillis);
+        server.bind(address, backlog);
+        return server;
+    }
+
+    @Override
+    public void bind(InetSocketAddress addr, int backlog) throws IOException {
+        if (listener != null) {
+            throw new IllegalStateException("Сервер уже привязан к адресу");
+        }
+        ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(addr, backlog);
+        listener = socket;
+    }
+
+    @Override
+    public void start() {
+        if (listener == null) {
+            throw new IllegalStateException("Сервер не привязан к адресу");
+        }
+        Thread.ofVirtual().name("http-accept").start(this::acceptLoop);
+    }
+
+    private void acceptLoop() {
+        while (!stopping) {
+            Socket socket;
+            try {
+                socket = listener.accept();
+            } catch (IOException e) {
+                if (stopping) {
+                    return;
+                }
+                // например, исчерпаны дескрипторы: повтор без паузы только загрузит процессор
+                log.log(System.Logger.Level.WARNING, "Ошибка приёма соединения", e);
+                try {
+                    Thread.sleep(ACCEPT_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            HttpConnection connection = new HttpConnection(this, socket, buffers);
+            connections.add(connection);
+            connectionThreads.newThread(connection).start();
+        }
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    // Простаивающие соединения закрываются сразу, занятые - после ответа или по истечении delay секунд
+    @Override
+    public void stop(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Отрицательная задержка остановки");
+        }
+        stopping = true;
+        try {
+            listener.close();
+        } catch (IOException e) {
+            // слушающий сокет закрываем в любом случае
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(delay);
+        while (true) {
+            boolean anyBusy = false;
+            for (HttpConnection connection : connections) {
+                if (connection.isBusy()) {
+                    anyBusy = true;
+                } else {
+                    connection.abort();
+                }
+            }
+            if (!anyBusy || System.nanoTime() >= deadline) {
+                break;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (HttpConnection connection : connections) {
+            connection.abort();
+        }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Путь контекста должен начинаться с /");
+        }
+        for (VirtualThreadHttpContext context : contexts) {
+            if (context.getPath().equals(path)) {
+                throw new IllegalArgumentException("Контекст " + path + " уже существует");
+            }
+        }
+        VirtualThreadHttpContext context = new VirtualThreadHttpContext(path, this, handler);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public HttpContext createContext(String path) {
+        return createContext(path, null);
+    }
+
+    @Override
+    public void removeContext(String path) {
+        if (!contexts.removeIf(context -> context.getPath().equals(path))) {
+            throw new IllegalArgumentException("Контекст " + path + " не найден");
+        }
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        if (!contexts.remove(context)) {
+            throw new IllegalArgumentException("Контекст " + context.getPath() + " не найден");
+        }
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) listener.getLocalSocketAddress();
+    }
+
+    // Как у JDK-сервера: контекст с самым длинным путём, являющимся префиксом пути запроса
+    VirtualThreadHttpContext findContext(String path) {
+        VirtualThreadHttpContext best = null;
+        for (VirtualThreadHttpContext context : contexts) {
+            if (path != null && path.startsWith(context.getPath()) && context.getHandler() != null
+                    && (best == null || context.getPath().length() > best.getPath().length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    boolean isStopping() {
+        return stopping;
+    }
+
+    int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    void connectionClosed(HttpConnection connection) {
+        connections.remove(connection);
+    }
+}
@@ -0,0 +1,142 @@
+package com.moviehub.metrics;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+// Стоит первым в цепочке, чтобы учитывать и ответы других фильтров (например, 503 при перегрузке)
+public class MetricsFilter extends Filter {
+    private final RequestMetrics metrics;
+
+    public MetricsFilter(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        long started = System.nanoTime();
+        CountingInputStream in = new CountingInputStream(ex.getRequestBody());
+        CountingOutputStream out = new CountingOutputStream(ex.getResponseBody());
+        ex.setStreams(in, out);
+
+        try {
+            chain.doFilter(ex);
+        } finally {
+            metrics.record(methodOf(ex.getRequestMethod()), routeOf(ex.getRequestURI()), ex.getResponseCode(),
+                    System.nanoTime() - started, in.count, out.count);
+        }
+    }
+
+    // Ограниченный набор значений меток: иначе произвольный метод или id в пути раздувают число рядов
+    static String methodOf(String method) {
+        return switch (method) {
+            case "GET", "POST", "DELETE", "PUT", "PATCH", "HEAD", "OPTIONS" -> method;
+            default -> "OTHER";
+        };
+    }
+
+    static String routeOf(URI uri) {
+        String path = uri.getPath();
+        String query = uri.getRawQuery();
+
+        if (path.equals("/movies") || path.equals("/movies/")) {
+            if (query == null || query.isEmpty()) {
+                return "/movies";
+            }
+            if (hasParam(query, "ids")) {
+                return "/movies?ids";
+            }
+            if (hasParam(query, "year")) {
+                return "/movies?year";
+            }
+            if (hasParam(query, "titlePrefix") || hasParam(query, "sort") || hasParam(query, "order")) {
+                return "/movies?query";
+            }
+            if (hasParam(query, "yearFrom") || hasParam(query, "yearTo")) {
+                return "/movies?yearRange";
+            }
+            if (hasParam(query, "q")) {
+                return "/movies?q";
+            }
+            if (hasParam(query, "after") || hasParam(query, "limit")) {
+                return "/movies?page";
+            }
+            return "/movies";
+        }
+        if (path.equals("/movies/bulk") || path.equals("/movies/batch") || path.equals("/movies/changes")
+                || path.equals("/movies/stats")) {
+            return path;
+        }
+        if (path.startsWith("/movies/") && path.indexOf('/', "/movies/".length()) < 0) {
+            return "/movies/{id}";
+        }
+        return "other";
+    }
+
+    private static boolean hasParam(String query, String name) {
+        for (String pair : query.split("&")) {
+            if (pair.equals(name) || pair.startsWith(name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String description() {
+        return "Считает запросы, время обработки и объём трафика";
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        // FilterOutputStream по умолчанию пишет по одному байту
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.moviehub.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsHandler implements HttpHandler {
+    private static final String CT_PROMETHEUS = "text/plain; version=0.0.4; charset=UTF-8";
+
+    private final RequestMetrics metrics;
+
+    public MetricsHandler(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!ex.getRequestMethod().equalsIgnoreCase("GET")) {
+            ex.getResponseHeaders().set("Allow", "GET");
+            ex.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        StringBuilder text = new StringBuilder(16 * 1024);
+        metrics.writeTo(text);
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        ex.getResponseHeaders().set("Content-Type", CT_PROMETHEUS);
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
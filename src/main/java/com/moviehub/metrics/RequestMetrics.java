@@ -0,0 +1,169 @@
+package com.moviehub.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class RequestMetrics {
+    // Границы корзин для Prometheus, в микросекундах
+    private static final long[] BUCKET_BOUNDS = {
+            250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ConcurrentHashMap<SeriesKey, Series> series = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TrafficKey, Traffic> traffic = new ConcurrentHashMap<>();
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    record SeriesKey(String method, String route, int status) {
+    }
+
+    record TrafficKey(String method, String route) {
+    }
+
+    static final class Series {
+        final LongAdder requests = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    static final class Traffic {
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+    }
+
+    private record Gauge(String name, String help, String type, String labels, LongSupplier value) {
+    }
+
+    public void record(String method, String route, int status, long nanos, long bytesIn, long bytesOut) {
+        Series s = series.computeIfAbsent(new SeriesKey(method, route, status), k -> new Series());
+        s.requests.increment();
+        s.latency.recordNanos(nanos);
+
+        Traffic t = traffic.computeIfAbsent(new TrafficKey(method, route), k -> new Traffic());
+        t.bytesIn.add(bytesIn);
+        t.bytesOut.add(bytesOut);
+    }
+
+    // labels - готовая строка вида a="1",b="2" или пустая
+    public void gauge(String name, String help, String labels, LongSupplier value) {
+        gauges.add(new Gauge(name, help, "gauge", labels, value));
+    }
+
+    public void counter(String name, String help, String labels, LongSupplier value) {
+        gauges.add(new Gauge(name, help, "counter", labels, value));
+    }
+
+    public long requestCount(String method, String route, int status) {
+        Series s = series.get(new SeriesKey(method, route, status));
+        return s == null ? 0 : s.requests.sum();
+    }
+
+    // Текстовый формат Prometheus 0.0.4
+    public void writeTo(Appendable out) throws IOException {
+        Map<SeriesKey, Series> sorted = new TreeMap<>((a, b) -> {
+            int c = a.method().compareTo(b.method());
+            if (c == 0) {
+                c = a.route().compareTo(b.route());
+            }
+            return c != 0 ? c : Integer.compare(a.status(), b.status());
+        });
+        sorted.putAll(series);
+
+        header(out, "moviehub_http_requests_total", "Число обработанных запросов", "counter");
+        for (Map.Entry<SeriesKey, Series> e : sorted.entrySet()) {
+            sample(out, "moviehub_http_requests_total", labels(e.getKey()), e.getValue().requests.sum());
+        }
+
+        header(out, "moviehub_http_request_duration_seconds", "Время обработки запроса", "histogram");
+        List<long[]> snapshots = new ArrayList<>(sorted.size());
+        for (Map.Entry<SeriesKey, Series> e : sorted.entrySet()) {
+            String labels = labels(e.getKey());
+            LatencyHistogram latency = e.getValue().latency;
+            long[] snapshot = latency.snapshot();
+            snapshots.add(snapshot);
+
+            long total = 0;
+            for (long c : snapshot) {
+                total += c;
+            }
+            for (long bound : BUCKET_BOUNDS) {
+                sample(out, "moviehub_http_request_duration_seconds_bucket",
+                        labels + ",le=\"" + seconds(bound) + "\"", LatencyHistogram.countAtMost(snapshot, bound));
+            }
+            sample(out, "moviehub_http_request_duration_seconds_bucket", labels + ",le=\"+Inf\"", total);
+            out.append("moviehub_http_request_duration_seconds_sum{").append(labels).append("} ")
+                    .append(seconds(latency.sumMicros())).append('\n');
+            sample(out, "moviehub_http_request_duration_seconds_count", labels, total);
+        }
+
+        // Квантили с момента запуска - для быстрого взгляда без histogram_quantile
+        header(out, "moviehub_http_request_duration_quantile_seconds",
+                "Квантили времени обработки с момента запуска", "gauge");
+        int i = 0;
+        for (SeriesKey key : sorted.keySet()) {
+            long[] snapshot = snapshots.get(i++);
+            for (double q : QUANTILES) {
+                out.append("moviehub_http_request_duration_quantile_seconds{").append(labels(key))
+                        .append(",quantile=\"").append(String.valueOf(q)).append("\"} ")
+                        .append(seconds(LatencyHistogram.quantileMicros(snapshot, q))).append('\n');
+            }
+        }
+
+        Map<TrafficKey, Traffic> sortedTraffic = new TreeMap<>((a, b) -> {
+            int c = a.method().compareTo(b.method());
+            return c != 0 ? c : a.route().compareTo(b.route());
+        });
+        sortedTraffic.putAll(traffic);
+
+        header(out, "moviehub_http_request_bytes_total", "Байт получено в телах запросов", "counter");
+        for (Map.Entry<TrafficKey, Traffic> e : sortedTraffic.entrySet()) {
+            sample(out, "moviehub_http_request_bytes_total", labels(e.getKey()), e.getValue().bytesIn.sum());
+        }
+        header(out, "moviehub_http_response_bytes_total", "Байт отправлено в телах ответов", "counter");
+        for (Map.Entry<TrafficKey, Traffic> e : sortedTraffic.entrySet()) {
+            sample(out, "moviehub_http_response_bytes_total", labels(e.getKey()), e.getValue().bytesOut.sum());
+        }
+
+        String lastName = null;
+        for (Gauge g : gauges) {
+            if (!g.name().equals(lastName)) {
+                header(out, g.name(), g.help(), g.type());
+                lastName = g.name();
+            }
+            if (g.labels().isEmpty()) {
+                out.append(g.name()).append(' ').append(String.valueOf(g.value().getAsLong())).append('\n');
+            } else {
+                sample(out, g.name(), g.labels(), g.value().getAsLong());
+            }
+        }
+    }
+
+    private static void header(Appendable out, String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(Appendable out, String name, String labels, long value) throws IOException {
+        out.append(name).append('{').append(labels).append("} ").append(String.valueOf(value)).append('\n');
+    }
+
+    private static String labels(SeriesKey key) {
+        return "method=\"" + key.method() + "\",route=\"" + key.route() + "\",status=\"" + key.status() + "\"";
+    }
+
+    private static String labels(TrafficKey key) {
+        return "method=\"" + key.method() + "\",route=\"" + key.route() + "\"";
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+}
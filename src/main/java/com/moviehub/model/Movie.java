@@ -1,7 +1,12 @@
 package com.moviehub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Movie {
     public long id;
     public String title;
     public int year;
+    // Значение счётчика изменений репозитория на момент вставки; в JSON не выводится
+    @JsonIgnore
+    public long version;
 }
@@ -0,0 +1,10 @@
+package com.moviehub.persistence;
+
+public enum FsyncPolicy {
+    // запись подтверждается только после fsync; параллельные записи делят один fsync (group commit)
+    SYNC,
+    // fsync раз в интервал; при сбое теряется не больше интервала подтверждённых записей
+    INTERVAL,
+    // без fsync, сброс на диск на усмотрение ОС
+    NONE
+}
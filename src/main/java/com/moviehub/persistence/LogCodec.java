@@ -0,0 +1,96 @@
+package com.moviehub.persistence;
+
+import com.moviehub.model.Movie;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// Формат записи журнала: [int длина полезной нагрузки][int CRC32][нагрузка],
+// нагрузка: [byte тип][long id] и для ADD ещё [int год][int длина названия][UTF-8 название]
+public final class LogCodec {
+    public static final byte ADD = 1;
+    public static final byte DELETE = 2;
+    public static final byte CLEAR = 3;
+
+    private static final int MAX_PAYLOAD = 1 << 20;
+
+    private LogCodec() {
+    }
+
+    public static byte[] add(Movie movie) {
+        byte[] title = movie.title.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 8 + 4 + 4 + title.length);
+        payload.put(ADD).putLong(movie.id).putInt(movie.year).putInt(title.length).put(title);
+        return frame(payload.array());
+    }
+
+    public static byte[] delete(long id) {
+        ByteBuffer payload = ByteBuffer.allocate(1 + 8);
+        payload.put(DELETE).putLong(id);
+        return frame(payload.array());
+    }
+
+    public static byte[] clear() {
+        ByteBuffer payload = ByteBuffer.allocate(1 + 8);
+        payload.put(CLEAR).putLong(0);
+        return frame(payload.array());
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer framed = ByteBuffer.allocate(8 + payload.length);
+        framed.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        return framed.array();
+    }
+
+    // null - конец потока или оборванная/повреждённая запись (хвост после сбоя)
+    public static Entry read(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 9 || length > MAX_PAYLOAD) {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        int expectedCrc;
+        try {
+            expectedCrc = in.readInt();
+            in.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        byte type = buf.get();
+        long id = buf.getLong();
+        if (type != ADD) {
+            return new Entry(type, id, null);
+        }
+
+        Movie movie = new Movie();
+        movie.id = id;
+        movie.year = buf.getInt();
+        byte[] title = new byte[buf.getInt()];
+        buf.get(title);
+        movie.title = new String(title, StandardCharsets.UTF_8);
+        return new Entry(type, id, movie);
+    }
+
+    public record Entry(byte type, long id, Movie movie) {
+    }
+}
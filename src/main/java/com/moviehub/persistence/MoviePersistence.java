@@ -0,0 +1,184 @@
+package com.moviehub.persistence;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepository;
+import com.moviehub.storage.RepositorySnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Долговременное хранение репозитория: снимок snapshot-G содержит состояние на начало
+// журнала wal-G. При старте загружается последний снимок и проигрываются журналы с
+// поколением >= G. Снимок делается с переключением на новый журнал, после чего старые
+// файлы удаляются.
+public class MoviePersistence implements Closeable {
+    private static final Pattern FILE = Pattern.compile("(wal|snapshot)-(\\d{16})\\.(log|bin)");
+
+    private final Path dir;
+    private final MovieRepository repo;
+    private final WriteAheadLog wal;
+    private final ScheduledExecutorService scheduler;
+    private final long snapshotEveryRecords;
+    private volatile long recordsAtLastSnapshot;
+    private final RecoveryStats recoveryStats;
+
+    private MoviePersistence(Path dir, MovieRepository repo, WriteAheadLog wal, long snapshotEveryRecords,
+                             RecoveryStats recoveryStats) {
+        this.dir = dir;
+        this.repo = repo;
+        this.wal = wal;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        this.recoveryStats = recoveryStats;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("movies-snapshot").daemon(true).factory());
+    }
+
+    // Восстанавливает repo с диска и подключает журнал. В repo не должно быть записей;
+    // базовые сегменты, если они есть, должны быть уже смонтированы.
+    public static MoviePersistence open(Path dir, MovieRepository repo, FsyncPolicy policy,
+                                        long fsyncIntervalMillis, long snapshotEveryRecords) throws IOException {
+        Files.createDirectories(dir);
+        long started = System.nanoTime();
+
+        List<Long> snapshots = generations(dir, "snapshot");
+        List<Long> logs = generations(dir, "wal");
+
+        long base = 0;
+        long restored = 0;
+        if (!snapshots.isEmpty()) {
+            base = snapshots.get(snapshots.size() - 1);
+            RepositorySnapshot snapshot = SnapshotFile.read(SnapshotFile.fileName(dir, base));
+            if (snapshot.baseDetached()) {
+                repo.detachBase();
+            }
+            for (long id : snapshot.deletedBaseIds()) {
+                repo.restoreDeletedBase(id);
+            }
+            for (Movie movie : snapshot.movies()) {
+                repo.restore(movie);
+            }
+            repo.advanceNextId(snapshot.nextId());
+            restored = snapshot.movies().size();
+        }
+
+        long replayed = 0;
+        long lastGeneration = base;
+        for (long generation : logs) {
+            if (generation >= base) {
+                replayed += replay(WriteAheadLog.fileName(dir, generation), repo);
+                lastGeneration = Math.max(lastGeneration, generation);
+            }
+        }
+
+        RecoveryStats stats = new RecoveryStats(restored, replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        WriteAheadLog wal = new WriteAheadLog(dir, lastGeneration + 1, policy, fsyncIntervalMillis);
+        repo.addListener(wal);
+
+        MoviePersistence persistence = new MoviePersistence(dir, repo, wal, snapshotEveryRecords, stats);
+        persistence.deleteOlderThan(base);
+        return persistence;
+    }
+
+    public void scheduleSnapshots(long checkIntervalSeconds) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (wal.appendedRecords() - recordsAtLastSnapshot >= snapshotEveryRecords) {
+                    snapshot();
+                }
+            } catch (IOException e) {
+                System.err.println("Не удалось сохранить снимок: " + e.getMessage());
+            }
+        }, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void snapshot() throws IOException {
+        long generation = wal.generation() + 1;
+        long[] appended = new long[1];
+
+        RepositorySnapshot snapshot = repo.snapshot(() -> {
+            try {
+                wal.rotate(generation);
+                appended[0] = wal.appendedRecords();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        SnapshotFile.write(dir, generation, snapshot);
+        recordsAtLastSnapshot = appended[0];
+        deleteOlderThan(generation);
+    }
+
+    public RecoveryStats recoveryStats() {
+        return recoveryStats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        repo.removeListener(wal);
+        wal.close();
+    }
+
+    private static long replay(Path file, MovieRepository repo) throws IOException {
+        long count = 0;
+        try (InputStream raw = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 256 * 1024));
+            LogCodec.Entry entry;
+            while ((entry = LogCodec.read(in)) != null) {
+                switch (entry.type()) {
+                    case LogCodec.ADD -> repo.restore(entry.movie());
+                    case LogCodec.DELETE -> repo.deleteById(entry.id());
+                    case LogCodec.CLEAR -> repo.clear();
+                    default -> throw new IOException("Неизвестный тип записи журнала: " + entry.type());
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void deleteOlderThan(long generation) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Matcher m = FILE.matcher(file.getFileName().toString());
+                if (m.matches() && Long.parseLong(m.group(2)) < generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static List<Long> generations(Path dir, String prefix) throws IOException {
+        List<Long> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Matcher m = FILE.matcher(file.getFileName().toString());
+                if (m.matches() && m.group(1).equals(prefix)) {
+                    result.add(Long.parseLong(m.group(2)));
+                }
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+
+    public record RecoveryStats(long restoredFromSnapshot, long replayedRecords, long millis) {
+    }
+}
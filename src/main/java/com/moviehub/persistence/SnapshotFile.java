@@ -0,0 +1,126 @@
+package com.moviehub.persistence;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.RepositorySnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Снимок репозитория: [int MAGIC][int VERSION][long nextId][long count],
+// затем count записей [long id][int год][int длина][UTF-8 название],
+// с версии 2 - [boolean baseDetached][long n] и n ID удалённых фильмов базовых сегментов,
+// в конце [long CRC32].
+// Пишется во временный файл и атомарно переименовывается, поэтому виден только целиком;
+// после переименования синхронизируется каталог.
+public final class SnapshotFile {
+    private static final int MAGIC = 0x4D56534E; // "MVSN"
+    private static final int VERSION = 2;
+
+    private SnapshotFile() {
+    }
+
+    public static Path fileName(Path dir, long generation) {
+        return dir.resolve("snapshot-%016d.bin".formatted(generation));
+    }
+
+    public static void write(Path dir, long generation, RepositorySnapshot snapshot) throws IOException {
+        Path target = fileName(dir, generation);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024), crc));
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshot.nextId());
+            out.writeLong(snapshot.movies().size());
+            for (Movie movie : snapshot.movies()) {
+                byte[] title = movie.title.getBytes(StandardCharsets.UTF_8);
+                out.writeLong(movie.id);
+                out.writeInt(movie.year);
+                out.writeInt(title.length);
+                out.write(title);
+            }
+            out.writeBoolean(snapshot.baseDetached());
+            out.writeLong(snapshot.deletedBaseIds().size());
+            for (long id : snapshot.deletedBaseIds()) {
+                out.writeLong(id);
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(dir);
+    }
+
+    // Переименование переживает сбой питания только после fsync каталога. Без него после сбоя
+    // может не оказаться нового снимка, хотя старые снимки и журналы уже удалены.
+    private static void syncDirectory(Path dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public static RepositorySnapshot read(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream raw = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(
+                    new BufferedInputStream(raw, 256 * 1024), crc));
+
+            int version;
+            if (in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+                throw new IOException("Неизвестный формат снимка: " + file);
+            }
+            long nextId = in.readLong();
+            long count = in.readLong();
+
+            List<Movie> movies = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE - 8));
+            for (long i = 0; i < count; i++) {
+                Movie movie = new Movie();
+                movie.id = in.readLong();
+                movie.year = in.readInt();
+                byte[] title = new byte[in.readInt()];
+                in.readFully(title);
+                movie.title = new String(title, StandardCharsets.UTF_8);
+                movies.add(movie);
+            }
+
+            boolean baseDetached = false;
+            List<Long> deletedBaseIds = new ArrayList<>();
+            if (version >= 2) {
+                baseDetached = in.readBoolean();
+                long deleted = in.readLong();
+                for (long i = 0; i < deleted; i++) {
+                    deletedBaseIds.add(in.readLong());
+                }
+            }
+
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Повреждён снимок: " + file);
+            }
+            return new RepositorySnapshot(movies, nextId, deletedBaseIds, baseDetached);
+        }
+    }
+}
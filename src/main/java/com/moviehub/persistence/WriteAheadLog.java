@@ -0,0 +1,236 @@
+package com.moviehub.persistence;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepositoryListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Журнал изменений репозитория. Записи копятся в памяти, отдельный поток пишет их пачками
+// в FileChannel и вызывает fsync согласно FsyncPolicy. Пока идёт fsync одной пачки,
+// следующие записи копятся в новом буфере - так несколько записей делят один fsync.
+public class WriteAheadLog implements MovieRepositoryListener, Closeable {
+    private final Path dir;
+    private final FsyncPolicy policy;
+    private final long intervalMillis;
+
+    // lock защищает буфер и счётчики, ioLock - канал (запись, fsync, смена файла)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final ReentrantLock ioLock = new ReentrantLock();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream(64 * 1024);
+    private long appended;
+    private long durable;
+    private boolean closed;
+    private IOException failure;
+
+    private FileChannel channel;
+    private long generation;
+    private final Thread flusher;
+
+    public WriteAheadLog(Path dir, long generation, FsyncPolicy policy, long intervalMillis) throws IOException {
+        this.dir = dir;
+        this.policy = policy;
+        this.intervalMillis = intervalMillis;
+        this.generation = generation;
+        this.channel = open(dir, generation);
+        this.flusher = Thread.ofPlatform().name("movies-wal-flusher").daemon(true).start(this::flushLoop);
+    }
+
+    public static Path fileName(Path dir, long generation) {
+        return dir.resolve("wal-%016d.log".formatted(generation));
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    public long appendedRecords() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Запись попадает в журнал до изменения памяти: если журнал недоступен, изменение
+    // не происходит, и клиент с ошибкой не увидит фильм, которого нет на диске
+    @Override
+    public void beforeAdd(Movie movie) {
+        append(LogCodec.add(movie));
+    }
+
+    @Override
+    public void beforeDelete(Movie movie) {
+        append(LogCodec.delete(movie.id));
+    }
+
+    @Override
+    public void beforeClear() {
+        append(LogCodec.clear());
+    }
+
+    private void append(byte[] record) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Журнал недоступен", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Журнал закрыт");
+            }
+            pending.write(record, 0, record.length);
+            long lsn = ++appended;
+            hasPending.signal();
+
+            if (policy == FsyncPolicy.SYNC) {
+                while (durable < lsn && failure == null) {
+                    flushed.awaitUninterruptibly();
+                }
+                if (failure != null) {
+                    throw new UncheckedIOException("Не удалось записать журнал", failure);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Закрывает текущий файл журнала и начинает новый. Вызывается, когда в репозиторий
+    // никто не пишет (под эксклюзивной блокировкой снимка), поэтому новых записей нет.
+    public void rotate(long newGeneration) throws IOException {
+        ioLock.lock();
+        try {
+            flushPending(true);
+            channel.close();
+            channel = open(dir, newGeneration);
+            generation = newGeneration;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    hasPending.await();
+                }
+                if (closed && pending.size() == 0) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (policy == FsyncPolicy.INTERVAL) {
+                // даём накопиться пачке за интервал
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            ioLock.lock();
+            try {
+                flushPending(policy != FsyncPolicy.NONE);
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    // Вызывается под ioLock
+    private void flushPending(boolean force) throws IOException {
+        ByteArrayOutputStream batch;
+        long target;
+
+        lock.lock();
+        try {
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            target = appended;
+        } finally {
+            lock.unlock();
+        }
+
+        if (batch.size() > 0) {
+            ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        }
+        batch.reset();
+
+        lock.lock();
+        try {
+            durable = Math.max(durable, target);
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasPending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        ioLock.lock();
+        try {
+            flushPending(policy != FsyncPolicy.NONE);
+            channel.close();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private static FileChannel open(Path dir, long generation) throws IOException {
+        return FileChannel.open(fileName(dir, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
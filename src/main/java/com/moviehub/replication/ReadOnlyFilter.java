@@ -0,0 +1,68 @@
+package com.moviehub.replication;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+// Реплика принимает только чтение: запись отклоняется до разбора тела.
+// POST /movies/batch - тоже чтение (длинный список ID в теле), он пропускается.
+// HEAD обработчик каталога не поддерживает, поэтому в Allow его нет.
+// Пока содержимое подменяется полной копией, чтения получают 503 вместо неполного каталога.
+public class ReadOnlyFilter extends Filter {
+    private static final byte[] BODY = """
+            {
+            "error": "Реплика принимает только чтение"
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SWAPPING_BODY = """
+            {
+            "error": "Реплика загружает полную копию данных"
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final BooleanSupplier swapping;
+
+    public ReadOnlyFilter(BooleanSupplier swapping) {
+        this.swapping = swapping;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        String method = ex.getRequestMethod();
+        boolean batch = ex.getRequestURI().getPath().equals("/movies/batch");
+        boolean read = method.equals("GET") || (method.equals("POST") && batch);
+        if (read) {
+            if (!swapping.getAsBoolean()) {
+                chain.doFilter(ex);
+                return;
+            }
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            ex.getResponseHeaders().set("Retry-After", "1");
+            ex.sendResponseHeaders(503, SWAPPING_BODY.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(SWAPPING_BODY);
+            }
+            return;
+        }
+
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        ex.getResponseHeaders().set("Allow", batch ? "GET, POST" : "GET");
+        String length = ex.getRequestHeaders().getFirst("Content-Length");
+        if ((length != null && !length.equals("0")) || ex.getRequestHeaders().containsKey("Transfer-Encoding")) {
+            ex.getResponseHeaders().set("Connection", "close");
+        }
+        ex.sendResponseHeaders(405, BODY.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(BODY);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Отклоняет запись на реплике";
+    }
+}
@@ -0,0 +1,200 @@
+package com.moviehub.replication;
+
+import com.moviehub.model.Movie;
+import com.moviehub.persistence.LogCodec;
+import com.moviehub.storage.MovieRepository;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Реплика: подключается к первичному узлу, применяет поток изменений к своему репозиторию
+// и переподключается после разрыва, продолжая с последнего применённого номера.
+// Полная копия собирается отдельно и подменяет содержимое репозитория целиком на SNAPSHOT_END:
+// пока она передаётся, реплика отдаёт прежние данные, а не пустой или частичный каталог.
+// Отставание - в номерах событий и в миллисекундах с момента записи последнего применённого
+// события на первичном (часы узлов считаются согласованными: репликация идёт по локальной сети).
+public class ReplicaClient implements Closeable {
+    private static final System.Logger log = System.getLogger(ReplicaClient.class.getName());
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    // Без сообщений (включая heartbeat раз в секунду) дольше этого соединение считается потерянным
+    private static final int READ_TIMEOUT_MILLIS = 5_000;
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final MovieRepository repo;
+    private final InetSocketAddress primary;
+    private volatile long appliedSeq = ReplicationProtocol.NO_STATE;
+    private volatile long appliedMillis;
+    private volatile long primarySeq = ReplicationProtocol.NO_STATE;
+    private volatile boolean connected;
+    // Идёт подмена содержимого репозитория полученной копией
+    private volatile boolean swapping;
+    private volatile boolean closed;
+    private volatile Socket socket;
+
+    private ReplicaClient(MovieRepository repo, InetSocketAddress primary) {
+        this.repo = repo;
+        this.primary = primary;
+    }
+
+    public static ReplicaClient start(MovieRepository repo, InetSocketAddress primary) {
+        ReplicaClient client = new ReplicaClient(repo, primary);
+        Thread.ofVirtual().name("replica").start(client::run);
+        return client;
+    }
+
+    private void run() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (!closed) {
+            try {
+                follow();
+            } catch (IOException e) {
+                // первичный недоступен или соединение разорвано
+            } catch (RuntimeException e) {
+                // испорченная запись или сбой применения: номер не сдвинулся, после
+                // переподключения событие придёт снова
+                log.log(System.Logger.Level.ERROR, "Ошибка применения потока репликации", e);
+            } finally {
+                // соединение успело поработать - следующий разрыв не наследует прежнюю паузу
+                if (connected) {
+                    backoff = INITIAL_BACKOFF_MILLIS;
+                }
+                connected = false;
+            }
+            if (closed) {
+                return;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+        }
+    }
+
+    private void follow() throws IOException {
+        try (Socket s = new Socket()) {
+            socket = s;
+            s.connect(primary, CONNECT_TIMEOUT_MILLIS);
+            s.setSoTimeout(READ_TIMEOUT_MILLIS);
+            s.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            out.writeLong(appliedSeq);
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+
+            // null - копия не передаётся; при разрыве посередине собранная часть отбрасывается,
+            // а прежний номер приведёт к новой копии
+            Map<Long, Movie> snapshot = null;
+            while (!closed) {
+                ReplicationProtocol.Message message = ReplicationProtocol.read(in);
+                connected = true;
+                switch (message.kind()) {
+                    case ReplicationProtocol.SNAPSHOT_START -> snapshot = new LinkedHashMap<>();
+                    case ReplicationProtocol.RECORD -> {
+                        if (snapshot != null) {
+                            stage(snapshot, message.entry());
+                        } else {
+                            apply(message.entry());
+                            markApplied(message);
+                        }
+                    }
+                    case ReplicationProtocol.SNAPSHOT_END -> {
+                        swap(snapshot == null ? List.of() : new ArrayList<>(snapshot.values()));
+                        snapshot = null;
+                        markApplied(message);
+                    }
+                    default -> {
+                        // heartbeat несёт только номер первичного
+                    }
+                }
+                primarySeq = message.primarySeq();
+            }
+        } finally {
+            socket = null;
+        }
+    }
+
+    private void markApplied(ReplicationProtocol.Message message) {
+        appliedMillis = message.millis();
+        appliedSeq = message.seq();
+    }
+
+    private void swap(List<Movie> movies) {
+        swapping = true;
+        try {
+            repo.replaceAll(movies);
+        } finally {
+            swapping = false;
+        }
+    }
+
+    private static void stage(Map<Long, Movie> snapshot, LogCodec.Entry entry) throws IOException {
+        switch (entry.type()) {
+            case LogCodec.ADD -> snapshot.put(entry.movie().id, entry.movie());
+            case LogCodec.DELETE -> snapshot.remove(entry.id());
+            case LogCodec.CLEAR -> snapshot.clear();
+            default -> throw new IOException("Неизвестный тип записи репликации: " + entry.type());
+        }
+    }
+
+    private void apply(LogCodec.Entry entry) throws IOException {
+        switch (entry.type()) {
+            case LogCodec.ADD -> repo.restore(entry.movie());
+            case LogCodec.DELETE -> repo.deleteById(entry.id());
+            case LogCodec.CLEAR -> repo.clear();
+            default -> throw new IOException("Неизвестный тип записи репликации: " + entry.type());
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    // Содержимое репозитория сейчас подменяется копией: чтения могут увидеть неполный каталог
+    public boolean isSwapping() {
+        return swapping;
+    }
+
+    // Номер последнего применённого события первичного; NO_STATE - полная копия ещё не получена
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    // -1 - отставание неизвестно (реплика ещё не синхронизирована)
+    public long lagSeq() {
+        long applied = appliedSeq;
+        long last = primarySeq;
+        if (applied == ReplicationProtocol.NO_STATE || last == ReplicationProtocol.NO_STATE) {
+            return -1;
+        }
+        return Math.max(0, last - applied);
+    }
+
+    public long lagMillis() {
+        long lag = lagSeq();
+        if (lag <= 0) {
+            return lag;
+        }
+        return Math.max(0, System.currentTimeMillis() - appliedMillis);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket s = socket;
+        if (s != null) {
+            s.close();
+        }
+    }
+}
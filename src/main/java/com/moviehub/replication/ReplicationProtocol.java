@@ -0,0 +1,55 @@
+package com.moviehub.replication;
+
+import com.moviehub.persistence.LogCodec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Реплика при подключении отправляет номер последнего применённого события (NO_STATE - состояния нет).
+// Дальше первичный узел шлёт сообщения [byte вид][long seq][long последний seq первичного][long время, мс],
+// за RECORD следует запись в формате журнала LogCodec. Время RECORD - момент записи события на первичном.
+final class ReplicationProtocol {
+    static final byte RECORD = 1;
+    static final byte HEARTBEAT = 2;
+    // Полная копия: RECORD всех фильмов между SNAPSHOT_START и SNAPSHOT_END; реплика копит их
+    // отдельно и заменяет ими содержимое репозитория только на SNAPSHOT_END
+    static final byte SNAPSHOT_START = 3;
+    static final byte SNAPSHOT_END = 4;
+
+    static final long NO_STATE = -1;
+
+    record Message(byte kind, long seq, long primarySeq, long millis, LogCodec.Entry entry) {
+    }
+
+    private ReplicationProtocol() {
+    }
+
+    static void write(DataOutputStream out, byte kind, long seq, long primarySeq, long millis, byte[] record)
+            throws IOException {
+        out.writeByte(kind);
+        out.writeLong(seq);
+        out.writeLong(primarySeq);
+        out.writeLong(millis);
+        if (record != null) {
+            out.write(record);
+        }
+    }
+
+    static Message read(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        long seq = in.readLong();
+        long primarySeq = in.readLong();
+        long millis = in.readLong();
+        LogCodec.Entry entry = null;
+        if (kind == RECORD) {
+            entry = LogCodec.read(in);
+            if (entry == null) {
+                throw new IOException("Повреждённая запись репликации");
+            }
+        } else if (kind != HEARTBEAT && kind != SNAPSHOT_START && kind != SNAPSHOT_END) {
+            throw new IOException("Неизвестный вид сообщения репликации: " + kind);
+        }
+        return new Message(kind, seq, primarySeq, millis, entry);
+    }
+}
@@ -0,0 +1,139 @@
+package com.moviehub.replication;
+
+import com.moviehub.model.Movie;
+import com.moviehub.persistence.LogCodec;
+import com.moviehub.storage.ChangeLog;
+import com.moviehub.storage.MovieRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Первичный узел: отдаёт репликам упорядоченный поток изменений из журнала изменений
+// репозитория (ChangeLog). Реплика, чей номер уже вытеснен из журнала или выдан до перезапуска,
+// сначала получает полную копию. Каждую реплику обслуживает свой виртуальный поток.
+public class ReplicationSource implements Closeable {
+    private static final int BATCH = 1024;
+    private static final long HEARTBEAT_MILLIS = 1000;
+
+    private final MovieRepository repo;
+    private final ServerSocket listener;
+    private final Set<Socket> replicas = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private ReplicationSource(MovieRepository repo, ServerSocket listener) {
+        this.repo = repo;
+        this.listener = listener;
+    }
+
+    // port 0 - свободный порт, выбранный системой
+    public static ReplicationSource start(MovieRepository repo, int port) throws IOException {
+        ServerSocket listener = new ServerSocket();
+        listener.setReuseAddress(true);
+        listener.bind(new InetSocketAddress(port));
+        ReplicationSource source = new ReplicationSource(repo, listener);
+        Thread.ofVirtual().name("replication-accept").start(source::acceptLoop);
+        return source;
+    }
+
+    public int getPort() {
+        return listener.getLocalPort();
+    }
+
+    public int replicaCount() {
+        return replicas.size();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = listener.accept();
+                replicas.add(socket);
+                Thread.ofVirtual().name("replication-" + socket.getRemoteSocketAddress()).start(() -> serve(socket));
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            long cursor = in.readLong();
+            ChangeLog log = repo.getChangeLog();
+
+            while (!closed) {
+                List<ChangeLog.Event> events = cursor == ReplicationProtocol.NO_STATE
+                        ? null
+                        : log.read(cursor, BATCH, HEARTBEAT_MILLIS);
+                if (events == null) {
+                    cursor = sendSnapshot(out, log);
+                    continue;
+                }
+
+                long primarySeq = log.lastSeq();
+                if (events.isEmpty()) {
+                    ReplicationProtocol.write(out, ReplicationProtocol.HEARTBEAT, cursor, primarySeq,
+                            System.currentTimeMillis(), null);
+                }
+                for (ChangeLog.Event event : events) {
+                    ReplicationProtocol.write(out, ReplicationProtocol.RECORD, event.seq(), primarySeq,
+                            event.millis(), encode(event));
+                    cursor = event.seq();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // реплика отключилась или узел останавливается
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replicas.remove(socket);
+        }
+    }
+
+    // Номер читается до обхода: изменения во время обхода придут ещё раз потоком, а их повторное
+    // применение безвредно (restore перезаписывает фильм, удаление отсутствующего ничего не делает)
+    private long sendSnapshot(DataOutputStream out, ChangeLog log) throws IOException {
+        long seq = log.lastSeq();
+        long now = System.currentTimeMillis();
+        ReplicationProtocol.write(out, ReplicationProtocol.SNAPSHOT_START, seq, seq, now, null);
+        for (Movie movie : repo.iterateAll()) {
+            ReplicationProtocol.write(out, ReplicationProtocol.RECORD, seq, seq, now, LogCodec.add(movie));
+        }
+        ReplicationProtocol.write(out, ReplicationProtocol.SNAPSHOT_END, seq, seq, now, null);
+        out.flush();
+        return seq;
+    }
+
+    private static byte[] encode(ChangeLog.Event event) {
+        return switch (event.type()) {
+            case "add" -> LogCodec.add(event.movie());
+            case "delete" -> LogCodec.delete(event.id());
+            case "clear" -> LogCodec.clear();
+            default -> throw new IllegalStateException("Неизвестный тип изменения: " + event.type());
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        listener.close();
+        for (Socket socket : replicas) {
+            socket.close();
+        }
+    }
+}
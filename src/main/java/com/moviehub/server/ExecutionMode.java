@@ -0,0 +1,10 @@
+package com.moviehub.server;
+
+public enum ExecutionMode {
+    // все запросы выполняются на единственном потоке-диспетчере JDK (поведение по умолчанию HttpServer)
+    DISPATCHER,
+    // отдельный виртуальный поток на каждый запрос
+    VIRTUAL,
+    // ограниченный пул платформенных потоков с очередью; при переполнении - 503
+    BOUNDED
+}
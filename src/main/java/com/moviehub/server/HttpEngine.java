@@ -0,0 +1,8 @@
+package com.moviehub.server;
+
+public enum HttpEngine {
+    // com.sun.net.httpserver из JDK; потоки обработки задаёт ExecutionMode
+    JDK,
+    // собственный HTTP/1.1-сервер: виртуальный поток на соединение, keep-alive и конвейер запросов
+    VIRTUAL
+}
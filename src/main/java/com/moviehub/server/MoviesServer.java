@@ -1,23 +1,266 @@
 package com.moviehub.server;
 
+import com.moviehub.admission.AdaptiveConcurrencyLimit;
+import com.moviehub.admission.AdmissionFilter;
+import com.moviehub.admission.RateLimiter;
+import com.moviehub.cache.IdempotencyStore;
+import com.moviehub.cache.LruByteCache;
+import com.moviehub.cache.MovieResponseCache;
+import com.moviehub.cluster.ClusterFilter;
+import com.moviehub.cluster.ClusterNode;
+import com.moviehub.cluster.HashRing;
 import com.moviehub.handler.MoviesHandler;
+import com.moviehub.http.VirtualThreadHttpServer;
+import com.moviehub.metrics.MetricsFilter;
+import com.moviehub.metrics.MetricsHandler;
+import com.moviehub.metrics.RequestMetrics;
+import com.moviehub.persistence.MoviePersistence;
+import com.moviehub.replication.ReadOnlyFilter;
+import com.moviehub.replication.ReplicaClient;
+import com.moviehub.replication.ReplicationSource;
+import com.moviehub.storage.CompactMovieStore;
+import com.moviehub.storage.MovieRepository;
+import com.moviehub.storage.MovieSegment;
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 public class MoviesServer {
     private final HttpServer server;
+    private final ExecutorService executor;
+    private final MovieResponseCache cache;
+    private final IdempotencyStore idempotency;
+    private final MoviePersistence persistence;
+    private final MovieRepository repository;
+    // null - узел не отдаёт поток изменений / не является репликой
+    private final ReplicationSource replicationSource;
+    private final ReplicaClient replica;
+    private final RequestMetrics metrics = new RequestMetrics();
+    private final RateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
 
     public MoviesServer() {
+        this(ServerConfig.fromSystemProperties());
+    }
+
+    public MoviesServer(ServerConfig config) {
+        this(config, MoviesHandler.getRepository());
+    }
+
+    // Свой репозиторий - для нескольких серверов в одном процессе (узлы кластера в тестах)
+    public MoviesServer(ServerConfig config, MovieRepository repository) {
+        this.repository = repository;
         try {
-            server = HttpServer.create(new InetSocketAddress(8080), 0);
-            server.createContext("/movies", new MoviesHandler());
+            mountSegments(config);
+            persistence = openPersistence(config);
+
+            InetSocketAddress address = new InetSocketAddress(config.getPort());
+            if (config.getEngine() == HttpEngine.VIRTUAL) {
+                // обработчики выполняются на потоках соединений, ExecutionMode не применяется
+                server = VirtualThreadHttpServer.create(address, config.getBacklog(),
+                        config.getIdleTimeoutMillis(), config.getReadTimeoutMillis());
+                executor = null;
+            } else {
+                server = HttpServer.create(address, config.getBacklog());
+                executor = ServerExecutors.create(config);
+                server.setExecutor(executor);
+            }
+
+            cache = config.isCacheEnabled() ? new MovieResponseCache(config.getCacheMaxBytes()) : null;
+            if (cache != null) {
+                repository.addListener(cache);
+            }
+
+            idempotency = config.getIdempotencyMaxKeys() > 0
+                    ? new IdempotencyStore(config.getIdempotencyMaxKeys(), config.getIdempotencyTtlSeconds())
+                    : null;
+
+            HttpContext movies = server.createContext("/movies", new MoviesHandler(repository,
+                    config.getMaxBodyBytes(), cache, config.getCompressionMinBytes(), idempotency));
+            movies.getFilters().add(new MetricsFilter(metrics));
+            replica = config.getReplicationPrimary() != null
+                    ? ReplicaClient.start(repository, parseAddress(config.getReplicationPrimary()))
+                    : null;
+            if (replica != null) {
+                movies.getFilters().add(new ReadOnlyFilter(replica::isSwapping));
+            }
+            replicationSource = config.getReplicationPort() >= 0
+                    ? ReplicationSource.start(repository, config.getReplicationPort())
+                    : null;
+
+            rateLimiter = config.getReadRateLimit() > 0 || config.getWriteRateLimit() > 0
+                    ? new RateLimiter(config.getReadRateLimit(), config.getWriteRateLimit(),
+                    config.getRateLimitBurstSeconds())
+                    : null;
+            concurrencyLimit = config.isAdaptiveConcurrency()
+                    ? new AdaptiveConcurrencyLimit(config.getConcurrencyLimitMin(),
+                    config.getConcurrencyLimitInitial(), config.getConcurrencyLimitMax())
+                    : null;
+            if (rateLimiter != null || concurrencyLimit != null) {
+                movies.getFilters().add(new AdmissionFilter(rateLimiter, concurrencyLimit));
+            }
+            movies.getFilters().add(new OverloadFilter());
+            ClusterFilter cluster = clusterFilter(config);
+            if (cluster != null) {
+                movies.getFilters().add(cluster);
+            }
+
+            registerGauges();
+            server.createContext("/metrics", new MetricsHandler(metrics));
         } catch (IOException e) {
             throw new RuntimeException("Не удалось создать HTTP-сервер", e);
         }
     }
 
+    // Узел выдаёт только ID, которыми владеет на кольце, поэтому новые фильмы всегда пишутся
+    // локально, а ID разных узлов не пересекаются без какой-либо координации
+    private ClusterFilter clusterFilter(ServerConfig config) {
+        if (config.getClusterNodes().isEmpty()) {
+            return null;
+        }
+        HashRing ring = new HashRing(config.getClusterNodes());
+        ClusterNode self = config.getClusterNodes().stream()
+                .filter(node -> node.name().equals(config.getClusterSelf()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Узел " + config.getClusterSelf() + " отсутствует в списке узлов кластера"));
+        repository.setOwnedIds(id -> ring.ownerOf(id).equals(self));
+        return new ClusterFilter(ring, self, repository, Duration.ofMillis(config.getClusterTimeoutMillis()),
+                config.getCompressionMinBytes(), config.getMaxBodyBytes());
+    }
+
+    private static InetSocketAddress parseAddress(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Ожидается host:port первичного узла: " + hostPort);
+        }
+        return new InetSocketAddress(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+    }
+
+    private void mountSegments(ServerConfig config) throws IOException {
+        for (Path file : config.getSegments()) {
+            long started = System.nanoTime();
+            MovieSegment segment = MovieSegment.open(file);
+            repository.mountSegment(segment);
+            System.out.println("Подключён сегмент " + file + ": " + segment.count() + " фильмов за "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " мс");
+        }
+    }
+
+    private MoviePersistence openPersistence(ServerConfig config) throws IOException {
+        if (config.getDataDir() == null) {
+            return null;
+        }
+
+        MoviePersistence persistence = MoviePersistence.open(config.getDataDir(), repository,
+                config.getFsyncPolicy(), config.getFsyncIntervalMillis(), config.getSnapshotEveryRecords());
+        persistence.scheduleSnapshots(config.getSnapshotCheckSeconds());
+
+        MoviePersistence.RecoveryStats stats = persistence.recoveryStats();
+        System.out.println("Восстановлено фильмов из снимка: " + stats.restoredFromSnapshot()
+                + ", записей журнала: " + stats.replayedRecords() + " за " + stats.millis() + " мс");
+        return persistence;
+    }
+
+    private void registerGauges() {
+        metrics.gauge("moviehub_movies", "Фильмов в каталоге", "", repository::size);
+        metrics.gauge("moviehub_segments", "Смонтированных сегментов", "", () -> repository.getSegments().size());
+        if (repository.getStore() instanceof CompactMovieStore compact) {
+            metrics.gauge("moviehub_store_heap_bytes", "Оценка занятой хранилищем кучи", "", compact::heapBytes);
+        }
+
+        if (rateLimiter != null) {
+            metrics.gauge("moviehub_ratelimit_clients", "Отслеживаемых пар клиент-метод", "",
+                    rateLimiter::trackedClients);
+        }
+        if (concurrencyLimit != null) {
+            metrics.gauge("moviehub_concurrency_limit", "Текущий предел параллельности", "",
+                    concurrencyLimit::getLimit);
+            metrics.gauge("moviehub_concurrency_inflight", "Запросов в обработке", "",
+                    concurrencyLimit::getInflight);
+        }
+
+        if (replicationSource != null) {
+            metrics.gauge("moviehub_replication_replicas", "Подключённых реплик", "",
+                    replicationSource::replicaCount);
+        }
+        if (replica != null) {
+            metrics.gauge("moviehub_replication_connected", "Реплика подключена к первичному узлу", "",
+                    () -> replica.isConnected() ? 1 : 0);
+            metrics.gauge("moviehub_replication_lag_events", "Отставание реплики в событиях (-1 - не синхронизирована)",
+                    "", replica::lagSeq);
+            metrics.gauge("moviehub_replication_lag_ms", "Отставание реплики в миллисекундах", "",
+                    replica::lagMillis);
+        }
+
+        if (idempotency != null) {
+            metrics.gauge("moviehub_idempotency_keys", "Запомненных ключей идемпотентности", "",
+                    idempotency::size);
+            metrics.gauge("moviehub_idempotency_bytes", "Оценка памяти под ключи идемпотентности", "",
+                    idempotency::bytes);
+            metrics.counter("moviehub_idempotency_replays_total", "Повторов запросов с известным ключом", "",
+                    idempotency::replays);
+            metrics.counter("moviehub_idempotency_evictions_total", "Ключей, вытесненных до истечения срока", "",
+                    idempotency::evictions);
+        }
+
+        if (cache != null) {
+            cacheMetric("moviehub_cache_entries", "Записей в кэше ответов", false, LruByteCache::size);
+            cacheMetric("moviehub_cache_bytes", "Байт в кэше ответов", false, LruByteCache::bytes);
+            cacheMetric("moviehub_cache_hits_total", "Попаданий в кэш ответов", true, LruByteCache::hits);
+            cacheMetric("moviehub_cache_misses_total", "Промахов кэша ответов", true, LruByteCache::misses);
+            cacheMetric("moviehub_cache_evictions_total", "Вытеснений из кэша ответов", true, LruByteCache::evictions);
+        }
+    }
+
+    private void cacheMetric(String name, String help, boolean counter, ToLongFunction<LruByteCache<?>> value) {
+        cacheMetric(name, help, counter, "byId", cache.byId(), value);
+        cacheMetric(name, help, counter, "byYear", cache.byYear(), value);
+    }
+
+    private void cacheMetric(String name, String help, boolean counter, String label, LruByteCache<?> c,
+                             ToLongFunction<LruByteCache<?>> value) {
+        String labels = "cache=\"" + label + "\"";
+        if (counter) {
+            metrics.counter(name, help, labels, () -> value.applyAsLong(c));
+        } else {
+            metrics.gauge(name, help, labels, () -> value.applyAsLong(c));
+        }
+    }
+
+    // Фактический порт: при port(0) система выбирает свободный
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public MovieRepository getRepository() {
+        return repository;
+    }
+
+    public ReplicationSource getReplicationSource() {
+        return replicationSource;
+    }
+
+    public ReplicaClient getReplica() {
+        return replica;
+    }
+
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    public MovieResponseCache getCache() {
+        return cache;
+    }
+
     public void start() {
         server.start();
         System.out.println("Сервер запущен");
@@ -25,6 +268,31 @@ public class MoviesServer {
 
     public void stop() {
         server.stop(0);
+        if (cache != null) {
+            repository.removeListener(cache);
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        closeQuietly(replica);
+        closeQuietly(replicationSource);
+        if (persistence != null) {
+            try {
+                persistence.close();
+            } catch (IOException e) {
+                System.err.println("Не удалось закрыть журнал: " + e.getMessage());
+            }
+        }
         System.out.println("Сервер остановлен");
     }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                System.err.println("Не удалось остановить репликацию: " + e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package com.moviehub.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class OverloadFilter extends Filter {
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+    private static final byte[] BODY = """
+            {
+            "error": "Сервер перегружен"
+            }
+            """.getBytes(StandardCharsets.UTF_8);
+
+    static void runRejected(Runnable task) {
+        REJECTED.set(Boolean.TRUE);
+        try {
+            task.run();
+        } finally {
+            REJECTED.remove();
+        }
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        if (REJECTED.get() == null) {
+            chain.doFilter(ex);
+            return;
+        }
+
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        ex.getResponseHeaders().set("Retry-After", "1");
+        ex.getResponseHeaders().set("Connection", "close");
+        ex.sendResponseHeaders(503, BODY.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(BODY);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Отклоняет запросы, не поместившиеся в очередь пула обработчиков";
+    }
+}
@@ -0,0 +1,421 @@
+package com.moviehub.server;
+
+import com.moviehub.cache.IdempotencyStore;
+import com.moviehub.cache.MovieResponseCache;
+import com.moviehub.cluster.ClusterNode;
+import com.moviehub.handler.BaseHttpHandler;
+import com.moviehub.handler.MoviesHandler;
+import com.moviehub.persistence.FsyncPolicy;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class ServerConfig {
+    private int port = 8080;
+    private int backlog = 0;
+    private HttpEngine engine = HttpEngine.JDK;
+    private ExecutionMode executionMode = ExecutionMode.VIRTUAL;
+    // таймауты соединения движка VIRTUAL: ожидание следующего запроса и чтение начатого
+    private int idleTimeoutMillis = 60_000;
+    private int readTimeoutMillis = 10_000;
+    private int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+    private int queueCapacity = 1024;
+    private int maxBodyBytes = MoviesHandler.DEFAULT_MAX_BODY_BYTES;
+    private boolean cacheEnabled = true;
+    private long cacheMaxBytes = MovieResponseCache.DEFAULT_MAX_BYTES;
+    // ключи Idempotency-Key для POST /movies; 0 - заголовок игнорируется
+    private int idempotencyMaxKeys = IdempotencyStore.DEFAULT_MAX_KEYS;
+    private long idempotencyTtlSeconds = IdempotencyStore.DEFAULT_TTL_SECONDS;
+    // отрицательное значение - сжатие ответов выключено
+    private int compressionMinBytes = BaseHttpHandler.DEFAULT_COMPRESSION_MIN_BYTES;
+    // запросов в секунду с одного адреса на метод; 0 - без ограничения
+    private double readRateLimit = 0;
+    private double writeRateLimit = 0;
+    private double rateLimitBurstSeconds = 1;
+    private boolean adaptiveConcurrency = false;
+    private int concurrencyLimitMin = 8;
+    private int concurrencyLimitInitial = 64;
+    private int concurrencyLimitMax = 1024;
+    // пустой список - одиночный узел без шардирования
+    private List<ClusterNode> clusterNodes = List.of();
+    private String clusterSelf;
+    private long clusterTimeoutMillis = 2_000;
+    // порт, на котором первичный узел отдаёт поток изменений репликам; -1 - выключено, 0 - любой свободный
+    private int replicationPort = -1;
+    // host:port первичного узла; задан - узел работает репликой только для чтения
+    private String replicationPrimary;
+    // базовые сегменты каталога только для чтения, монтируются по порядку
+    private List<Path> segments = List.of();
+    // null - хранение только в памяти
+    private Path dataDir;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.SYNC;
+    private long fsyncIntervalMillis = 10;
+    private long snapshotEveryRecords = 100_000;
+    private long snapshotCheckSeconds = 10;
+
+    public static ServerConfig fromSystemProperties() {
+        ServerConfig config = new ServerConfig();
+        config.port = Integer.getInteger("moviehub.port", config.port);
+        config.backlog = Integer.getInteger("moviehub.backlog", config.backlog);
+        config.poolSize = Integer.getInteger("moviehub.pool.size", config.poolSize);
+        config.queueCapacity = Integer.getInteger("moviehub.pool.queue", config.queueCapacity);
+        config.idleTimeoutMillis = Integer.getInteger("moviehub.http.idle-timeout-ms", config.idleTimeoutMillis);
+        config.readTimeoutMillis = Integer.getInteger("moviehub.http.read-timeout-ms", config.readTimeoutMillis);
+        config.maxBodyBytes = Integer.getInteger("moviehub.body.max-bytes", config.maxBodyBytes);
+        config.cacheMaxBytes = Long.getLong("moviehub.cache.max-bytes", config.cacheMaxBytes);
+        config.idempotencyMaxKeys = Integer.getInteger("moviehub.idempotency.max-keys", config.idempotencyMaxKeys);
+        config.idempotencyTtlSeconds = Long.getLong("moviehub.idempotency.ttl-seconds",
+                config.idempotencyTtlSeconds);
+        config.compressionMinBytes = Integer.getInteger("moviehub.compression.min-bytes",
+                config.compressionMinBytes);
+
+        config.readRateLimit = doubleProperty("moviehub.ratelimit.read-per-second", config.readRateLimit);
+        config.writeRateLimit = doubleProperty("moviehub.ratelimit.write-per-second", config.writeRateLimit);
+        config.rateLimitBurstSeconds = doubleProperty("moviehub.ratelimit.burst-seconds",
+                config.rateLimitBurstSeconds);
+        config.concurrencyLimitMin = Integer.getInteger("moviehub.concurrency.min", config.concurrencyLimitMin);
+        config.concurrencyLimitInitial = Integer.getInteger("moviehub.concurrency.initial",
+                config.concurrencyLimitInitial);
+        config.concurrencyLimitMax = Integer.getInteger("moviehub.concurrency.max", config.concurrencyLimitMax);
+
+        config.clusterTimeoutMillis = Long.getLong("moviehub.cluster.timeout-ms", config.clusterTimeoutMillis);
+        config.clusterSelf = System.getProperty("moviehub.cluster.self");
+        String cluster = System.getProperty("moviehub.cluster.nodes");
+        if (cluster != null && !cluster.isBlank()) {
+            config.clusterNodes = ClusterNode.parseList(cluster);
+        }
+
+        config.replicationPort = Integer.getInteger("moviehub.replication.port", config.replicationPort);
+        String primary = System.getProperty("moviehub.replication.primary");
+        if (primary != null && !primary.isBlank()) {
+            config.replicationPrimary = primary.trim();
+        }
+
+        config.fsyncIntervalMillis = Long.getLong("moviehub.wal.fsync-interval-ms", config.fsyncIntervalMillis);
+        config.snapshotEveryRecords = Long.getLong("moviehub.snapshot.every-records", config.snapshotEveryRecords);
+        config.snapshotCheckSeconds = Long.getLong("moviehub.snapshot.check-seconds", config.snapshotCheckSeconds);
+
+        String dataDir = System.getProperty("moviehub.data.dir");
+        if (dataDir != null && !dataDir.isBlank()) {
+            config.dataDir = Path.of(dataDir.trim());
+        }
+
+        String segments = System.getProperty("moviehub.segments");
+        if (segments != null && !segments.isBlank()) {
+            config.segments = Arrays.stream(segments.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .map(Path::of)
+                    .toList();
+        }
+
+        String fsync = System.getProperty("moviehub.wal.fsync");
+        if (fsync != null && !fsync.isBlank()) {
+            config.fsyncPolicy = FsyncPolicy.valueOf(fsync.trim().toUpperCase());
+        }
+
+        String cache = System.getProperty("moviehub.cache.enabled");
+        if (cache != null && !cache.isBlank()) {
+            config.cacheEnabled = Boolean.parseBoolean(cache.trim());
+        }
+
+        String adaptive = System.getProperty("moviehub.concurrency.adaptive");
+        if (adaptive != null && !adaptive.isBlank()) {
+            config.adaptiveConcurrency = Boolean.parseBoolean(adaptive.trim());
+        }
+
+        String engine = System.getProperty("moviehub.engine");
+        if (engine != null && !engine.isBlank()) {
+            config.engine = HttpEngine.valueOf(engine.trim().toUpperCase());
+        }
+
+        String mode = System.getProperty("moviehub.execution");
+        if (mode != null && !mode.isBlank()) {
+            config.executionMode = ExecutionMode.valueOf(mode.trim().toUpperCase());
+        }
+        return config;
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ServerConfig port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public ServerConfig backlog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    public HttpEngine getEngine() {
+        return engine;
+    }
+
+    public ServerConfig engine(HttpEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public ServerConfig idleTimeoutMillis(int idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public ServerConfig readTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public ServerConfig executionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public ServerConfig poolSize(int poolSize) {
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public ServerConfig queueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public ServerConfig maxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public ServerConfig cacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+        return this;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public ServerConfig cacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+        return this;
+    }
+
+    public int getIdempotencyMaxKeys() {
+        return idempotencyMaxKeys;
+    }
+
+    public ServerConfig idempotencyMaxKeys(int idempotencyMaxKeys) {
+        this.idempotencyMaxKeys = idempotencyMaxKeys;
+        return this;
+    }
+
+    public long getIdempotencyTtlSeconds() {
+        return idempotencyTtlSeconds;
+    }
+
+    public ServerConfig idempotencyTtlSeconds(long idempotencyTtlSeconds) {
+        this.idempotencyTtlSeconds = idempotencyTtlSeconds;
+        return this;
+    }
+
+    public int getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    public ServerConfig compressionMinBytes(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+        return this;
+    }
+
+    public double getReadRateLimit() {
+        return readRateLimit;
+    }
+
+    public ServerConfig readRateLimit(double readRateLimit) {
+        this.readRateLimit = readRateLimit;
+        return this;
+    }
+
+    public double getWriteRateLimit() {
+        return writeRateLimit;
+    }
+
+    public ServerConfig writeRateLimit(double writeRateLimit) {
+        this.writeRateLimit = writeRateLimit;
+        return this;
+    }
+
+    public double getRateLimitBurstSeconds() {
+        return rateLimitBurstSeconds;
+    }
+
+    public ServerConfig rateLimitBurstSeconds(double rateLimitBurstSeconds) {
+        this.rateLimitBurstSeconds = rateLimitBurstSeconds;
+        return this;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public ServerConfig adaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        return this;
+    }
+
+    public int getConcurrencyLimitMin() {
+        return concurrencyLimitMin;
+    }
+
+    public int getConcurrencyLimitInitial() {
+        return concurrencyLimitInitial;
+    }
+
+    public int getConcurrencyLimitMax() {
+        return concurrencyLimitMax;
+    }
+
+    public ServerConfig concurrencyLimits(int min, int initial, int max) {
+        this.concurrencyLimitMin = min;
+        this.concurrencyLimitInitial = initial;
+        this.concurrencyLimitMax = max;
+        return this;
+    }
+
+    public List<ClusterNode> getClusterNodes() {
+        return clusterNodes;
+    }
+
+    public String getClusterSelf() {
+        return clusterSelf;
+    }
+
+    // nodes - все узлы кластера, включая этот; self - имя этого узла
+    public ServerConfig cluster(List<ClusterNode> nodes, String self) {
+        this.clusterNodes = List.copyOf(nodes);
+        this.clusterSelf = self;
+        return this;
+    }
+
+    public long getClusterTimeoutMillis() {
+        return clusterTimeoutMillis;
+    }
+
+    public ServerConfig clusterTimeoutMillis(long clusterTimeoutMillis) {
+        this.clusterTimeoutMillis = clusterTimeoutMillis;
+        return this;
+    }
+
+    public int getReplicationPort() {
+        return replicationPort;
+    }
+
+    public ServerConfig replicationPort(int replicationPort) {
+        this.replicationPort = replicationPort;
+        return this;
+    }
+
+    public String getReplicationPrimary() {
+        return replicationPrimary;
+    }
+
+    public ServerConfig replicationPrimary(String replicationPrimary) {
+        this.replicationPrimary = replicationPrimary;
+        return this;
+    }
+
+    public List<Path> getSegments() {
+        return segments;
+    }
+
+    public ServerConfig segments(List<Path> segments) {
+        this.segments = List.copyOf(segments);
+        return this;
+    }
+
+    public Path getDataDir() {
+        return dataDir;
+    }
+
+    public ServerConfig dataDir(Path dataDir) {
+        this.dataDir = dataDir;
+        return this;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public ServerConfig fsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+
+    public ServerConfig fsyncIntervalMillis(long fsyncIntervalMillis) {
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        return this;
+    }
+
+    public long getSnapshotEveryRecords() {
+        return snapshotEveryRecords;
+    }
+
+    public ServerConfig snapshotEveryRecords(long snapshotEveryRecords) {
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        return this;
+    }
+
+    public long getSnapshotCheckSeconds() {
+        return snapshotCheckSeconds;
+    }
+
+    public ServerConfig snapshotCheckSeconds(long snapshotCheckSeconds) {
+        this.snapshotCheckSeconds = snapshotCheckSeconds;
+        return this;
+    }
+}
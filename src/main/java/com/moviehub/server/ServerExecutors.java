@@ -0,0 +1,39 @@
+package com.moviehub.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+final class ServerExecutors {
+    private ServerExecutors() {
+    }
+
+    static ExecutorService create(ServerConfig config) {
+        return switch (config.getExecutionMode()) {
+            case DISPATCHER -> null;
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("movies-vt-", 0).factory());
+            case BOUNDED -> bounded(config.getPoolSize(), config.getQueueCapacity());
+        };
+    }
+
+    private static ExecutorService bounded(int poolSize, int queueCapacity) {
+        ThreadFactory factory = Thread.ofPlatform().name("movies-worker-", 0).daemon(true).factory();
+
+        // Если пул и очередь заполнены, обмен всё равно нужно обработать: иначе JDK-сервер
+        // просто потеряет соединение. Выполняем его на потоке-диспетчере с пометкой
+        // "перегрузка", и OverloadFilter сразу отвечает 503, не вызывая обработчик.
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory,
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Пул обработчиков остановлен");
+                    }
+                    OverloadFilter.runRejected(task);
+                });
+    }
+}
@@ -0,0 +1,121 @@
+package com.moviehub.storage;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Кольцевой журнал последних изменений с номерами подряд. Потребитель хранит номер последнего
+// прочитанного события и запрашивает всё, что после него. Если курсор уже вытеснен из кольца
+// (или выдан до перезапуска), read возвращает null - нужна полная пересинхронизация.
+public class ChangeLog {
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Event[] ring;
+    // Номера событий: (oldest, last]; при oldest > last журнал пуст
+    private long oldest;
+    private long last;
+
+    // millis - время записи события; по нему реплика оценивает отставание
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Event(long seq, String type, Long id, Movie movie, @JsonIgnore long millis) {
+    }
+
+    // Номер отсчитывается от времени запуска (мс * 1000), чтобы курсор из прошлого запуска
+    // не совпал с номером нового события: он окажется меньше начала журнала.
+    public ChangeLog(int capacity) {
+        this(capacity, System.currentTimeMillis() * 1000);
+    }
+
+    ChangeLog(int capacity, long startSeq) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость журнала изменений должна быть положительной");
+        }
+        ring = new Event[capacity];
+        last = startSeq;
+        oldest = startSeq + 1;
+    }
+
+    void added(Movie movie) {
+        append("add", null, movie);
+    }
+
+    void deleted(long id) {
+        append("delete", id, null);
+    }
+
+    void cleared() {
+        append("clear", null, null);
+    }
+
+    // Изменение, которое нельзя выразить событием (подключение или отключение базы):
+    // номер пропускается, и все прежние курсоры становятся недействительными
+    void reset() {
+        lock.lock();
+        try {
+            last++;
+            oldest = last + 1;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(String type, Long id, Movie movie) {
+        lock.lock();
+        try {
+            long seq = ++last;
+            ring[(int) (seq % ring.length)] = new Event(seq, type, id, movie, System.currentTimeMillis());
+            if (seq - oldest >= ring.length) {
+                oldest = seq - ring.length + 1;
+            }
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long lastSeq() {
+        lock.lock();
+        try {
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // События с номером больше since, не больше limit штук. Если событий нет, ждёт до waitMillis.
+    // null - курсор вне журнала.
+    public List<Event> read(long since, int limit, long waitMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+            while (since == last && waitMillis > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                appended.awaitNanos(remaining);
+            }
+            if (since < oldest - 1 || since > last) {
+                return null;
+            }
+
+            long to = Math.min(last, since + limit);
+            List<Event> events = new ArrayList<>((int) (to - since));
+            for (long seq = since + 1; seq <= to; seq++) {
+                events.add(ring[(int) (seq % ring.length)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Компактное хранилище: фильмы лежат по столбцам в примитивных массивах, отсортированных
+// по ID, названия - подряд в одном UTF-8 массиве. ID -> слот ищется в открытой хеш-таблице.
+// Удалённые слоты помечаются и освобождаются уплотнением, когда их становится больше живых.
+// Объекты Movie создаются только при чтении. Доступ защищён одной ReadWriteLock: чтения
+// идут параллельно, записи - по одной.
+public class CompactMovieStore implements MovieStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int DELETED = -1;
+    private static final int ITERATOR_BATCH = 256;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int[] titleOffsets = new int[INITIAL_CAPACITY];
+    // DELETED - слот удалён, но остаётся на месте до уплотнения
+    private int[] titleLengths = new int[INITIAL_CAPACITY];
+    private int slots;
+    private volatile int live;
+
+    private byte[] arena = new byte[INITIAL_CAPACITY * 16];
+    private int arenaUsed;
+    private long arenaGarbage;
+
+    private final LongIntHashIndex index = new LongIntHashIndex(INITIAL_CAPACITY);
+    private final TreeMap<Integer, SortedLongList> byYear = new TreeMap<>();
+
+    @Override
+    public Movie put(Movie movie) {
+        byte[] title = movie.title.getBytes(StandardCharsets.UTF_8);
+
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(movie.id);
+            if (slot >= 0) {
+                Movie previous = materialize(slot);
+                arenaGarbage += titleLengths[slot];
+                if (previous.year != movie.year) {
+                    byYear.get(previous.year).remove(movie.id);
+                    yearList(movie.year).add(movie.id);
+                }
+                years[slot] = movie.year;
+                versions[slot] = movie.version;
+                titleLengths[slot] = 0;
+                storeTitle(slot, title);
+                return previous;
+            }
+
+            slot = insertPosition(movie.id);
+            // удалённый, но ещё не уплотнённый слот с тем же ID занимаем заново
+            if (slot == slots || ids[slot] != movie.id) {
+                openSlot(slot);
+            }
+            ids[slot] = movie.id;
+            years[slot] = movie.year;
+            versions[slot] = movie.version;
+            storeTitle(slot, title);
+            index.put(movie.id, slot);
+            yearList(movie.year).add(movie.id);
+            live++;
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Movie remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot < 0) {
+                return null;
+            }
+            Movie removed = materialize(slot);
+            arenaGarbage += titleLengths[slot];
+            titleLengths[slot] = DELETED;
+            index.remove(id);
+            byYear.get(removed.year).remove(id);
+            live--;
+
+            int dead = slots - live;
+            if (dead > INITIAL_CAPACITY && dead > live) {
+                compact();
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Movie get(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = index.get(id);
+            return slot < 0 ? null : materialize(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Вся пачка читается за один захват блокировки
+    @Override
+    public Movie[] getAll(long[] ids) {
+        Movie[] result = new Movie[ids.length];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                int slot = index.get(ids[i]);
+                result[i] = slot < 0 ? null : materialize(slot);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public long size() {
+        return live;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return live == 0;
+    }
+
+    // Обход пачками: каждая пачка читается под read-блокировкой и продолжается от последнего
+    // выданного ID, поэтому долгий потоковый ответ не держит блокировку и не видит сдвигов слотов
+    @Override
+    public Iterator<Movie> iterator(long afterId) {
+        return new Iterator<>() {
+            private List<Movie> batch = List.of();
+            private int position;
+            private long lastId = afterId;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (position < batch.size()) {
+                    return true;
+                }
+                if (exhausted) {
+                    return false;
+                }
+                batch = readBatch(lastId, ITERATOR_BATCH);
+                position = 0;
+                if (batch.size() < ITERATOR_BATCH) {
+                    exhausted = true;
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).id;
+                }
+                return !batch.isEmpty();
+            }
+
+            @Override
+            public Movie next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.get(position++);
+            }
+        };
+    }
+
+    @Override
+    public List<Movie> findByYear(int year) {
+        lock.readLock().lock();
+        try {
+            SortedLongList list = byYear.get(year);
+            return list == null ? List.of() : materializeAll(list);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Movie> findByYearRange(int from, int to) {
+        lock.readLock().lock();
+        try {
+            List<Movie> result = new ArrayList<>();
+            for (SortedLongList list : byYear.subMap(from, true, to, true).values()) {
+                result.addAll(materializeAll(list));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Movie> snapshot() {
+        lock.readLock().lock();
+        try {
+            List<Movie> all = new ArrayList<>(live);
+            for (int slot = 0; slot < slots; slot++) {
+                if (titleLengths[slot] != DELETED) {
+                    all.add(materialize(slot));
+                }
+            }
+            return all;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ids = new long[INITIAL_CAPACITY];
+            years = new int[INITIAL_CAPACITY];
+            versions = new long[INITIAL_CAPACITY];
+            titleOffsets = new int[INITIAL_CAPACITY];
+            titleLengths = new int[INITIAL_CAPACITY];
+            arena = new byte[INITIAL_CAPACITY * 16];
+            slots = 0;
+            live = 0;
+            arenaUsed = 0;
+            arenaGarbage = 0;
+            index.clear();
+            byYear.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Занятая столбцами, ареной и индексами память (без заголовков объектов TreeMap)
+    public long heapBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) ids.length * Long.BYTES * 2
+                    + (long) years.length * Integer.BYTES * 3
+                    + arena.length
+                    + index.heapBytes();
+            for (SortedLongList list : byYear.values()) {
+                bytes += list.heapBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Movie> readBatch(long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Movie> batch = new ArrayList<>(limit);
+            for (int slot = upperBound(afterId); slot < slots && batch.size() < limit; slot++) {
+                if (titleLengths[slot] != DELETED) {
+                    batch.add(materialize(slot));
+                }
+            }
+            return batch;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Movie> materializeAll(SortedLongList list) {
+        List<Movie> result = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            result.add(materialize(index.get(list.get(i))));
+        }
+        return result;
+    }
+
+    private Movie materialize(int slot) {
+        Movie movie = new Movie();
+        movie.id = ids[slot];
+        movie.year = years[slot];
+        movie.version = versions[slot];
+        movie.title = new String(arena, titleOffsets[slot], titleLengths[slot], StandardCharsets.UTF_8);
+        return movie;
+    }
+
+    // ID выдаются по возрастанию, так что обычно слот - в конце; при гонке параллельных
+    // add ID может прийти чуть позже соседа, тогда ищем место бинарным поиском
+    private int insertPosition(long id) {
+        if (slots == 0 || id > ids[slots - 1]) {
+            return slots;
+        }
+        int pos = Arrays.binarySearch(ids, 0, slots, id);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private int upperBound(long id) {
+        int pos = Arrays.binarySearch(ids, 0, slots, id);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    private void openSlot(int slot) {
+        if (slots == ids.length) {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            years = Arrays.copyOf(years, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+        }
+        int tail = slots - slot;
+        if (tail > 0) {
+            System.arraycopy(ids, slot, ids, slot + 1, tail);
+            System.arraycopy(years, slot, years, slot + 1, tail);
+            System.arraycopy(versions, slot, versions, slot + 1, tail);
+            System.arraycopy(titleOffsets, slot, titleOffsets, slot + 1, tail);
+            System.arraycopy(titleLengths, slot, titleLengths, slot + 1, tail);
+            for (int i = slot + 1; i <= slots; i++) {
+                if (titleLengths[i] != DELETED) {
+                    index.put(ids[i], i);
+                }
+            }
+        }
+        slots++;
+    }
+
+    private void storeTitle(int slot, byte[] title) {
+        if ((long) arenaUsed + title.length > arena.length) {
+            growArena(title.length);
+        }
+        System.arraycopy(title, 0, arena, arenaUsed, title.length);
+        titleOffsets[slot] = arenaUsed;
+        titleLengths[slot] = title.length;
+        arenaUsed += title.length;
+    }
+
+    private void growArena(int needed) {
+        long required = (long) arenaUsed - arenaGarbage + needed;
+        long capacity = Math.max(required, (long) arena.length + (arena.length >> 1));
+        if (capacity > Integer.MAX_VALUE - 8) {
+            capacity = Integer.MAX_VALUE - 8;
+        }
+        if (required > capacity) {
+            throw new IllegalStateException("Арена названий переполнена");
+        }
+        // при росте заодно выбрасываем названия удалённых фильмов
+        rewriteArena((int) capacity);
+    }
+
+    private void rewriteArena(int capacity) {
+        byte[] grown = new byte[capacity];
+        int used = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int length = titleLengths[slot];
+            if (length > 0) {
+                System.arraycopy(arena, titleOffsets[slot], grown, used, length);
+                titleOffsets[slot] = used;
+                used += length;
+            }
+        }
+        arena = grown;
+        arenaUsed = used;
+        arenaGarbage = 0;
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (titleLengths[slot] == DELETED) {
+                continue;
+            }
+            ids[target] = ids[slot];
+            years[target] = years[slot];
+            versions[target] = versions[slot];
+            titleOffsets[target] = titleOffsets[slot];
+            titleLengths[target] = titleLengths[slot];
+            index.put(ids[target], target);
+            target++;
+        }
+        slots = target;
+
+        int capacity = Math.max(INITIAL_CAPACITY, slots + (slots >> 1));
+        if (capacity < ids.length) {
+            ids = Arrays.copyOf(ids, capacity);
+            years = Arrays.copyOf(years, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+        }
+        if (arenaGarbage > arenaUsed / 2) {
+            long liveBytes = arenaUsed - arenaGarbage;
+            rewriteArena((int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(INITIAL_CAPACITY * 16L, liveBytes + (liveBytes >> 1))));
+        }
+    }
+
+    private SortedLongList yearList(int year) {
+        return byYear.computeIfAbsent(year, y -> new SortedLongList());
+    }
+
+    // Отсортированный растущий массив long: ID одного года
+    private static final class SortedLongList {
+        private long[] values = new long[8];
+        private int size;
+
+        void add(long value) {
+            int pos = size == 0 || value > values[size - 1] ? size : insertionPoint(value);
+            if (pos < size && values[pos] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            }
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            values[pos] = value;
+            size++;
+        }
+
+        void remove(long value) {
+            int pos = Arrays.binarySearch(values, 0, size, value);
+            if (pos >= 0) {
+                System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        long get(int i) {
+            return values[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        long heapBytes() {
+            return (long) values.length * Long.BYTES;
+        }
+
+        private int insertionPoint(long value) {
+            int pos = Arrays.binarySearch(values, 0, size, value);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.util.Comparator;
+
+// Составной запрос к каталогу: диапазон лет, префикс названия, порядок и число результатов.
+// Префикс сравнивается с нормализованным названием (как в поиске): регистр и ё/е не важны.
+public class MovieQuery {
+    public enum Sort {
+        ID(Comparator.comparingLong(m -> m.id)),
+        YEAR(Comparator.<Movie>comparingInt(m -> m.year).thenComparingLong(m -> m.id)),
+        TITLE(Comparator.<Movie, String>comparing(m -> m.title, String.CASE_INSENSITIVE_ORDER)
+                .thenComparingLong(m -> m.id));
+
+        private final Comparator<Movie> comparator;
+
+        Sort(Comparator<Movie> comparator) {
+            this.comparator = comparator;
+        }
+
+        // Значение параметра sort без учёта регистра; null - такого порядка нет
+        public static Sort parse(String value) {
+            for (Sort sort : values()) {
+                if (sort.name().equalsIgnoreCase(value)) {
+                    return sort;
+                }
+            }
+            return null;
+        }
+    }
+
+    private int yearFrom = Integer.MIN_VALUE;
+    private int yearTo = Integer.MAX_VALUE;
+    private String titlePrefix;
+    private Sort sort = Sort.ID;
+    private boolean descending;
+    // 0 - без ограничения
+    private int limit;
+
+    public MovieQuery yearFrom(int yearFrom) {
+        this.yearFrom = yearFrom;
+        return this;
+    }
+
+    public MovieQuery yearTo(int yearTo) {
+        this.yearTo = yearTo;
+        return this;
+    }
+
+    public MovieQuery titlePrefix(String titlePrefix) {
+        this.titlePrefix = titlePrefix == null || titlePrefix.isEmpty() ? null : TitleIndex.normalize(titlePrefix);
+        return this;
+    }
+
+    public MovieQuery sort(Sort sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    public MovieQuery descending(boolean descending) {
+        this.descending = descending;
+        return this;
+    }
+
+    public MovieQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Лимит запроса не может быть отрицательным");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public int getYearFrom() {
+        return yearFrom;
+    }
+
+    public int getYearTo() {
+        return yearTo;
+    }
+
+    // Уже нормализованный префикс или null
+    public String getTitlePrefix() {
+        return titlePrefix;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasYearBounds() {
+        return yearFrom != Integer.MIN_VALUE || yearTo != Integer.MAX_VALUE;
+    }
+
+    public boolean matchesYear(int year) {
+        return year >= yearFrom && year <= yearTo;
+    }
+
+    public boolean matches(Movie movie) {
+        return matchesYear(movie.year)
+                && (titlePrefix == null || TitleIndex.normalize(movie.title).startsWith(titlePrefix));
+    }
+
+    public Comparator<Movie> comparator() {
+        return descending ? sort.comparator.reversed() : sort.comparator;
+    }
+}
@@ -2,41 +2,689 @@ package com.moviehub.storage;
 
 import com.moviehub.model.Movie;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MovieRepository {
-    private final Map<Long, Movie> movies = new LinkedHashMap<>();
-    private long nextId = 1;
+    private static final int STRIPES = 64;
+    // С какого числа кандидатов запрос обходится параллельно (общий ForkJoinPool)
+    private static final int PARALLEL_QUERY_THRESHOLD = 50_000;
+    // Префикс названия проверяется по индексу слов, если под него подходит не больше стольких ID
+    private static final int MAX_INDEX_CANDIDATES = 100_000;
+
+    // Изменяемый слой: фильмы, добавленные через API, журнал или реплику
+    private final MovieStore store;
+    private final AtomicLong nextId = new AtomicLong(1);
+    // Узел кластера выдаёт только ID, которыми владеет, - так ID разных узлов не пересекаются.
+    // null - выдаются все ID подряд.
+    private volatile LongPredicate ownedIds;
+    // Счётчик изменений: увеличивается после того, как изменение стало видно читателям, поэтому
+    // значение, прочитанное до построения ответа, не может описывать состояние новее ответа.
+    // Версия фильма - значение, которое счётчик примет после его вставки.
+    private final AtomicLong modCount = new AtomicLong();
+
+    // Базовый слой: смонтированные сегменты только для чтения с непересекающимися
+    // возрастающими диапазонами ID. Удаление их фильмов - отметка в deletedBase.
+    private volatile List<MovieSegment> segments = List.of();
+    private final Set<Long> deletedBase = ConcurrentHashMap.newKeySet();
+    private volatile boolean baseDetached;
+
+    // Изменения одного фильма сериализуются через его полосу; add/delete разных фильмов
+    // идут параллельно. clear() берёт эксклюзивную блокировку и ждёт текущих писателей.
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final List<MovieRepositoryListener> listeners = new CopyOnWriteArrayList<>();
+    // Поиск по названиям изменяемого слоя, обновляется вместе с хранилищем
+    private final TitleIndex titleIndex = new TitleIndex();
+    // Названия базового слоя индексируются при первом поиске, а не при монтировании: монтирование
+    // не читает записей сегмента, а отключение базы просто сбрасывает этот индекс.
+    // indexedSegments - сколько первых сегментов уже в индексе.
+    private final TitleIndex baseTitles = new TitleIndex();
+    private volatile int indexedSegments;
+    // Счётчики по годам обоих слоёв для /movies/stats
+    private final MovieStats stats = new MovieStats();
+    private final ChangeLog changeLog;
+
+    public MovieRepository() {
+        this(new SkipListMovieStore());
+    }
+
+    public MovieRepository(MovieStore store) {
+        this(store, ChangeLog.DEFAULT_CAPACITY);
+    }
+
+    public MovieRepository(MovieStore store, int changeLogCapacity) {
+        this.store = store;
+        this.changeLog = new ChangeLog(changeLogCapacity);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void addListener(MovieRepositoryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MovieRepositoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Подключает сегмент как базовый слой. Допустимо только до первой записи: новые ID
+    // всегда больше ID сегментов, и findAll/findPage отдают сначала базу, затем изменения.
+    public void mountSegment(MovieSegment segment) {
+        structureLock.writeLock().lock();
+        try {
+            if (!store.isEmpty()) {
+                throw new IllegalStateException("Сегмент можно подключить только к пустому репозиторию");
+            }
+            List<MovieSegment> current = segments;
+            if (!current.isEmpty() && segment.count() > 0
+                    && segment.minId() <= current.get(current.size() - 1).maxId()) {
+                throw new IllegalArgumentException("Диапазоны ID сегментов должны возрастать и не пересекаться");
+            }
+            List<MovieSegment> updated = new ArrayList<>(current);
+            updated.add(segment);
+            segments = List.copyOf(updated);
+            nextId.accumulateAndGet(segment.maxId() + 1, Math::max);
+            for (int bucket = 0; bucket < segment.yearBuckets(); bucket++) {
+                stats.added(segment.yearOf(bucket), segment.yearCount(bucket));
+            }
+            changeLog.reset();
+            modCount.incrementAndGet();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Отключает базовый слой целиком (так же, как это делает clear). Счётчики сегментов
+    // вычитаются целиком, а удалённые фильмы базы, уже вычтенные при удалении, возвращаются.
+    public void detachBase() {
+        structureLock.writeLock().lock();
+        try {
+            List<MovieSegment> base = segments;
+            for (MovieSegment segment : base) {
+                for (int bucket = 0; bucket < segment.yearBuckets(); bucket++) {
+                    stats.removed(segment.yearOf(bucket), segment.yearCount(bucket));
+                }
+            }
+            for (long id : deletedBase) {
+                for (MovieSegment segment : base) {
+                    int pos = segment.indexOf(id);
+                    if (pos >= 0) {
+                        stats.added(segment.yearAt(pos));
+                        break;
+                    }
+                }
+            }
+            dropBase();
+            changeLog.reset();
+            modCount.incrementAndGet();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    public ChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    public long getModCount() {
+        return modCount.get();
+    }
+
+    public MovieStore getStore() {
+        return store;
+    }
+
+    public List<MovieSegment> getSegments() {
+        return segments;
+    }
 
     public Movie add(Movie movie) {
-        movie.id = nextId++;
-        movies.put(movie.id, movie);
-        return movie;
+        structureLock.readLock().lock();
+        try {
+            insert(allocateId(), movie);
+            return movie;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    // Пакетная вставка: одна блокировка структуры и один блок подряд идущих ID на весь пакет
+    public List<Movie> addAll(List<Movie> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        structureLock.readLock().lock();
+        try {
+            if (ownedIds != null) {
+                for (Movie movie : batch) {
+                    insert(allocateId(), movie);
+                }
+                return batch;
+            }
+            long id = nextId.getAndAdd(batch.size());
+            for (Movie movie : batch) {
+                insert(id++, movie);
+            }
+            return batch;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    // Восстановление (журнал, снимок, реплика): вставка с уже известным ID.
+    // nextId сдвигается за него, слушатели уведомляются как при обычном add.
+    public void restore(Movie movie) {
+        structureLock.readLock().lock();
+        try {
+            nextId.accumulateAndGet(movie.id + 1, Math::max);
+            insert(movie.id, movie);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    private long allocateId() {
+        LongPredicate owned = ownedIds;
+        long id = nextId.getAndIncrement();
+        while (owned != null && !owned.test(id)) {
+            id = nextId.getAndIncrement();
+        }
+        return id;
+    }
+
+    public void setOwnedIds(LongPredicate ownedIds) {
+        this.ownedIds = ownedIds;
+    }
+
+    public void advanceNextId(long id) {
+        nextId.accumulateAndGet(id, Math::max);
+    }
+
+    public long getNextId() {
+        return nextId.get();
+    }
+
+    // Согласованный снимок всего содержимого. atomically выполняется под той же
+    // эксклюзивной блокировкой, что и копирование, - ни одна запись не попадёт между ними.
+    // Базовые сегменты в снимок не входят: они неизменны и монтируются заново при старте.
+    public RepositorySnapshot snapshot(Runnable atomically) {
+        structureLock.writeLock().lock();
+        try {
+            RepositorySnapshot snapshot = new RepositorySnapshot(store.snapshot(), nextId.get(),
+                    List.copyOf(deletedBase), baseDetached);
+            atomically.run();
+            return snapshot;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Восстановление удаления фильма базового слоя из снимка: как deleteById, но без журнала
+    // изменений и слушателей
+    public void restoreDeletedBase(long id) {
+        structureLock.readLock().lock();
+        try {
+            Lock stripe = stripeFor(id);
+            stripe.lock();
+            try {
+                Movie removed = deleteFromBase(id);
+                if (removed != null) {
+                    baseTitles.remove(removed.id, removed.title);
+                    stats.removed(removed.year);
+                } else {
+                    // сегмент сейчас не смонтирован - отметка сохраняется до следующего снимка
+                    deletedBase.add(id);
+                }
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
     }
 
     public Collection<Movie> findAll() {
-        return movies.values();
+        List<Movie> all = new ArrayList<>(size());
+        for (Movie movie : iterateAll()) {
+            all.add(movie);
+        }
+        return all;
+    }
+
+    // Живой обход в порядке ID без копирования - для потоковой выдачи каталога: сначала
+    // базовые сегменты, затем изменяемый слой. Итерация слабо согласована.
+    public Iterable<Movie> iterateAll() {
+        List<MovieSegment> base = segments;
+        if (base.isEmpty()) {
+            return () -> store.iterator(0);
+        }
+        return () -> new BaseThenOverlayIterator(base, 0, store.iterator(0));
+    }
+
+    // Страница по курсору: до limit фильмов с ID строго больше afterId
+    public List<Movie> findPage(long afterId, int limit) {
+        List<Movie> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Movie> overlay = store.iterator(afterId);
+        Iterator<Movie> it = segments.isEmpty()
+                ? overlay
+                : new BaseThenOverlayIterator(segments, afterId, overlay);
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
     }
 
     public Movie findById(Long id) {
-        return movies.get(id);
+        Movie movie = store.get(id);
+        if (movie != null || segments.isEmpty()) {
+            return movie;
+        }
+        return findInBase(id, segments);
+    }
+
+    // result[i] - фильм с ID ids[i] или null; изменяемый слой читается одной пачкой
+    public Movie[] findByIds(long[] ids) {
+        Movie[] result = store.getAll(ids);
+        List<MovieSegment> base = segments;
+        if (!base.isEmpty()) {
+            for (int i = 0; i < ids.length; i++) {
+                if (result[i] == null) {
+                    result[i] = findInBase(ids[i], base);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Movie findInBase(long id, List<MovieSegment> base) {
+        if (deletedBase.contains(id)) {
+            return null;
+        }
+        for (MovieSegment segment : base) {
+            if (id >= segment.minId() && id <= segment.maxId()) {
+                return segment.findById(id);
+            }
+        }
+        return null;
     }
 
     public boolean deleteById(Long id) {
-        return movies.remove(id) != null;
+        structureLock.readLock().lock();
+        try {
+            Lock stripe = stripeFor(id);
+            stripe.lock();
+            try {
+                Movie existing = store.get(id);
+                boolean fromBase = existing == null;
+                if (fromBase) {
+                    existing = segments.isEmpty() ? null : findInBase(id, segments);
+                    if (existing == null) {
+                        return false;
+                    }
+                }
+                for (MovieRepositoryListener listener : listeners) {
+                    listener.beforeDelete(existing);
+                }
+
+                Movie removed = fromBase ? deleteFromBase(id) : store.remove(id);
+                (fromBase ? baseTitles : titleIndex).remove(removed.id, removed.title);
+                stats.removed(removed.year);
+                changeLog.deleted(removed.id);
+                modCount.incrementAndGet();
+                for (MovieRepositoryListener listener : listeners) {
+                    listener.onDelete(removed);
+                }
+                return true;
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
     }
 
     public Collection<Movie> findByYear(int year) {
-        return movies.values().stream()
-                .filter(m -> m.year == year)
-                .toList();
+        if (segments.isEmpty()) {
+            return store.findByYear(year);
+        }
+
+        List<Movie> result = new ArrayList<>();
+        for (MovieSegment segment : segments) {
+            collectBaseYears(segment, year, year, result);
+        }
+        result.addAll(store.findByYear(year));
+        return result;
+    }
+
+    // Фильмы с годом в диапазоне [from, to], упорядоченные по году, внутри года - по порядку добавления
+    public Collection<Movie> findByYearRange(int from, int to) {
+        if (from > to) {
+            return List.of();
+        }
+
+        List<Movie> overlay = store.findByYearRange(from, to);
+        if (segments.isEmpty()) {
+            return overlay;
+        }
+
+        // база и изменения сливаются по годам; внутри года база раньше, так как её ID меньше
+        TreeMap<Integer, List<Movie>> merged = new TreeMap<>();
+        List<Movie> base = new ArrayList<>();
+        for (MovieSegment segment : segments) {
+            collectBaseYears(segment, from, to, base);
+        }
+        for (Movie movie : base) {
+            merged.computeIfAbsent(movie.year, y -> new ArrayList<>()).add(movie);
+        }
+        for (Movie movie : overlay) {
+            merged.computeIfAbsent(movie.year, y -> new ArrayList<>()).add(movie);
+        }
+
+        List<Movie> result = new ArrayList<>();
+        merged.values().forEach(result::addAll);
+        return result;
+    }
+
+    // Составной запрос. Кандидаты берутся из самого дешёвого индекса: слов названия (если под
+    // префикс подходит немного фильмов) или лет; иначе - полный обход обоих слоёв. Остальные
+    // условия проверяются по кандидатам. При limit результат собирается кучей ограниченного
+    // размера, без сортировки всех совпадений.
+    public List<Movie> query(MovieQuery query) {
+        if (query.getYearFrom() > query.getYearTo()) {
+            return List.of();
+        }
+        Stream<Movie> matching = candidates(query).filter(query::matches);
+        Comparator<Movie> comparator = query.comparator();
+        if (query.getLimit() > 0) {
+            return matching.collect(TopMovies.collector(comparator, query.getLimit()));
+        }
+        Movie[] all = matching.toArray(Movie[]::new);
+        if (all.length >= PARALLEL_QUERY_THRESHOLD) {
+            Arrays.parallelSort(all, comparator);
+        } else {
+            Arrays.sort(all, comparator);
+        }
+        return Arrays.asList(all);
+    }
+
+    private Stream<Movie> candidates(MovieQuery query) {
+        if (query.getTitlePrefix() != null) {
+            long[] ids = titleIndex.prefixCandidates(query.getTitlePrefix(), MAX_INDEX_CANDIDATES);
+            if (ids != null && !segments.isEmpty()) {
+                long[] base = baseTitles().prefixCandidates(query.getTitlePrefix(), MAX_INDEX_CANDIDATES);
+                ids = base == null ? null : LongStream.concat(Arrays.stream(ids), Arrays.stream(base)).distinct().toArray();
+            }
+            if (ids != null) {
+                Stream<Movie> found = Arrays.stream(findByIds(ids)).filter(Objects::nonNull);
+                return ids.length >= PARALLEL_QUERY_THRESHOLD ? found.parallel() : found;
+            }
+        }
+
+        Stream<Movie> result = query.hasYearBounds()
+                ? store.findByYearRange(query.getYearFrom(), query.getYearTo()).stream()
+                : StreamSupport.stream(store.spliterator(), false);
+        for (MovieSegment segment : segments) {
+            result = Stream.concat(baseCandidates(segment, query), result);
+        }
+        return size() >= PARALLEL_QUERY_THRESHOLD ? result.parallel() : result;
+    }
+
+    // Позиции сегмента: по индексу лет, если годы ограничены, иначе все подряд
+    private Stream<Movie> baseCandidates(MovieSegment segment, MovieQuery query) {
+        IntStream positions;
+        if (query.hasYearBounds()) {
+            int from = segment.yearLowerBound(query.getYearFrom());
+            int to = query.getYearTo() == Integer.MAX_VALUE
+                    ? segment.count()
+                    : segment.yearLowerBound(query.getYearTo() + 1);
+            positions = IntStream.range(from, to).map(segment::yearIndexPosition);
+        } else {
+            positions = IntStream.range(0, segment.count());
+        }
+        if (!deletedBase.isEmpty()) {
+            positions = positions.filter(pos -> !deletedBase.contains(segment.idAt(pos)));
+        }
+        return positions.mapToObj(segment::movieAt);
+    }
+
+    // Счётчики по годам и десятилетиям; стоимость не зависит от размера каталога
+    public MovieStats.Summary stats() {
+        return stats.summary();
+    }
+
+    // Поиск по словам названия, последнее слово - префикс; лучшие совпадения первыми
+    public List<Movie> search(String query, int limit) {
+        List<Movie> overlay = titleIndex.search(query, limit, this::findById);
+        if (segments.isEmpty()) {
+            return overlay;
+        }
+        // лучшие совпадения каждого слоя, упорядоченные вместе
+        Map<Long, Movie> found = new LinkedHashMap<>();
+        for (Movie movie : overlay) {
+            found.put(movie.id, movie);
+        }
+        for (Movie movie : baseTitles().search(query, limit, this::findById)) {
+            found.putIfAbsent(movie.id, movie);
+        }
+        return TitleIndex.rank(query, found.values(), limit);
+    }
+
+    public int size() {
+        long total = store.size() - deletedBase.size();
+        for (MovieSegment segment : segments) {
+            total += segment.count();
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
     }
 
     public void clear() {
-        movies.clear();
-        nextId = 1;
+        structureLock.writeLock().lock();
+        try {
+            for (MovieRepositoryListener listener : listeners) {
+                listener.beforeClear();
+            }
+            store.clear();
+            titleIndex.clear();
+            stats.clear();
+            dropBase();
+            nextId.set(1);
+            changeLog.cleared();
+            modCount.incrementAndGet();
+            for (MovieRepositoryListener listener : listeners) {
+                listener.onClear();
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Замена всего содержимого (полная копия с первичного узла): очистка и вставка под одной
+    // эксклюзивной блокировкой, так что ни одна другая запись не окажется между ними
+    public void replaceAll(Collection<Movie> movies) {
+        structureLock.writeLock().lock();
+        try {
+            clear();
+            for (Movie movie : movies) {
+                nextId.accumulateAndGet(movie.id + 1, Math::max);
+                insert(movie.id, movie);
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // Вызывается под эксклюзивной блокировкой
+    private void dropBase() {
+        if (!segments.isEmpty()) {
+            baseDetached = true;
+        }
+        segments = List.of();
+        deletedBase.clear();
+        baseTitles.clear();
+        indexedSegments = 0;
+    }
+
+    // Индекс названий базового слоя, достроенный до всех смонтированных сегментов. Достройка идёт
+    // под эксклюзивной блокировкой, чтобы удаление фильма базы не разошлось с индексом; она
+    // случается один раз на сегмент. Нельзя вызывать под блокировкой структуры.
+    private TitleIndex baseTitles() {
+        if (indexedSegments < segments.size()) {
+            structureLock.writeLock().lock();
+            try {
+                List<MovieSegment> base = segments;
+                for (int i = indexedSegments; i < base.size(); i++) {
+                    MovieSegment segment = base.get(i);
+                    for (int pos = 0; pos < segment.count(); pos++) {
+                        long id = segment.idAt(pos);
+                        if (!deletedBase.contains(id)) {
+                            baseTitles.add(id, segment.titleAt(pos));
+                        }
+                    }
+                    indexedSegments = i + 1;
+                }
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+        }
+        return baseTitles;
+    }
+
+    private void insert(long id, Movie movie) {
+        Lock stripe = stripeFor(id);
+        stripe.lock();
+        try {
+            movie.id = id;
+            for (MovieRepositoryListener listener : listeners) {
+                listener.beforeAdd(movie);
+            }
+            // Хранилище копирует версию при put, поэтому она назначается заранее, а счётчик
+            // растёт один раз - после put. Параллельные вставки других ID могут получить ту же
+            // версию; тег фильма сравнивается только в пределах одного ID, а изменения одного ID
+            // сериализованы полосой, так что его версии всё равно строго растут.
+            movie.version = modCount.get() + 1;
+            Movie previous = store.put(movie);
+            if (previous != null) {
+                titleIndex.remove(previous.id, previous.title);
+                stats.removed(previous.year);
+            }
+            titleIndex.add(id, movie.title);
+            stats.added(movie.year);
+            changeLog.added(movie);
+            modCount.incrementAndGet();
+            for (MovieRepositoryListener listener : listeners) {
+                listener.onAdd(movie);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Вызывается под полосой id
+    private Movie deleteFromBase(long id) {
+        if (deletedBase.contains(id)) {
+            return null;
+        }
+        Movie movie = null;
+        for (MovieSegment segment : segments) {
+            movie = segment.findById(id);
+            if (movie != null) {
+                break;
+            }
+        }
+        if (movie != null) {
+            deletedBase.add(id);
+        }
+        return movie;
+    }
+
+    private void collectBaseYears(MovieSegment segment, int from, int to, List<Movie> out) {
+        for (int pos = segment.yearLowerBound(from); pos < segment.count(); pos++) {
+            if (segment.yearIndexYear(pos) > to) {
+                break;
+            }
+            int position = segment.yearIndexPosition(pos);
+            if (deletedBase.isEmpty() || !deletedBase.contains(segment.idAt(position))) {
+                out.add(segment.movieAt(position));
+            }
+        }
+    }
+
+    private Lock stripeFor(long id) {
+        return stripes[Long.hashCode(id) & (STRIPES - 1)];
     }
 
+    // Обход сегментов по возрастанию ID (с пропуском удалённых), затем изменяемого слоя
+    private final class BaseThenOverlayIterator implements Iterator<Movie> {
+        private final List<MovieSegment> base;
+        private final Iterator<Movie> overlay;
+        private int segmentIndex;
+        private int position;
+        private Movie next;
+
+        BaseThenOverlayIterator(List<MovieSegment> base, long afterId, Iterator<Movie> overlay) {
+            this.base = base;
+            this.overlay = overlay;
+            while (segmentIndex < base.size() && base.get(segmentIndex).maxId() <= afterId) {
+                segmentIndex++;
+            }
+            if (segmentIndex < base.size()) {
+                position = base.get(segmentIndex).positionAfter(afterId);
+            }
+            advance();
+        }
+
+        private void advance() {
+            while (segmentIndex < base.size()) {
+                MovieSegment segment = base.get(segmentIndex);
+                while (position < segment.count()) {
+                    int current = position++;
+                    if (deletedBase.isEmpty() || !deletedBase.contains(segment.idAt(current))) {
+                        next = segment.movieAt(current);
+                        return;
+                    }
+                }
+                segmentIndex++;
+                position = 0;
+            }
+            next = overlay.hasNext() ? overlay.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Movie next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Movie current = next;
+            advance();
+            return current;
+        }
+    }
 }
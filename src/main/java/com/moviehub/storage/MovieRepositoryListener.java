@@ -0,0 +1,28 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+// Вызывается синхронно под блокировкой полосы изменяемого фильма (для clear - под
+// эксклюзивной блокировкой), поэтому события одного фильма приходят строго по порядку.
+// before* - до того, как изменение станет видно: исключение отменяет изменение (журнал
+// записывается раньше памяти). on* - после изменения, исключение его уже не отменит.
+// Реализации должны быть быстрыми и не обращаться к репозиторию на запись.
+public interface MovieRepositoryListener {
+    default void beforeAdd(Movie movie) {
+    }
+
+    default void beforeDelete(Movie movie) {
+    }
+
+    default void beforeClear() {
+    }
+
+    default void onAdd(Movie movie) {
+    }
+
+    default void onDelete(Movie movie) {
+    }
+
+    default void onClear() {
+    }
+}
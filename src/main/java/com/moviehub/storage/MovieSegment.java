@@ -0,0 +1,223 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Неизменяемый сегмент каталога, отображённый в память (mmap). Формат файла:
+//   заголовок   [int MAGIC][int VERSION][int count][int years][long minId][long maxId]
+//               years x [int год][int число фильмов], по возрастанию года
+//   индекс ID   count x [long id][int смещение записи], по возрастанию id
+//   индекс лет  count x [int год][int позиция в индексе ID], по (год, id)
+//   записи      [int год][int длина][UTF-8 название]
+// Все чтения - абсолютные get по MappedByteBuffer: ничего не копируется в кучу,
+// кроме названия фильма, который материализуется по запросу.
+// Один файл ограничен 2 ГБ (предел MappedByteBuffer); большие каталоги делятся на несколько сегментов.
+// В версии 1 счётчиков лет в заголовке нет (поле years - резерв), они считаются по индексу лет.
+public final class MovieSegment {
+    static final int MAGIC = 0x4D565347; // "MVSG"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int YEAR_COUNT_BYTES = 8;
+    static final int ID_ENTRY_BYTES = 12;
+    static final int YEAR_ENTRY_BYTES = 8;
+
+    private final Path file;
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final long minId;
+    private final long maxId;
+    private final int idIndexAt;
+    private final int yearIndexAt;
+    // Счётчики фильмов по годам; лет немного, поэтому они читаются в кучу при открытии
+    private final int[] years;
+    private final int[] yearCounts;
+
+    private MovieSegment(Path file, MappedByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf;
+        buf.order(ByteOrder.BIG_ENDIAN);
+
+        int version = buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC ? -1 : buf.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Неизвестный формат сегмента: " + file);
+        }
+        this.count = buf.getInt(8);
+        this.minId = buf.getLong(16);
+        this.maxId = buf.getLong(24);
+        int yearBuckets = version == 1 ? 0 : buf.getInt(12);
+        this.idIndexAt = HEADER_BYTES + yearBuckets * YEAR_COUNT_BYTES;
+        this.yearIndexAt = idIndexAt + count * ID_ENTRY_BYTES;
+
+        if (version == 1) {
+            int[][] derived = countYears();
+            this.years = derived[0];
+            this.yearCounts = derived[1];
+        } else {
+            this.years = new int[yearBuckets];
+            this.yearCounts = new int[yearBuckets];
+            for (int i = 0; i < yearBuckets; i++) {
+                years[i] = buf.getInt(HEADER_BYTES + i * YEAR_COUNT_BYTES);
+                yearCounts[i] = buf.getInt(HEADER_BYTES + i * YEAR_COUNT_BYTES + 4);
+            }
+        }
+    }
+
+    // Для версии 1: границы лет в индексе лет двоичным поиском, O(лет * log count)
+    private int[][] countYears() {
+        int[] foundYears = new int[16];
+        int[] foundCounts = new int[16];
+        int buckets = 0;
+        for (int pos = 0; pos < count; ) {
+            int year = yearIndexYear(pos);
+            int end = year == Integer.MAX_VALUE ? count : yearLowerBound(year + 1);
+            if (buckets == foundYears.length) {
+                foundYears = Arrays.copyOf(foundYears, buckets * 2);
+                foundCounts = Arrays.copyOf(foundCounts, buckets * 2);
+            }
+            foundYears[buckets] = year;
+            foundCounts[buckets++] = end - pos;
+            pos = end;
+        }
+        return new int[][]{Arrays.copyOf(foundYears, buckets), Arrays.copyOf(foundCounts, buckets)};
+    }
+
+    public static MovieSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Сегмент больше 2 ГБ: " + file);
+            }
+            return new MovieSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long minId() {
+        return minId;
+    }
+
+    public long maxId() {
+        return maxId;
+    }
+
+    // Число разных лет в сегменте; год и число его фильмов - yearOf и yearCount
+    public int yearBuckets() {
+        return years.length;
+    }
+
+    public int yearOf(int bucket) {
+        return years[bucket];
+    }
+
+    public int yearCount(int bucket) {
+        return yearCounts[bucket];
+    }
+
+    public long idAt(int position) {
+        return buf.getLong(idIndexAt + position * ID_ENTRY_BYTES);
+    }
+
+    public int yearAt(int position) {
+        return buf.getInt(buf.getInt(idIndexAt + position * ID_ENTRY_BYTES + 8));
+    }
+
+    public Movie movieAt(int position) {
+        int entry = idIndexAt + position * ID_ENTRY_BYTES;
+        int offset = buf.getInt(entry + 8);
+        byte[] title = new byte[buf.getInt(offset + 4)];
+        buf.get(offset + 8, title);
+
+        Movie movie = new Movie();
+        movie.id = buf.getLong(entry);
+        movie.year = buf.getInt(offset);
+        movie.title = new String(title, StandardCharsets.UTF_8);
+        return movie;
+    }
+
+    // Только название, без сборки фильма - для индексации
+    public String titleAt(int position) {
+        int offset = buf.getInt(idIndexAt + position * ID_ENTRY_BYTES + 8);
+        byte[] title = new byte[buf.getInt(offset + 4)];
+        buf.get(offset + 8, title);
+        return new String(title, StandardCharsets.UTF_8);
+    }
+
+    // Позиция id в индексе или отрицательное значение, если его нет
+    public int indexOf(long id) {
+        if (id < minId || id > maxId) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = idAt(mid);
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    // Первая позиция с id строго больше afterId
+    public int positionAfter(long afterId) {
+        int pos = indexOf(afterId);
+        if (pos >= 0) {
+            return pos + 1;
+        }
+        if (afterId < minId) {
+            return 0;
+        }
+        if (afterId > maxId) {
+            return count;
+        }
+        return -pos - 1;
+    }
+
+    public Movie findById(long id) {
+        int pos = indexOf(id);
+        return pos < 0 ? null : movieAt(pos);
+    }
+
+    // Индекс лет: первая позиция с годом >= year
+    public int yearLowerBound(int year) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (yearIndexYear(mid) < year) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public int yearIndexYear(int yearPosition) {
+        return buf.getInt(yearIndexAt + yearPosition * YEAR_ENTRY_BYTES);
+    }
+
+    // Позиция в индексе ID для записи индекса лет
+    public int yearIndexPosition(int yearPosition) {
+        return buf.getInt(yearIndexAt + yearPosition * YEAR_ENTRY_BYTES + 4);
+    }
+}
@@ -0,0 +1,94 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Сборка файла сегмента (формат описан в MovieSegment) из готового набора фильмов с ID
+public final class MovieSegmentWriter {
+    private MovieSegmentWriter() {
+    }
+
+    public static void write(Path target, Collection<Movie> source) throws IOException {
+        List<Movie> movies = new ArrayList<>(source);
+        movies.sort(Comparator.comparingLong(m -> m.id));
+        for (int i = 1; i < movies.size(); i++) {
+            if (movies.get(i).id == movies.get(i - 1).id) {
+                throw new IllegalArgumentException("Повторяющийся ID " + movies.get(i).id);
+            }
+        }
+
+        int count = movies.size();
+        Integer[] byYear = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            byYear[i] = i;
+        }
+        // позиции уже упорядочены по id, стабильная сортировка сохраняет этот порядок внутри года
+        Arrays.sort(byYear, Comparator.comparingInt(i -> movies.get(i).year));
+        // Счётчики по годам для заголовка
+        TreeMap<Integer, Integer> yearCounts = new TreeMap<>();
+        for (Movie movie : movies) {
+            yearCounts.merge(movie.year, 1, Integer::sum);
+        }
+
+        byte[][] titles = new byte[count][];
+        long recordsAt = MovieSegment.HEADER_BYTES + (long) yearCounts.size() * MovieSegment.YEAR_COUNT_BYTES
+                + (long) count * (MovieSegment.ID_ENTRY_BYTES + MovieSegment.YEAR_ENTRY_BYTES);
+        long size = recordsAt;
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            titles[i] = movies.get(i).title.getBytes(StandardCharsets.UTF_8);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Сегмент не помещается в 2 ГБ, разбейте каталог на части");
+            }
+            offsets[i] = (int) size;
+            size += 8 + titles[i].length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Сегмент не помещается в 2 ГБ, разбейте каталог на части");
+        }
+
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 256 * 1024))) {
+            out.writeInt(MovieSegment.MAGIC);
+            out.writeInt(MovieSegment.VERSION);
+            out.writeInt(count);
+            out.writeInt(yearCounts.size());
+            out.writeLong(count == 0 ? 0 : movies.get(0).id);
+            out.writeLong(count == 0 ? -1 : movies.get(count - 1).id);
+            for (Map.Entry<Integer, Integer> entry : yearCounts.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+
+            for (int i = 0; i < count; i++) {
+                out.writeLong(movies.get(i).id);
+                out.writeInt(offsets[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(movies.get(byYear[i]).year);
+                out.writeInt(byYear[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(movies.get(i).year);
+                out.writeInt(titles[i].length);
+                out.write(titles[i]);
+            }
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
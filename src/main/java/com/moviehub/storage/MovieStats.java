@@ -0,0 +1,89 @@
+package com.moviehub.storage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики фильмов по годам, обновляются репозиторием при каждом изменении за O(1).
+// LongAdder не даёт параллельным записям одного года бороться за одну ячейку. Корзины лет
+// не удаляются (лет немного), поэтому сводка обходит не больше пары сотен корзин
+// независимо от размера каталога.
+public class MovieStats {
+    private final ConcurrentSkipListMap<Integer, LongAdder> byYear = new ConcurrentSkipListMap<>();
+
+    // Сводка собирается из одного прохода по корзинам: total всегда равен сумме byYear
+    public record Summary(long total, Integer minYear, Integer maxYear,
+                          Map<Integer, Long> byDecade, Map<Integer, Long> byYear) {
+    }
+
+    void added(int year) {
+        added(year, 1);
+    }
+
+    void removed(int year) {
+        removed(year, 1);
+    }
+
+    // Сразу count фильмов одного года - счётчики сегмента при монтировании и отключении
+    void added(int year, long count) {
+        LongAdder counter = byYear.get(year);
+        if (counter == null) {
+            counter = byYear.computeIfAbsent(year, y -> new LongAdder());
+        }
+        counter.add(count);
+    }
+
+    void removed(int year, long count) {
+        LongAdder counter = byYear.get(year);
+        if (counter != null) {
+            counter.add(-count);
+        }
+    }
+
+    // Вызывается под эксклюзивной блокировкой репозитория
+    void clear() {
+        byYear.clear();
+    }
+
+    public Summary summary() {
+        Map<Integer, Long> years = new LinkedHashMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : byYear.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                years.put(entry.getKey(), count);
+            }
+        }
+        return summarize(years);
+    }
+
+    // Сводка по нескольким независимым каталогам (узлам кластера): счётчики лет складываются
+    public static Summary combine(List<Summary> parts) {
+        TreeMap<Integer, Long> years = new TreeMap<>();
+        for (Summary part : parts) {
+            part.byYear().forEach((year, count) -> years.merge(year, count, Long::sum));
+        }
+        return summarize(years);
+    }
+
+    // years - положительные счётчики в порядке возрастания года
+    private static Summary summarize(Map<Integer, Long> years) {
+        long total = 0;
+        Integer minYear = null;
+        Integer maxYear = null;
+        Map<Integer, Long> decades = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : years.entrySet()) {
+            int year = entry.getKey();
+            long count = entry.getValue();
+            if (minYear == null) {
+                minYear = year;
+            }
+            maxYear = year;
+            total += count;
+            decades.merge(Math.floorDiv(year, 10) * 10, count, Long::sum);
+        }
+        return new Summary(total, minYear, maxYear, decades, new LinkedHashMap<>(years));
+    }
+}
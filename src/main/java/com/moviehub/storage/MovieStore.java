@@ -0,0 +1,60 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+// Основное хранилище изменяемого слоя репозитория вместе с индексом по году.
+// MovieRepository сам выдаёт ID, держит полосные блокировки и уведомляет слушателей;
+// хранилище лишь должно выдерживать параллельные записи разных ID и чтения без ошибок.
+public interface MovieStore {
+    // Возвращает прежний фильм с тем же ID или null
+    Movie put(Movie movie);
+
+    Movie remove(long id);
+
+    Movie get(long id);
+
+    // result[i] - фильм с ID ids[i] или null
+    default Movie[] getAll(long[] ids) {
+        Movie[] result = new Movie[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = get(ids[i]);
+        }
+        return result;
+    }
+
+    long size();
+
+    boolean isEmpty();
+
+    // Фильмы с ID строго больше afterId по возрастанию ID, слабо согласованно
+    Iterator<Movie> iterator(long afterId);
+
+    // Для параллельного обхода всего слоя; по умолчанию делится пачками поверх iterator(0)
+    default Spliterator<Movie> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(0), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    List<Movie> findByYear(int year);
+
+    // Упорядочены по году, внутри года - по ID
+    List<Movie> findByYearRange(int from, int to);
+
+    List<Movie> snapshot();
+
+    void clear();
+
+    static MovieStore named(String name) {
+        if (name == null || name.isBlank() || name.equalsIgnoreCase("skiplist")) {
+            return new SkipListMovieStore();
+        }
+        if (name.equalsIgnoreCase("compact")) {
+            return new CompactMovieStore();
+        }
+        throw new IllegalArgumentException("Неизвестный тип хранилища: " + name);
+    }
+}
@@ -0,0 +1,13 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.util.List;
+
+// movies - фильмы изменяемого слоя; deletedBaseIds - удалённые фильмы смонтированных сегментов;
+// baseDetached - сегменты были отключены вызовом clear()
+public record RepositorySnapshot(List<Movie> movies, long nextId, List<Long> deletedBaseIds, boolean baseDetached) {
+    public RepositorySnapshot(List<Movie> movies, long nextId) {
+        this(movies, nextId, List.of(), false);
+    }
+}
@@ -0,0 +1,101 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Хранилище по умолчанию: неблокирующие ConcurrentSkipListMap, чтения без блокировок
+public class SkipListMovieStore implements MovieStore {
+    // ID выдаются по возрастанию, поэтому порядок ключей совпадает с порядком вставки
+    private final ConcurrentSkipListMap<Long, Movie> movies = new ConcurrentSkipListMap<>();
+    // Вторичный индекс: год -> фильмы этого года в порядке добавления. Пустые корзины
+    // не удаляются (лет немного), чтобы put не мог записать в уже отцепленную корзину.
+    private final ConcurrentSkipListMap<Integer, ConcurrentSkipListMap<Long, Movie>> byYear =
+            new ConcurrentSkipListMap<>();
+    // size() у ConcurrentSkipListMap - полный обход, поэтому размер считаем сами
+    private final AtomicLong size = new AtomicLong();
+
+    @Override
+    public Movie put(Movie movie) {
+        Movie previous = movies.put(movie.id, movie);
+        if (previous == null) {
+            size.incrementAndGet();
+        } else if (previous.year != movie.year) {
+            byYear.get(previous.year).remove(movie.id);
+        }
+        byYear.computeIfAbsent(movie.year, y -> new ConcurrentSkipListMap<>()).put(movie.id, movie);
+        return previous;
+    }
+
+    @Override
+    public Movie remove(long id) {
+        Movie removed = movies.remove(id);
+        if (removed != null) {
+            size.decrementAndGet();
+            ConcurrentSkipListMap<Long, Movie> bucket = byYear.get(removed.year);
+            if (bucket != null) {
+                bucket.remove(id);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public Movie get(long id) {
+        return movies.get(id);
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return movies.isEmpty();
+    }
+
+    @Override
+    public Iterator<Movie> iterator(long afterId) {
+        return Collections.unmodifiableCollection(movies.tailMap(afterId, false).values()).iterator();
+    }
+
+    // Делится по уровням списка, без промежуточных пачек
+    @Override
+    public Spliterator<Movie> spliterator() {
+        return movies.values().spliterator();
+    }
+
+    @Override
+    public List<Movie> findByYear(int year) {
+        ConcurrentSkipListMap<Long, Movie> bucket = byYear.get(year);
+        return bucket == null ? List.of() : List.copyOf(bucket.values());
+    }
+
+    @Override
+    public List<Movie> findByYearRange(int from, int to) {
+        List<Movie> result = new ArrayList<>();
+        for (ConcurrentSkipListMap<Long, Movie> bucket : byYear.subMap(from, true, to, true).values()) {
+            result.addAll(bucket.values());
+        }
+        return result;
+    }
+
+    @Override
+    public List<Movie> snapshot() {
+        return List.copyOf(movies.values());
+    }
+
+    @Override
+    public void clear() {
+        movies.clear();
+        byYear.clear();
+        size.set(0);
+    }
+}
@@ -0,0 +1,386 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongFunction;
+
+// Инвертированный индекс по словам названий: слово -> упорядоченный список ID.
+// Запрос "w1 w2 ... wn": первые слова должны совпасть целиком, последнее - как префикс
+// (автодополнение по мере ввода). Если запрос кончается пробелом, последнее слово тоже целое.
+public class TitleIndex {
+    // Сколько кандидатов оценивается при ранжировании: ограничивает работу на частых префиксах
+    private static final int MIN_CANDIDATES = 64;
+    private static final int CANDIDATES_PER_RESULT = 4;
+    private static final int SCAN_CHUNK = 1024;
+    // Префикс с большим числом слов проверяется по названию кандидата, а не по спискам
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+
+    // NFKC + нижний регистр + ё -> е
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е');
+    }
+
+    // Слова - непрерывные последовательности букв и цифр нормализованного текста
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = normalize(text);
+
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < normalized.length(); ) {
+            int cp = normalized.codePointAt(i);
+            boolean word = Character.isLetterOrDigit(cp) || Character.getType(cp) == Character.NON_SPACING_MARK;
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+            i += Character.charCount(cp);
+        }
+        if (start >= 0) {
+            tokens.add(normalized.substring(start));
+        }
+        return tokens;
+    }
+
+    public void add(long id, String title) {
+        for (String term : distinct(tokenize(title))) {
+            while (!terms.computeIfAbsent(term, t -> new Postings()).add(id)) {
+                // список только что опустел и удалён из словаря - берём новый
+            }
+        }
+    }
+
+    public void remove(long id, String title) {
+        for (String term : distinct(tokenize(title))) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.removeAndCheckEmpty(id)) {
+                terms.remove(term, postings);
+            }
+        }
+    }
+
+    public void clear() {
+        terms.clear();
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    public List<Movie> search(String query, int limit, LongFunction<Movie> lookup) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+        List<String> whole = lastIsPrefix ? tokens.subList(0, tokens.size() - 1) : tokens;
+        String prefix = lastIsPrefix ? tokens.get(tokens.size() - 1) : null;
+        int maxCandidates = Math.max(MIN_CANDIDATES, limit * CANDIDATES_PER_RESULT);
+
+        List<Movie> candidates = whole.isEmpty()
+                ? prefixCandidates(prefix, maxCandidates, lookup)
+                : wholeWordCandidates(whole, prefix, maxCandidates, lookup);
+        return rank(candidates, tokens, prefix, limit);
+    }
+
+    // Порядок search для уже найденных совпадений - например, лучших ответов нескольких узлов
+    public static List<Movie> rank(String query, Collection<Movie> matches, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+        return rank(matches, tokens, lastIsPrefix ? tokens.get(tokens.size() - 1) : null, limit);
+    }
+
+    private static List<Movie> rank(Collection<Movie> candidates, List<String> tokens, String prefix, int limit) {
+        List<Scored> scored = new ArrayList<>(candidates.size());
+        for (Movie movie : candidates) {
+            scored.add(score(movie, tokens, prefix));
+        }
+        scored.sort(Comparator.naturalOrder());
+
+        List<Movie> result = new ArrayList<>(Math.min(limit, scored.size()));
+        for (int i = 0; i < scored.size() && i < limit; i++) {
+            result.add(scored.get(i).movie);
+        }
+        return result;
+    }
+
+    // Кандидаты для фильтра "название начинается с prefix": ID из самого короткого списка среди
+    // слов префикса (последнее слово - как префикс). Каждое слово начала названия есть в названии,
+    // поэтому кандидаты - надмножество ответа. null - если кандидатов больше max и их дешевле
+    // не перебирать, а также если в префиксе нет ни одного слова.
+    public long[] prefixCandidates(String prefix, int max) {
+        List<String> tokens = tokenize(prefix);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(prefix.charAt(prefix.length() - 1));
+
+        long[] best = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (best != null && best.length == 0) {
+                break;
+            }
+            int limit = best == null ? max : best.length - 1;
+            String token = tokens.get(i);
+            long[] ids;
+            if (i == tokens.size() - 1 && lastIsPrefix) {
+                ids = collectRange(token, limit);
+            } else {
+                Postings postings = terms.get(token);
+                ids = postings == null ? new long[0] : postings.copyAtMost(limit);
+            }
+            if (ids != null) {
+                best = ids;
+            }
+        }
+        return best;
+    }
+
+    // Объединение списков всех слов с префиксом term по возрастанию ID; null - если больше max
+    private long[] collectRange(String term, int max) {
+        long[] ids = new long[16];
+        int size = 0;
+        for (Postings postings : terms.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            long[] part = postings.copy(max + 1 - size);
+            if (size + part.length > max) {
+                return null;
+            }
+            if (size + part.length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + part.length));
+            }
+            System.arraycopy(part, 0, ids, size, part.length);
+            size += part.length;
+        }
+        Arrays.sort(ids, 0, size);
+        return distinctSorted(ids, size);
+    }
+
+    private static long[] distinctSorted(long[] ids, int length) {
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            if (size == 0 || ids[size - 1] != ids[i]) {
+                ids[size++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    // Только префикс: сначала точное слово, затем более длинные слова по алфавиту
+    private List<Movie> prefixCandidates(String prefix, int maxCandidates, LongFunction<Movie> lookup) {
+        Map<Long, Movie> found = new LinkedHashMap<>();
+        ConcurrentNavigableMap<String, Postings> range = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        for (Postings postings : range.values()) {
+            for (long id : postings.copy(maxCandidates - found.size())) {
+                if (!found.containsKey(id)) {
+                    Movie movie = lookup.apply(id);
+                    if (movie != null) {
+                        found.put(id, movie);
+                    }
+                }
+            }
+            if (found.size() >= maxCandidates) {
+                break;
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    // Обход самого короткого списка целых слов, остальные слова проверяются по спискам.
+    // Префикс тоже проверяется по спискам, если под него подходит немного слов, иначе - по названию.
+    private List<Movie> wholeWordCandidates(List<String> whole, String prefix, int maxCandidates,
+                                            LongFunction<Movie> lookup) {
+        Postings[] lists = new Postings[whole.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = terms.get(whole.get(i));
+            if (lists[i] == null) {
+                return List.of();
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(Postings::size));
+
+        List<Postings> prefixLists = null;
+        if (prefix != null) {
+            prefixLists = new ArrayList<>();
+            for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                if (prefixLists.size() == MAX_PREFIX_TERMS) {
+                    prefixLists = null;
+                    break;
+                }
+                prefixLists.add(postings);
+            }
+            if (prefixLists != null && prefixLists.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Movie> found = new ArrayList<>();
+        long after = Long.MIN_VALUE;
+        long[] chunk;
+        while ((chunk = lists[0].copyAfter(after, SCAN_CHUNK)).length > 0 && found.size() < maxCandidates) {
+            after = chunk[chunk.length - 1];
+            collectMatches(chunk, lists, prefix, prefixLists, maxCandidates, lookup, found);
+        }
+        return found;
+    }
+
+    private static void collectMatches(long[] ids, Postings[] lists, String prefix, List<Postings> prefixLists,
+                                       int maxCandidates, LongFunction<Movie> lookup, List<Movie> found) {
+        for (long id : ids) {
+            boolean matches = true;
+            for (int i = 1; i < lists.length && matches; i++) {
+                matches = lists[i].contains(id);
+            }
+            if (matches && prefixLists != null) {
+                matches = false;
+                for (int i = 0; i < prefixLists.size() && !matches; i++) {
+                    matches = prefixLists.get(i).contains(id);
+                }
+            }
+            if (!matches) {
+                continue;
+            }
+            Movie movie = lookup.apply(id);
+            if (movie != null && (prefix == null || prefixLists != null || hasPrefix(tokenize(movie.title), prefix))) {
+                found.add(movie);
+                if (found.size() >= maxCandidates) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean hasPrefix(List<String> titleTokens, String prefix) {
+        for (String token : titleTokens) {
+            if (token.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Выше: последнее слово совпало целиком, название начинается с запроса, название короче, ID меньше
+    private static Scored score(Movie movie, List<String> queryTokens, String prefix) {
+        List<String> titleTokens = tokenize(movie.title);
+        boolean exact = prefix == null || titleTokens.contains(prefix);
+        boolean leading = !titleTokens.isEmpty() && (queryTokens.size() == 1 && prefix != null
+                ? titleTokens.get(0).startsWith(prefix)
+                : titleTokens.get(0).equals(queryTokens.get(0)));
+        return new Scored(movie, exact, leading, titleTokens.size());
+    }
+
+    private static List<String> distinct(List<String> tokens) {
+        return tokens.size() < 2 ? tokens : tokens.stream().distinct().toList();
+    }
+
+    private record Scored(Movie movie, boolean exact, boolean leading, int length) implements Comparable<Scored> {
+        @Override
+        public int compareTo(Scored other) {
+            if (exact != other.exact) {
+                return exact ? -1 : 1;
+            }
+            if (leading != other.leading) {
+                return leading ? -1 : 1;
+            }
+            if (length != other.length) {
+                return Integer.compare(length, other.length);
+            }
+            return Long.compare(movie.id, other.movie.id);
+        }
+    }
+
+    // Упорядоченный массив ID. Новые ID почти всегда больше уже добавленных,
+    // поэтому вставка обычно сводится к записи в конец.
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private int size;
+        // Удалён из словаря: добавлять в него нельзя
+        private boolean dead;
+
+        synchronized boolean add(long id) {
+            if (dead) {
+                return false;
+            }
+            int pos = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0 && pos < size) {
+                return true;
+            }
+            int insertAt = pos >= 0 ? pos : -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+            return true;
+        }
+
+        synchronized boolean removeAndCheckEmpty(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+                if (size > 8 && size < ids.length / 4) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+            }
+            if (size == 0) {
+                dead = true;
+            }
+            return dead;
+        }
+
+        synchronized boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        // До max ID, больших after
+        synchronized long[] copyAfter(long after, int max) {
+            int from = after == Long.MIN_VALUE ? 0 : Arrays.binarySearch(ids, 0, size, after);
+            if (from < 0) {
+                from = -from - 1;
+            } else if (after != Long.MIN_VALUE) {
+                from++;
+            }
+            return Arrays.copyOfRange(ids, from, Math.min(size, from + max));
+        }
+
+        // Весь список или null, если в нём больше max ID
+        synchronized long[] copyAtMost(int max) {
+            return size > max ? null : Arrays.copyOf(ids, size);
+        }
+
+        synchronized long[] copy(int max) {
+            return Arrays.copyOf(ids, Math.max(0, Math.min(size, max)));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+// Лучшие limit фильмов по comparator. Куча держит не больше limit элементов с худшим в вершине:
+// обход N фильмов стоит O(N log limit) вместо полной сортировки. В параллельном обходе у каждой
+// части своя куча, затем кучи сливаются.
+final class TopMovies {
+    private final Comparator<Movie> comparator;
+    private final int limit;
+    private final PriorityQueue<Movie> heap;
+
+    private TopMovies(Comparator<Movie> comparator, int limit) {
+        this.comparator = comparator;
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, comparator.reversed());
+    }
+
+    static Collector<Movie, ?, List<Movie>> collector(Comparator<Movie> comparator, int limit) {
+        return Collector.of(() -> new TopMovies(comparator, limit), TopMovies::offer,
+                TopMovies::merge, TopMovies::toList);
+    }
+
+    void offer(Movie movie) {
+        if (heap.size() < limit) {
+            heap.add(movie);
+        } else if (comparator.compare(movie, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(movie);
+        }
+    }
+
+    private TopMovies merge(TopMovies other) {
+        TopMovies larger = heap.size() >= other.heap.size() ? this : other;
+        TopMovies smaller = larger == this ? other : this;
+        for (Movie movie : smaller.heap) {
+            larger.offer(movie);
+        }
+        return larger;
+    }
+
+    private List<Movie> toList() {
+        Movie[] movies = heap.toArray(new Movie[0]);
+        Arrays.sort(movies, comparator);
+        return Arrays.asList(movies);
+    }
+}
@@ -0,0 +1,51 @@
+package com.moviehub.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimitTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void tryAcquire_whenLimitReached_rejects() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 2, 10);
+
+        int first = limit.tryAcquire();
+        int second = limit.tryAcquire();
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(-1, limit.tryAcquire(), "Сверх предела запрос должен отклоняться");
+
+        limit.release(second, MILLI);
+        assertTrue(limit.tryAcquire() > 0, "После освобождения место должно появиться");
+    }
+
+    @Test
+    void release_whenLatencyGrows_decreasesLimitAndRecoversWhenFast() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 20, 100);
+
+        limit.release(limit.tryAcquire(), MILLI);
+        Thread.sleep(1);
+        // ответ в 10 раз медленнее минимума - признак очереди
+        limit.release(limit.tryAcquire(), 10 * MILLI);
+        assertEquals(18, limit.getLimit(), "Медленный ответ должен уменьшить предел");
+
+        int before = limit.getLimit();
+        for (int i = 0; i < 200; i++) {
+            int[] held = new int[before];
+            for (int j = 0; j < before; j++) {
+                held[j] = limit.tryAcquire();
+            }
+            for (int j = before - 1; j >= 0; j--) {
+                if (held[j] > 0) {
+                    limit.release(held[j], MILLI);
+                }
+            }
+        }
+        assertTrue(limit.getLimit() > before, "Быстрые ответы при полной загрузке должны поднять предел");
+        assertTrue(limit.getLimit() <= 100, "Предел не выходит за максимум");
+    }
+}
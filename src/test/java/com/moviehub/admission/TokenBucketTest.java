@@ -0,0 +1,64 @@
+package com.moviehub.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tryAcquire_whenBurstExhausted_returnsWaitUntilNextToken() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(0), "Запросы в пределах burst должны проходить");
+        }
+        assertEquals(SECOND / 10, bucket.tryAcquire(0), "Следующий токен появится через 1/rate секунды");
+        assertEquals(0, bucket.tryAcquire(SECOND / 10), "Через интервал токен должен появиться");
+        assertTrue(bucket.tryAcquire(SECOND / 10) > 0, "Токен за интервал только один");
+    }
+
+    @Test
+    void isFull_afterIdlePeriod_returnsTrue() {
+        TokenBucket bucket = new TokenBucket(1, 2, 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        assertFalse(bucket.isFull(0), "Сразу после запросов корзина не полна");
+        assertTrue(bucket.isFull(2 * SECOND), "После паузы корзина должна наполниться");
+        assertEquals(0, bucket.tryAcquire(2 * SECOND));
+        assertEquals(0, bucket.tryAcquire(2 * SECOND), "После паузы снова доступен весь burst");
+    }
+
+    @Test
+    void rateLimiter_limitsEachClientAndMethodSeparately() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 1, 1);
+        InetAddress first = InetAddress.getByName("10.0.0.1");
+        InetAddress second = InetAddress.getByName("10.0.0.2");
+
+        assertEquals(0, limiter.acquire(first, "GET"));
+        assertTrue(limiter.acquire(first, "GET") > 0, "Второй GET того же клиента должен ждать");
+        assertEquals(0, limiter.acquire(first, "POST"), "Запись ограничивается отдельно от чтения");
+        assertEquals(0, limiter.acquire(second, "GET"), "Другой клиент ограничивается отдельно");
+        assertEquals(3, limiter.trackedClients());
+    }
+
+    @Test
+    void rateLimiter_whenTableIsFullOfActiveClients_refusesNewClients() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 1, 1, 2);
+        InetAddress first = InetAddress.getByName("10.0.0.1");
+
+        assertEquals(0, limiter.acquire(first, "GET"));
+        assertEquals(0, limiter.acquire(InetAddress.getByName("10.0.0.2"), "GET"));
+        for (int i = 3; i < 100; i++) {
+            assertTrue(limiter.acquire(InetAddress.getByName("10.0.0." + i), "GET") > 0,
+                    "Новый клиент сверх предела должен получить отказ");
+        }
+        assertEquals(2, limiter.trackedClients(), "Таблица не должна расти сверх предела");
+        assertTrue(limiter.acquire(first, "GET") > 0, "Известные клиенты ограничиваются как прежде");
+    }
+}
@@ -0,0 +1,75 @@
+package com.moviehub.api;
+
+import com.moviehub.server.MoviesServer;
+import com.moviehub.server.ServerConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionApiTest {
+    private static MoviesServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void beforeAll() {
+        server = new MoviesServer(new ServerConfig()
+                .port(0)
+                .readRateLimit(2)
+                .writeRateLimit(1)
+                .adaptiveConcurrency(true));
+        server.start();
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder builder, String path) throws Exception {
+        return client.send(builder.uri(URI.create("http://localhost:" + server.getPort() + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void requests_whenRateExceeded_return429WithRetryAfter() throws Exception {
+        int limited = 0;
+        for (int i = 0; i < 5; i++) {
+            HttpResponse<String> resp = send(HttpRequest.newBuilder().GET(), "/movies/999999");
+            if (resp.statusCode() == 429) {
+                limited++;
+                assertTrue(resp.headers().firstValue("Retry-After").isPresent(), "Нужен заголовок Retry-After");
+                assertTrue(resp.body().contains("Слишком много запросов"));
+            } else {
+                assertEquals(404, resp.statusCode());
+            }
+        }
+        assertTrue(limited >= 3, "При лимите 2 запроса в секунду часть из 5 запросов подряд должна отклоняться");
+
+        // тело отклонённой записи не читается, а соединение закрывается
+        int rejectedPosts = 0;
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"A\",\"year\":2000}")), "/movies");
+            if (resp.statusCode() == 429) {
+                rejectedPosts++;
+            }
+        }
+        assertTrue(rejectedPosts >= 1, "Запись ограничивается своим лимитом");
+
+        String metrics = send(HttpRequest.newBuilder().GET(), "/metrics").body();
+        assertTrue(metrics.contains("moviehub_concurrency_limit"), "Предел параллельности должен быть в метриках");
+        assertTrue(metrics.contains("status=\"429\""), "Отказы должны учитываться в метриках запросов");
+    }
+}
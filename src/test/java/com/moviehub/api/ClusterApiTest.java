@@ -0,0 +1,275 @@
+package com.moviehub.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviehub.cluster.ClusterNode;
+import com.moviehub.cluster.HashRing;
+import com.moviehub.model.Movie;
+import com.moviehub.server.MoviesServer;
+import com.moviehub.server.ServerConfig;
+import com.moviehub.storage.MovieRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Три узла кластера в одном процессе, у каждого свой репозиторий
+public class ClusterApiTest {
+    private static final int NODES = 3;
+    private static final List<MoviesServer> servers = new ArrayList<>();
+    private static List<ClusterNode> nodes;
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static HttpClient client;
+
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            int port;
+            try (ServerSocket probe = new ServerSocket(0)) {
+                port = probe.getLocalPort();
+            }
+            nodes.add(new ClusterNode("node" + i, URI.create("http://localhost:" + port)));
+        }
+        for (ClusterNode node : nodes) {
+            MoviesServer server = new MoviesServer(new ServerConfig()
+                    .port(node.baseUri().getPort())
+                    .cluster(nodes, node.name()), new MovieRepository());
+            server.start();
+            servers.add(server);
+        }
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        servers.forEach(MoviesServer::stop);
+    }
+
+    @BeforeEach
+    void clearRepositories() {
+        servers.forEach(server -> server.getRepository().clear());
+    }
+
+    private HttpResponse<String> send(int node, HttpRequest.Builder builder, String path) throws Exception {
+        return client.send(builder.uri(URI.create(nodes.get(node).baseUri() + path)).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private List<Long> postToEveryNode(int perNode) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < perNode * NODES; i++) {
+            HttpResponse<String> resp = send(i % NODES, HttpRequest.newBuilder()
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"title\": \"Фильм " + i + "\", \"year\": " + (2000 + i % 2) + "}")), "/movies");
+            assertEquals(201, resp.statusCode(), resp.body());
+            String body = resp.body();
+            int start = body.indexOf("\"id\":") + 5;
+            ids.add(Long.parseLong(body.substring(start, body.indexOf(',', start)).trim()));
+        }
+        return ids;
+    }
+
+    @Test
+    void post_onAnyNode_allocatesUniqueIdsOwnedByThatNode() throws Exception {
+        List<Long> ids = postToEveryNode(10);
+
+        assertEquals(ids.size(), new HashSet<>(ids).size(), "ID узлов не должны пересекаться");
+        HashRing ring = new HashRing(nodes);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(nodes.get(i % NODES), ring.ownerOf(ids.get(i)), "Узел выдаёт только свои ID");
+            Movie stored = servers.get(i % NODES).getRepository().findById(ids.get(i));
+            assertNotNull(stored, "Фильм хранится на принявшем его узле");
+        }
+    }
+
+    @Test
+    void getById_onAnyNode_isForwardedToOwner() throws Exception {
+        List<Long> ids = postToEveryNode(5);
+
+        for (long id : ids) {
+            for (int node = 0; node < NODES; node++) {
+                HttpResponse<String> resp = send(node, HttpRequest.newBuilder().GET(), "/movies/" + id);
+                assertEquals(200, resp.statusCode(), "Фильм " + id + " должен находиться через узел " + node);
+                assertTrue(resp.body().contains("\"id\":" + id) || resp.body().contains("\"id\": " + id));
+            }
+        }
+
+        long victim = ids.get(0);
+        int otherNode = 1;
+        assertEquals(204, send(otherNode, HttpRequest.newBuilder().DELETE(), "/movies/" + victim).statusCode(),
+                "Удаление через другой узел пересылается владельцу");
+        assertNull(servers.get(0).getRepository().findById(victim));
+        assertEquals(404, send(2, HttpRequest.newBuilder().GET(), "/movies/" + victim).statusCode());
+    }
+
+    @Test
+    void getAllAndByYear_onAnyNode_gatherEveryShard() throws Exception {
+        List<Long> ids = postToEveryNode(4);
+        Set<Long> expected = new HashSet<>(ids);
+
+        for (int node = 0; node < NODES; node++) {
+            String all = send(node, HttpRequest.newBuilder().GET(), "/movies").body();
+            for (long id : expected) {
+                assertTrue(all.contains("\"id\":" + id + ","), "Полный список должен включать " + id);
+            }
+            String year = send(node, HttpRequest.newBuilder().GET(), "/movies?year=2001").body();
+            assertEquals(ids.size() / 2, year.split("\"year\":2001").length - 1,
+                    "Фильтр по году собирается со всех шардов");
+        }
+
+        List<Long> order = new ArrayList<>();
+        String all = send(0, HttpRequest.newBuilder().GET(), "/movies").body();
+        for (String part : all.split("\"id\":")) {
+            if (Character.isDigit(part.charAt(0))) {
+                order.add(Long.parseLong(part.substring(0, part.indexOf(','))));
+            }
+        }
+        List<Long> sorted = new ArrayList<>(order);
+        sorted.sort(null);
+        assertEquals(sorted, order, "Собранный список упорядочен по ID");
+    }
+
+    @Test
+    void getAll_onAnyNode_supportsEtagAndCompression() throws Exception {
+        postToEveryNode(20);
+
+        HttpResponse<String> first = send(1, HttpRequest.newBuilder().GET(), "/movies");
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag, "Собранный список должен иметь ETag");
+        for (int node = 0; node < NODES; node++) {
+            assertEquals(304, send(node, HttpRequest.newBuilder().GET().header("If-None-Match", etag),
+                    "/movies").statusCode(), "Тег собранного списка не зависит от принявшего запрос узла");
+        }
+
+        HttpResponse<byte[]> gzip = client.send(HttpRequest.newBuilder(
+                        URI.create(nodes.get(0).baseUri() + "/movies?year=2001"))
+                .header("Accept-Encoding", "gzip").GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null),
+                "Собранный список сжимается, как и ответ одного узла");
+        String year = new String(new GZIPInputStream(
+                new ByteArrayInputStream(gzip.body())).readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(30, year.split("\"year\":2001").length - 1);
+
+        postToEveryNode(1);
+        assertEquals(200, send(0, HttpRequest.newBuilder().GET().header("If-None-Match", etag),
+                "/movies").statusCode(), "Запись на любой узел меняет тег собранного списка");
+    }
+
+    private static List<Long> idsOf(JsonNode movies) {
+        List<Long> ids = new ArrayList<>();
+        movies.forEach(movie -> ids.add(movie.get("id").asLong()));
+        return ids;
+    }
+
+    @Test
+    void batch_onAnyNode_collectsIdsFromOwners() throws Exception {
+        List<Long> ids = postToEveryNode(5);
+        List<Long> requested = new ArrayList<>(ids);
+        Collections.reverse(requested);
+        requested.add(ids.get(0));
+        StringBuilder query = new StringBuilder();
+        for (long id : requested) {
+            query.append(query.isEmpty() ? "" : ",").append(id);
+        }
+        List<Long> expected = new ArrayList<>(ids);
+        Collections.reverse(expected);
+
+        HttpResponse<String> get = send(1, HttpRequest.newBuilder().GET(), "/movies?ids=" + query + ",999999999");
+        assertEquals(200, get.statusCode(), get.body());
+        JsonNode body = mapper.readTree(get.body());
+        assertEquals(expected, idsOf(body.get("movies")), "Фильмы всех узлов в порядке запроса без повторов");
+        assertEquals("[999999999]", body.get("missing").toString());
+
+        HttpResponse<String> post = send(2, HttpRequest.newBuilder()
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"ids\": [" + query + "]}")), "/movies/batch");
+        assertEquals(200, post.statusCode(), post.body());
+        assertEquals(expected, idsOf(mapper.readTree(post.body()).get("movies")));
+
+        assertEquals(400, send(0, HttpRequest.newBuilder().GET(), "/movies?ids=1,x").statusCode());
+        HttpResponse<String> malformed = send(0, HttpRequest.newBuilder()
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"ids\": [1,")), "/movies/batch");
+        assertEquals(400, malformed.statusCode(), "Неразобранное тело отвечает обычной ошибкой своего узла");
+        assertTrue(malformed.body().contains("Неверный JSON"), malformed.body());
+    }
+
+    @Test
+    void stats_onAnyNode_sumsEveryShard() throws Exception {
+        postToEveryNode(5);
+
+        for (int node = 0; node < NODES; node++) {
+            HttpResponse<String> resp = send(node, HttpRequest.newBuilder().GET(), "/movies/stats");
+            assertEquals(200, resp.statusCode());
+            JsonNode stats = mapper.readTree(resp.body());
+            assertEquals(15, stats.get("total").asLong(), "Сводка учитывает все узлы");
+            assertEquals(8, stats.get("byYear").get("2000").asLong());
+            assertEquals(7, stats.get("byYear").get("2001").asLong());
+            assertEquals(2000, stats.get("minYear").asInt());
+            assertEquals(15, stats.get("byDecade").get("2000").asLong());
+        }
+    }
+
+    @Test
+    void searchQueryAndPages_onAnyNode_coverEveryShard() throws Exception {
+        List<Long> ids = postToEveryNode(5);
+        List<Long> sorted = new ArrayList<>(ids);
+        sorted.sort(null);
+
+        JsonNode found = mapper.readTree(send(0, HttpRequest.newBuilder().GET(),
+                "/movies?q=%D1%84%D0%B8%D0%BB%D1%8C%D0%BC&limit=100").body());
+        assertEquals(15, found.size(), "Поиск находит фильмы всех узлов");
+        JsonNode exact = mapper.readTree(send(1, HttpRequest.newBuilder().GET(),
+                "/movies?q=%D1%84%D0%B8%D0%BB%D1%8C%D0%BC%2012&limit=1").body());
+        assertEquals(ids.get(12), exact.get(0).get("id").asLong(), "Лучшее совпадение выбирается среди всех узлов");
+
+        HttpResponse<String> query = send(2, HttpRequest.newBuilder().GET(),
+                "/movies?yearFrom=2001&sort=id&order=desc&limit=4");
+        assertEquals(200, query.statusCode(), query.body());
+        List<Long> odd = new ArrayList<>();
+        for (int i = 1; i < ids.size(); i += 2) {
+            odd.add(ids.get(i));
+        }
+        odd.sort(Comparator.reverseOrder());
+        assertEquals(odd.subList(0, 4), idsOf(mapper.readTree(query.body())), "Запрос сливает ответы узлов в общем порядке");
+        assertEquals(400, send(2, HttpRequest.newBuilder().GET(), "/movies?yearFrom=2001&sort=rating").statusCode());
+
+        List<Long> walked = new ArrayList<>();
+        long after = 0;
+        while (true) {
+            HttpResponse<String> page = send(walked.size() % NODES, HttpRequest.newBuilder().GET(),
+                    "/movies?after=" + after + "&limit=4");
+            assertEquals(200, page.statusCode(), page.body());
+            walked.addAll(idsOf(mapper.readTree(page.body())));
+            String next = page.headers().firstValue("X-Next-After").orElse(null);
+            if (next == null) {
+                break;
+            }
+            after = Long.parseLong(next);
+        }
+        assertEquals(sorted, walked, "Страницы обходят каталог всех узлов ровно один раз");
+    }
+}
@@ -7,12 +7,22 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -464,4 +474,654 @@ public class MoviesApiTest {
         assertEquals("[]", resp.body());
     }
 
+    @Test
+    void getMoviesByYearRange_returnsMoviesWithinBounds() throws Exception {
+        post("""
+                {
+                "title": "Терминатор",
+                "year": 1984
+                }
+                """);
+
+        post("""
+                {
+                "title": "Матрица",
+                "year": 1999
+                }
+                """);
+
+        post("""
+                {
+                "title": "Начало",
+                "year": 2010
+                }
+                """);
+
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?yearFrom=1990&yearTo=2010"))
+                .GET()
+                .build();
+
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("Матрица"));
+        assertTrue(resp.body().contains("Начало"));
+        assertFalse(resp.body().contains("Терминатор"));
+    }
+
+    @Test
+    void queryMovies_withPrefixSortAndLimit_returnsTopMatches() throws Exception {
+        post("""
+                {"title": "Матрица", "year": 1999}
+                """);
+        post("""
+                {"title": "Матрица: Перезагрузка", "year": 2003}
+                """);
+        post("""
+                {"title": "Матрица: Революция", "year": 2003}
+                """);
+        post("""
+                {"title": "Мать", "year": 1926}
+                """);
+
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?titlePrefix=%D0%BC%D0%B0%D1%82%D1%80&yearFrom=2000&sort=title&order=desc&limit=1"))
+                .GET()
+                .build();
+
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("Революция"));
+        assertFalse(resp.body().contains("Перезагрузка"), "Лимит должен оставить только первый результат");
+        assertFalse(resp.body().contains("Мать"));
+    }
+
+    @Test
+    void getStats_returnsCountsByYearAndDecade() throws Exception {
+        post("""
+                {"title": "Матрица", "year": 1999}
+                """);
+        post("""
+                {"title": "Бойцовский клуб", "year": 1999}
+                """);
+        post("""
+                {"title": "Начало", "year": 2010}
+                """);
+
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/stats"))
+                .GET()
+                .build();
+
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("\"total\":3"), resp.body());
+        assertTrue(resp.body().contains("\"minYear\":1999"));
+        assertTrue(resp.body().contains("\"maxYear\":2010"));
+        assertTrue(resp.body().contains("\"byDecade\":{\"1990\":2,\"2010\":1}"), resp.body());
+        assertTrue(resp.body().contains("\"byYear\":{\"1999\":2,\"2010\":1}"));
+
+        HttpRequest conditional = HttpRequest.newBuilder(get.uri())
+                .header("If-None-Match", resp.headers().firstValue("ETag").orElseThrow())
+                .GET()
+                .build();
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private HttpResponse<String> postIdempotent(String key, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies"))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void postMovie_withIdempotencyKey_replaysFirstResponseWithoutInserting() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String json = """
+                {"title": "Матрица", "year": 1999}
+                """;
+
+        HttpResponse<String> first = postIdempotent(key, json);
+        HttpResponse<String> retry = postIdempotent(key, json);
+
+        assertEquals(201, first.statusCode());
+        assertEquals(201, retry.statusCode());
+        assertEquals(first.body(), retry.body(), "Повтор должен получить тот же фильм с тем же ID");
+        assertEquals("true", retry.headers().firstValue("Idempotent-Replayed").orElse(null));
+        assertEquals(1, MoviesHandler.getRepository().size());
+
+        HttpResponse<String> reused = postIdempotent(key, """
+                {"title": "Начало", "year": 2010}
+                """);
+        assertEquals(422, reused.statusCode(), "Ключ с другим телом запроса - ошибка клиента");
+        assertEquals(1, MoviesHandler.getRepository().size());
+    }
+
+    @Test
+    void postMovie_withSameIdempotencyKeyConcurrently_insertsOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(BASE + "/movies"))
+                    .header("Content-Type", "application/json")
+                    .header("Idempotency-Key", key)
+                    .POST(HttpRequest.BodyPublishers.ofString("""
+                            {"title": "Сталкер", "year": 1979}
+                            """))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        }
+
+        Set<String> bodies = new HashSet<>();
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.get().statusCode());
+            bodies.add(response.get().body());
+        }
+        assertEquals(1, bodies.size(), "Все одновременные повторы должны получить один и тот же фильм");
+        assertEquals(1, MoviesHandler.getRepository().size());
+    }
+
+    @Test
+    void queryMovies_whenCombinedWithSearch_returns400() throws Exception {
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?q=%D0%BC%D0%B0%D1%82&yearFrom=2000"))
+                .GET()
+                .build();
+
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(400, resp.statusCode(), "Поиск с фильтрами не должен молча терять 'q'");
+        assertTrue(resp.body().contains("'q'"));
+    }
+
+    @Test
+    void queryMovies_whenSortIsUnknown_returns400() throws Exception {
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?sort=rating"))
+                .GET()
+                .build();
+
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(400, resp.statusCode());
+        assertTrue(resp.body().contains("sort"));
+    }
+
+    @Test
+    void getMoviesByYearRange_whenBoundIsNotNumber_returns400() throws Exception {
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?yearFrom=abc"))
+                .GET()
+                .build();
+
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(400, resp.statusCode());
+        assertTrue(resp.body().contains("yearFrom"));
+    }
+
+    @Test
+    void postMovie_whenBodyIsTooLarge_return413() throws Exception {
+        String json = String.format("""
+                {
+                "title": "Начало",
+                "year": 2010,
+                "comment": "%s"
+                }
+                """, "x".repeat(MoviesHandler.DEFAULT_MAX_BODY_BYTES));
+
+        HttpResponse<String> resp = post(json);
+
+        assertEquals(413, resp.statusCode(), "Слишком большое тело запроса должно приводить к 413");
+    }
+
+    @Test
+    void postMovie_whenTitleIsMissing_return400() throws Exception {
+        HttpResponse<String> resp = post("""
+                {
+                "year": 2010
+                }
+                """);
+
+        assertEquals(400, resp.statusCode(), "Отсутствующее название должно приводить к 400");
+    }
+
+    private HttpResponse<String> postBulk(String contentType, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/bulk"))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void bulkImport_jsonArray_importsValidAndReportsInvalid() throws Exception {
+        HttpResponse<String> resp = postBulk("application/json", """
+                [
+                {"title": "Матрица", "year": 1999},
+                {"title": "", "year": 1800},
+                {"year": 2010},
+                {"title": "Начало", "year": 2010}
+                ]
+                """);
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("\"imported\":2"));
+        assertTrue(resp.body().contains("\"failed\":2"));
+        assertTrue(resp.body().contains("\"index\":1"));
+        assertTrue(resp.body().contains("название не должно быть пустым"));
+        assertTrue(resp.body().contains("\"index\":2"));
+        assertEquals(2, MoviesHandler.getRepository().size());
+    }
+
+    @Test
+    void bulkImport_ndjson_importsAllRecords() throws Exception {
+        HttpResponse<String> resp = postBulk("application/x-ndjson", """
+                {"title": "Матрица", "year": 1999}
+                {"title": "Начало", "year": 2010}
+                {"title": "Терминатор", "year": 1984}
+                """);
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("\"imported\":3"));
+        assertEquals(1, MoviesHandler.getRepository().findByYear(1984).size());
+    }
+
+    @Test
+    void bulkImport_whenJsonIsMalformed_return400() throws Exception {
+        HttpResponse<String> resp = postBulk("application/json", """
+                [
+                {"title": "Матрица", "year": 1999},
+                {"title": "Начало", "year":
+                """);
+
+        assertEquals(400, resp.statusCode());
+        assertTrue(resp.body().contains("\"imported\":1"));
+    }
+
+    @Test
+    void getMoviesPage_returnsLimitedPageAndNextCursor() throws Exception {
+        postBulk("application/x-ndjson", """
+                {"title": "Терминатор", "year": 1984}
+                {"title": "Матрица", "year": 1999}
+                {"title": "Начало", "year": 2010}
+                """);
+
+        HttpRequest first = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?limit=2"))
+                .GET()
+                .build();
+
+        HttpResponse<String> firstResp = client.send(first, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, firstResp.statusCode());
+        assertTrue(firstResp.body().contains("Терминатор"));
+        assertTrue(firstResp.body().contains("Матрица"));
+        assertFalse(firstResp.body().contains("Начало"));
+        assertEquals("2", firstResp.headers().firstValue("X-Next-After").orElse(""));
+
+        HttpRequest second = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?after=2&limit=2"))
+                .GET()
+                .build();
+
+        HttpResponse<String> secondResp = client.send(second, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, secondResp.statusCode());
+        assertTrue(secondResp.body().contains("Начало"));
+        assertTrue(secondResp.headers().firstValue("X-Next-After").isEmpty(),
+                "На последней странице курсора быть не должно");
+    }
+
+    @Test
+    void getMoviesPage_whenLimitIsInvalid_returns400() throws Exception {
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?limit=0"))
+                .GET()
+                .build();
+
+        HttpResponse<String> resp = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(400, resp.statusCode());
+        assertTrue(resp.body().contains("limit"));
+    }
+
+    @Test
+    void getMoviesByYear_whenCached_isInvalidatedByWrites() throws Exception {
+        post("""
+                {
+                "title": "Матрица",
+                "year": 1999
+                }
+                """);
+
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?year=1999"))
+                .GET()
+                .build();
+
+        long hitsBefore = server.getCache().byYear().hits();
+        client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        HttpResponse<String> cached = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertTrue(cached.body().contains("Матрица"));
+        assertTrue(server.getCache().byYear().hits() > hitsBefore, "Повторный запрос должен попасть в кэш");
+
+        post("""
+                {
+                "title": "Бойцовский клуб",
+                "year": 1999
+                }
+                """);
+
+        HttpResponse<String> afterAdd = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertTrue(afterAdd.body().contains("Бойцовский клуб"), "Добавление должно сбрасывать кэш года");
+
+        HttpRequest delete = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/1"))
+                .DELETE()
+                .build();
+        client.send(delete, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        HttpResponse<String> afterDelete = client.send(get, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertFalse(afterDelete.body().contains("Матрица"), "Удаление должно сбрасывать кэш года");
+    }
+
+    @Test
+    void metrics_afterRequests_exposesCountersInPrometheusFormat() throws Exception {
+        post("""
+                {
+                "title": "Сталкер",
+                "year": 1979
+                }
+                """);
+
+        HttpRequest getById = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/1"))
+                .GET()
+                .build();
+        client.send(getById, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        HttpRequest metrics = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/metrics"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(metrics, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        assertTrue(server.getMetrics().requestCount("GET", "/movies/{id}", 200) >= 1,
+                "Запрос по id должен попасть в счётчик своего маршрута");
+        assertTrue(response.body().contains(
+                "moviehub_http_requests_total{method=\"POST\",route=\"/movies\",status=\"201\"}"));
+        assertTrue(response.body().contains("moviehub_http_request_duration_seconds_bucket{method=\"GET\""));
+        assertTrue(response.body().contains("moviehub_movies 1"));
+    }
+
+    @Test
+    void batchGet_byIds_returnsFoundMoviesAndMissingIds() throws Exception {
+        postMany(3);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?ids=3,1,42,1"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, response.statusCode());
+        String body = response.body().replaceAll("\\s", "");
+        assertTrue(body.indexOf("\"id\":3") < body.indexOf("\"id\":1"), "Фильмы должны идти в порядке запроса");
+        assertEquals(body.indexOf("\"id\":1,"), body.lastIndexOf("\"id\":1,"), "Повторный ID не должен дублироваться");
+        assertTrue(body.contains("\"missing\":[42]"), "Ненайденные ID должны перечисляться отдельно: " + body);
+
+        HttpRequest invalid = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?ids=1,abc"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(invalid, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void batchPost_withIdsInBody_returnsFoundMoviesAndMissingIds() throws Exception {
+        postMany(2);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"ids\": [2, 7]}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, response.statusCode());
+        String body = response.body().replaceAll("\\s", "");
+        assertTrue(body.contains("\"id\":2"), body);
+        assertTrue(body.contains("\"missing\":[7]"), body);
+
+        HttpRequest withoutIds = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        assertEquals(422, client.send(withoutIds, HttpResponse.BodyHandlers.ofString()).statusCode(),
+                "Без поля ids запрос некорректен");
+    }
+
+    @Test
+    void search_byTitlePrefix_returnsMatchingMovies() throws Exception {
+        post("""
+                {
+                "title": "Ёжик в тумане",
+                "year": 1975
+                }
+                """);
+        post("""
+                {
+                "title": "Сталкер",
+                "year": 1979
+                }
+                """);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?q=%D0%B5%D0%B6%D0%B8%D0%BA%20%D0%B2%20%D1%82%D1%83%D0%BC"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("Ёжик в тумане"));
+        assertFalse(response.body().contains("Сталкер"));
+
+        HttpRequest blank = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?q="))
+                .GET()
+                .build();
+
+        assertEquals(400, client.send(blank, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void getById_withMatchingIfNoneMatch_returns304WithoutBody() throws Exception {
+        post("""
+                {
+                "title": "Сталкер",
+                "year": 1979
+                }
+                """);
+
+        HttpRequest first = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/1"))
+                .GET()
+                .build();
+        HttpResponse<String> full = client.send(first, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        String etag = full.headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/1"))
+                .header("If-None-Match", etag)
+                .GET()
+                .build();
+        HttpResponse<String> notModified = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(304, notModified.statusCode());
+        assertEquals("", notModified.body());
+        assertEquals(etag, notModified.headers().firstValue("ETag").orElse(null));
+    }
+
+    @Test
+    void getAll_afterWrite_changesETag() throws Exception {
+        HttpRequest get = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies"))
+                .GET()
+                .build();
+        String before = client.send(get, HttpResponse.BodyHandlers.ofString())
+                .headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies"))
+                .header("If-None-Match", before)
+                .GET()
+                .build();
+
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        post("""
+                {
+                "title": "Солярис",
+                "year": 1972
+                }
+                """);
+
+        HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, changed.statusCode(), "После добавления список должен отдаваться заново");
+        assertTrue(changed.body().contains("Солярис"));
+        assertNotEquals(before, changed.headers().firstValue("ETag").orElse(null));
+        assertFalse(changed.body().contains("version"), "Версия не должна попадать в JSON");
+    }
+
+    private void postMany(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            post("""
+                    {
+                    "title": "Фильм %d",
+                    "year": 2000
+                    }
+                    """.formatted(i));
+        }
+    }
+
+    private static String decode(InputStream in) throws Exception {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void getByYear_withAcceptEncodingGzip_returnsCompressedBody() throws Exception {
+        postMany(50);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies?year=2000"))
+                .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8, deflate;q=0.5")
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(response.headers().firstValue("ETag").orElse("").startsWith("W/"),
+                "ETag сжатого ответа должен быть слабым");
+
+        String json = decode(new GZIPInputStream(new ByteArrayInputStream(response.body())));
+
+        assertTrue(json.contains("Фильм 49"));
+        assertTrue(response.body().length < json.getBytes(StandardCharsets.UTF_8).length / 3,
+                "Повторяющийся JSON должен сжиматься в несколько раз");
+    }
+
+    @Test
+    void getAll_withDeflateOnly_streamsZlibBody_andSmallResponsesStayPlain() throws Exception {
+        postMany(50);
+
+        HttpRequest all = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies"))
+                .header("Accept-Encoding", "gzip;q=0, deflate")
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = client.send(all, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals("deflate", response.headers().firstValue("Content-Encoding").orElse(null));
+        String json = decode(new InflaterInputStream(new ByteArrayInputStream(response.body())));
+        assertTrue(json.startsWith("[") && json.contains("Фильм 0"));
+
+        HttpRequest one = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/1"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        HttpResponse<String> small = client.send(one, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty(), "Короткий ответ не сжимается");
+        assertTrue(small.body().contains("Фильм 0"));
+    }
+
+    @Test
+    void changes_sinceCursor_returnsOnlyDelta() throws Exception {
+        HttpRequest start = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies"))
+                .GET()
+                .build();
+        String cursor = client.send(start, HttpResponse.BodyHandlers.ofString())
+                .headers().firstValue("X-Change-Seq").orElseThrow();
+
+        post("""
+                {
+                "title": "Сталкер",
+                "year": 1979
+                }
+                """);
+        long id = 1;
+        HttpRequest delete = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/" + id))
+                .DELETE()
+                .build();
+        client.send(delete, HttpResponse.BodyHandlers.ofString());
+
+        HttpRequest changes = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/changes?since=" + cursor))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(changes, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"type\":\"add\""));
+        assertTrue(response.body().contains("Сталкер"));
+        assertTrue(response.body().contains("\"type\":\"delete\",\"id\":" + id));
+        assertFalse(response.body().contains("millis"), "Время записи - внутреннее поле для реплик");
+        assertTrue(response.body().contains("\"next\":" + (Long.parseLong(cursor) + 2)));
+    }
+
+    @Test
+    void changes_withStaleCursor_returns410() throws Exception {
+        HttpRequest stale = HttpRequest.newBuilder()
+                .uri(URI.create(BASE + "/movies/changes?since=1"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(stale, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertEquals(410, response.statusCode());
+        assertTrue(response.body().contains("пересинхронизация"));
+        assertTrue(response.headers().firstValue("X-Change-Seq").isPresent());
+    }
 }
@@ -0,0 +1,121 @@
+package com.moviehub.api;
+
+import com.moviehub.server.MoviesServer;
+import com.moviehub.server.ServerConfig;
+import com.moviehub.storage.MovieRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationApiTest {
+    private MoviesServer primary;
+    private MoviesServer replica;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() {
+        primary = new MoviesServer(new ServerConfig().port(0).replicationPort(0), new MovieRepository());
+        primary.start();
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (replica != null) {
+            replica.stop();
+        }
+        primary.stop();
+    }
+
+    private void startReplica() {
+        replica = new MoviesServer(new ServerConfig()
+                .port(0)
+                .replicationPrimary("localhost:" + primary.getReplicationSource().getPort()), new MovieRepository());
+        replica.start();
+    }
+
+    private HttpResponse<String> send(MoviesServer server, HttpRequest.Builder builder, String path) throws Exception {
+        return client.send(builder.uri(URI.create("http://localhost:" + server.getPort() + path)).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private HttpResponse<String> post(MoviesServer server, String title) throws Exception {
+        return send(server, HttpRequest.newBuilder()
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"title\": \"" + title + "\", \"year\": 1999}")), "/movies");
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void replica_receivesSnapshotThenStreamedChanges() throws Exception {
+        assertEquals(201, post(primary, "Матрица").statusCode());
+        assertEquals(201, post(primary, "Начало").statusCode());
+
+        startReplica();
+        await(() -> replica.getRepository().size() == 2, "Реплика должна получить полную копию");
+        await(() -> replica.getReplica().lagSeq() == 0, "После копии отставания быть не должно");
+
+        assertEquals(201, post(primary, "Сталкер").statusCode());
+        assertEquals(204, send(primary, HttpRequest.newBuilder().DELETE(), "/movies/1").statusCode());
+        await(() -> replica.getRepository().size() == 2 && replica.getRepository().findById(3L) != null,
+                "Добавление и удаление должны дойти до реплики");
+
+        HttpResponse<String> read = send(replica, HttpRequest.newBuilder().GET(), "/movies/3");
+        assertEquals(200, read.statusCode());
+        assertTrue(read.body().contains("Сталкер"));
+        assertEquals(404, send(replica, HttpRequest.newBuilder().GET(), "/movies/1").statusCode());
+        assertEquals(primary.getRepository().getChangeLog().lastSeq(), replica.getReplica().getAppliedSeq());
+    }
+
+    @Test
+    void replica_rejectsWritesAndReportsLag() throws Exception {
+        startReplica();
+        await(() -> replica.getReplica().lagSeq() == 0, "Реплика должна синхронизироваться");
+
+        HttpResponse<String> write = post(replica, "Матрица");
+        assertEquals(405, write.statusCode(), "Реплика не принимает запись");
+        assertEquals("GET", write.headers().firstValue("Allow").orElse(null));
+        assertEquals(0, replica.getRepository().size());
+
+        String metrics = send(replica, HttpRequest.newBuilder().GET(), "/metrics").body();
+        assertTrue(metrics.contains("moviehub_replication_lag_events 0"), metrics);
+        assertTrue(metrics.contains("moviehub_replication_lag_ms 0"), metrics);
+        assertTrue(metrics.contains("moviehub_replication_connected 1"), metrics);
+        await(() -> primary.getReplicationSource().replicaCount() == 1, "Первичный узел видит реплику");
+    }
+
+    @Test
+    void replica_servesBatchPostAsRead() throws Exception {
+        assertEquals(201, post(primary, "Матрица").statusCode());
+        assertEquals(201, post(primary, "Начало").statusCode());
+        startReplica();
+        await(() -> replica.getRepository().size() == 2, "Реплика должна получить копию");
+
+        HttpResponse<String> batch = send(replica, HttpRequest.newBuilder()
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"ids\": [2, 1, 9]}")), "/movies/batch");
+
+        assertEquals(200, batch.statusCode(), "Пакетное чтение не является записью");
+        assertTrue(batch.body().contains("Начало") && batch.body().contains("Матрица"));
+        assertTrue(batch.body().contains("\"missing\":[9]"), batch.body());
+    }
+}
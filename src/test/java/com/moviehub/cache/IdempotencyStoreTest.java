@@ -0,0 +1,79 @@
+package com.moviehub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyStoreTest {
+    private static final byte[] BODY = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void reserve_afterCompleteOrAbandon_replaysOrFreesKey() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(100, 60);
+
+        IdempotencyStore.Reservation first = store.reserve("a", "1999:Матрица");
+        assertTrue(first.fresh());
+        IdempotencyStore.Reservation duplicate = store.reserve("a", "1999:Матрица");
+        assertFalse(duplicate.fresh(), "Повтор должен получить запись первого запроса");
+        assertSame(first.entry(), duplicate.entry());
+        assertFalse(duplicate.entry().matches("2010:Начало"));
+
+        long before = store.bytes();
+        store.complete(first.entry(), BODY);
+        assertArrayEquals(BODY, duplicate.entry().await(0));
+        assertEquals(before + BODY.length, store.bytes(), "Тело ответа должно учитываться в памяти");
+
+        IdempotencyStore.Reservation failed = store.reserve("b", "2010:Начало");
+        store.abandon(failed.entry());
+        assertNull(failed.entry().await(0), "Ожидающие повторы должны узнать, что ключ освобождён");
+        assertTrue(store.reserve("b", "2010:Начало").fresh());
+        assertEquals(1, store.replays());
+    }
+
+    @Test
+    void reserve_beyondCapacity_evictsOldestAndKeepsBytesBounded() {
+        IdempotencyStore store = new IdempotencyStore(16, 60);
+
+        for (int i = 0; i < 1000; i++) {
+            IdempotencyStore.Reservation reservation = store.reserve("key-" + i, "fingerprint");
+            store.complete(reservation.entry(), BODY);
+        }
+
+        assertTrue(store.size() <= 16, "Ключей не должно быть больше, чем по одному на сегмент");
+        assertTrue(store.evictions() >= 1000 - 16);
+        assertTrue(store.bytes() > 0 && store.bytes() < 16 * 1024, "Память ограничена числом ключей");
+        assertTrue(store.reserve("key-999", "fingerprint").entry().matches("fingerprint"));
+    }
+
+    @Test
+    void reserve_whenSegmentFullOfPendingRequests_keepsThemAndRejectsNewKey() {
+        // по одному ключу на сегмент: из 17 ключей хотя бы два попадут в один сегмент
+        IdempotencyStore store = new IdempotencyStore(1, 60);
+        List<String> keys = new ArrayList<>();
+        List<IdempotencyStore.Reservation> pending = new ArrayList<>();
+        String rejected = null;
+        for (int i = 0; i <= 16; i++) {
+            IdempotencyStore.Reservation reservation = store.reserve("key-" + i, "fingerprint");
+            if (reservation == null) {
+                rejected = "key-" + i;
+            } else {
+                keys.add("key-" + i);
+                pending.add(reservation);
+            }
+        }
+        assertNotNull(rejected, "Незавершённый запрос нельзя вытеснять ради нового ключа");
+
+        for (String key : keys) {
+            assertFalse(store.reserve(key, "fingerprint").fresh(),
+                    "Повтор должен застать первый запрос, а не вставить второй фильм");
+        }
+
+        pending.forEach(reservation -> store.complete(reservation.entry(), BODY));
+        assertTrue(store.reserve(rejected, "fingerprint").fresh(), "Завершённую запись можно вытеснить");
+        assertEquals(1, store.evictions());
+    }
+}
@@ -0,0 +1,40 @@
+package com.moviehub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LruByteCacheTest {
+    private static final byte[] BODY = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void put_afterInvalidationOfSameKey_isDropped() {
+        LruByteCache<Integer> cache = new LruByteCache<>(1024 * 1024);
+
+        long generation = cache.generation(1999);
+        cache.invalidate(1999);
+        cache.put(1999, BODY, generation);
+
+        assertNull(cache.get(1999), "Ответ, посчитанный до записи, не должен попасть в кэш");
+        cache.put(1999, BODY, cache.generation(1999));
+        assertArrayEquals(BODY, cache.get(1999));
+    }
+
+    @Test
+    void put_afterInvalidationOfKeyInOtherSegment_isKept() {
+        LruByteCache<Integer> cache = new LruByteCache<>(1024 * 1024);
+
+        long generation = cache.generation(1);
+        cache.invalidate(2);
+        cache.put(1, BODY, generation);
+
+        assertArrayEquals(BODY, cache.get(1), "Запись по другому ключу не должна отменять put");
+
+        long stale = cache.generation(1);
+        cache.invalidateAll();
+        cache.put(1, BODY, stale);
+        assertNull(cache.get(1));
+    }
+}
@@ -0,0 +1,48 @@
+package com.moviehub.cache;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepository;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieResponseCacheTest {
+
+    private static Movie movie(String title, int year) {
+        Movie movie = new Movie();
+        movie.title = title;
+        movie.year = year;
+        return movie;
+    }
+
+    @Test
+    void put_whenIdReusedBetweenLookupAndPut_neverServesOldBody() {
+        MovieRepository repo = new MovieRepository();
+        MovieResponseCache cache = new MovieResponseCache(1024 * 1024);
+        repo.addListener(cache);
+
+        // Обработчик: поколение, затем поиск фильма
+        Movie first = repo.add(movie("Матрица", 1999));
+        long generation = cache.idGeneration(first.id);
+        Movie loaded = repo.findById(first.id);
+
+        // Тем временем каталог очищен и тот же ID выдан другому фильму
+        repo.clear();
+        Movie second = repo.add(movie("Начало", 2010));
+        assertEquals(first.id, second.id);
+
+        byte[] oldBody = "Матрица".getBytes(StandardCharsets.UTF_8);
+        cache.byId().put(MovieResponseCache.EntityKey.of(loaded), oldBody, generation);
+
+        assertNull(cache.byId().get(MovieResponseCache.EntityKey.of(repo.findById(second.id))),
+                "Новый фильм с тем же ID не должен получить тело старого");
+        assertNull(cache.byId().get(MovieResponseCache.EntityKey.of(loaded)),
+                "Ответ, посчитанный до очистки, не должен попасть в кэш");
+
+        // Даже с актуальным поколением тело старой версии лежит под своим ключом
+        cache.byId().put(MovieResponseCache.EntityKey.of(loaded), oldBody, cache.idGeneration(first.id));
+        assertNull(cache.byId().get(MovieResponseCache.EntityKey.of(repo.findById(second.id))));
+    }
+}
@@ -0,0 +1,59 @@
+package com.moviehub.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+    private static ClusterNode node(String name) {
+        return new ClusterNode(name, URI.create("http://" + name));
+    }
+
+    @Test
+    void ownerOf_spreadsIdsEvenlyAcrossNodes() {
+        HashRing ring = new HashRing(List.of(node("a"), node("b"), node("c")));
+
+        Map<String, Integer> counts = new HashMap<>();
+        int total = 300_000;
+        for (long id = 1; id <= total; id++) {
+            counts.merge(ring.ownerOf(id).name(), 1, Integer::sum);
+        }
+
+        for (int count : counts.values()) {
+            assertTrue(Math.abs(count - total / 3) < total / 10,
+                    "Доля узла должна быть близка к трети: " + counts);
+        }
+    }
+
+    @Test
+    void ownerOf_whenNodeAdded_movesOnlyItsShare() {
+        HashRing before = new HashRing(List.of(node("a"), node("b"), node("c")));
+        HashRing after = new HashRing(List.of(node("a"), node("b"), node("c"), node("d")));
+
+        int total = 100_000;
+        int moved = 0;
+        for (long id = 1; id <= total; id++) {
+            String was = before.ownerOf(id).name();
+            String now = after.ownerOf(id).name();
+            if (!was.equals(now)) {
+                moved++;
+                assertEquals("d", now, "ID может переехать только на новый узел");
+            }
+        }
+        assertTrue(moved > total / 6 && moved < total / 3, "Переезжает около четверти ID: " + moved);
+    }
+
+    @Test
+    void parseList_readsNamesAndAddresses() {
+        List<ClusterNode> nodes = ClusterNode.parseList("a=http://localhost:8081/, b = http://localhost:8082");
+
+        assertEquals(List.of(new ClusterNode("a", URI.create("http://localhost:8081")),
+                new ClusterNode("b", URI.create("http://localhost:8082"))), nodes);
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of(node("a"), node("a"))));
+    }
+}
@@ -0,0 +1,45 @@
+package com.moviehub.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BaseHttpHandlerTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void errorBody_withQuotesAndControlChars_isValidJson() throws Exception {
+        String message = "нет поля \"title\"\\\n\t\u0001";
+
+        JsonNode node = mapper.readTree(BaseHttpHandler.errorBody(message));
+
+        assertEquals(message, node.get("error").asText());
+        assertSame(BaseHttpHandler.errorBody(message), BaseHttpHandler.errorBody(message),
+                "Тело для одного сообщения должно строиться один раз");
+    }
+
+    @Test
+    void validationBody_escapesDetails() throws Exception {
+        JsonNode node = mapper.readTree(BaseHttpHandler.validationBody(List.of("a\"b", "год")));
+
+        assertEquals("Ошибка валидации", node.get("error").asText());
+        assertEquals("a\"b", node.get("details").get(0).asText());
+        assertEquals("год", node.get("details").get(1).asText());
+    }
+
+    @Test
+    void parseLongOrNull_matchesLongParseLongWithoutThrowing() {
+        for (String value : List.of("0", "42", "-7", "+7", "9223372036854775807", "-9223372036854775808")) {
+            assertEquals(Long.parseLong(value), BaseHttpHandler.parseLongOrNull(value), value);
+        }
+        for (String value : List.of("", "-", "+", "1a", " 1", "9223372036854775808", "-9223372036854775809", "1.5")) {
+            assertNull(BaseHttpHandler.parseLongOrNull(value), value);
+        }
+        assertNull(BaseHttpHandler.parseIntOrNull("2147483648"));
+        assertEquals(-2147483648, BaseHttpHandler.parseIntOrNull("-2147483648"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.moviehub.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviehub.storage.MovieRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieBulkImporterTest {
+    private static final String RECORDS = """
+            {"title": "Матрица", "year": 1999}
+            {"title": "Начало", "year": 2010}
+            """;
+
+    private final MovieRepository repo = new MovieRepository();
+    private final MovieBulkImporter importer = new MovieBulkImporter(new ObjectMapper().getFactory(), repo, 100);
+
+    @Test
+    void importFrom_whenUploadBreaks_insertsNothingFromUnfinishedBatch() {
+        InputStream broken = new SequenceInputStream(
+                new ByteArrayInputStream(RECORDS.getBytes(StandardCharsets.UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("соединение разорвано");
+                    }
+                });
+
+        assertThrows(IOException.class, () -> importer.importFrom(broken, true));
+        assertEquals(0, repo.size(), "Без отчёта клиенту прочитанная часть пачки не должна сохраняться");
+    }
+
+    @Test
+    void importFrom_whenJsonBreaks_keepsRecordsReadBeforeError() throws IOException {
+        InputStream body = new ByteArrayInputStream((RECORDS + "{\"title\": ").getBytes(StandardCharsets.UTF_8));
+
+        MovieBulkImporter.Report report = importer.importFrom(body, true);
+
+        assertEquals("Неверный JSON", report.error);
+        assertEquals(2, report.imported);
+        assertEquals(2, repo.size());
+    }
+}
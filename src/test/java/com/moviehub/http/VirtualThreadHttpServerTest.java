@@ -0,0 +1,103 @@
+package com.moviehub.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadHttpServerTest {
+    private VirtualThreadHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = VirtualThreadHttpServer.create(new InetSocketAddress("localhost", 0), 0, 5_000, 5_000);
+        // эхо: путь запроса и тело
+        server.createContext("/echo", ex -> {
+            byte[] body = ex.getRequestBody().readAllBytes();
+            byte[] response = (ex.getRequestURI().getPath() + ":" + new String(body, StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, response.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(response);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private String exchange(String request) throws Exception {
+        try (Socket socket = new Socket("localhost", server.getAddress().getPort())) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void pipelinedRequests_onOneConnection_getResponsesInOrder() throws Exception {
+        String response = exchange("""
+                GET /echo/1 HTTP/1.1\r
+                Host: localhost\r
+                \r
+                POST /echo/2 HTTP/1.1\r
+                Host: localhost\r
+                Content-Length: 3\r
+                \r
+                abcGET /echo/3 HTTP/1.1\r
+                Host: localhost\r
+                Connection: close\r
+                \r
+                """);
+
+        int first = response.indexOf("/echo/1:");
+        int second = response.indexOf("/echo/2:abc");
+        int third = response.indexOf("/echo/3:");
+        assertTrue(first > 0 && second > first && third > second, "Ответы должны идти в порядке запросов: " + response);
+        assertEquals(3, response.split("HTTP/1.1 200 OK").length - 1);
+    }
+
+    @Test
+    void chunkedRequestBody_isDecoded() throws Exception {
+        String response = exchange("""
+                POST /echo HTTP/1.1\r
+                Host: localhost\r
+                Transfer-Encoding: chunked\r
+                Connection: close\r
+                \r
+                3\r
+                abc\r
+                4;ext=1\r
+                defg\r
+                0\r
+                \r
+                """);
+
+        assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+        assertTrue(response.endsWith("/echo:abcdefg"), response);
+    }
+
+    @Test
+    void malformedRequest_gets400AndConnectionClosed() throws Exception {
+        String response = exchange("НЕ HTTP\r\n\r\n");
+        assertTrue(response.startsWith("HTTP/1.1 400"), response);
+
+        String unknown = exchange("GET /missing HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+        assertTrue(unknown.startsWith("HTTP/1.1 404"), "Запрос вне контекстов - 404: " + unknown);
+    }
+}
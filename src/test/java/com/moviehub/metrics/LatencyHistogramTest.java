@@ -0,0 +1,38 @@
+package com.moviehub.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    @Test
+    void bucketBounds_coverEveryValueWithBoundedError() {
+        for (long micros = 0; micros < 1_000_000; micros += 7) {
+            int index = LatencyHistogram.indexOf(micros);
+            long upper = LatencyHistogram.upperBoundOf(index);
+
+            assertTrue(upper >= micros, "Верхняя граница не может быть меньше значения " + micros);
+            assertTrue(upper - micros <= Math.max(1, micros / 16), "Погрешность больше 1/16 для " + micros);
+        }
+    }
+
+    @Test
+    void quantile_whenSkewedDistribution_returnsTail() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 990; i++) {
+            histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        long[] snapshot = histogram.snapshot();
+
+        assertEquals(1000, histogram.count());
+        assertTrue(Math.abs(LatencyHistogram.quantileMicros(snapshot, 0.5) - 100) <= 100 / 16);
+        assertTrue(LatencyHistogram.quantileMicros(snapshot, 0.999) >= 50_000, "p99.9 должен попасть в хвост");
+        assertEquals(990, LatencyHistogram.countAtMost(snapshot, 1_000));
+    }
+}
@@ -0,0 +1,103 @@
+package com.moviehub.persistence;
+
+import com.moviehub.model.Movie;
+import com.moviehub.storage.MovieRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoviePersistenceTest {
+    @TempDir
+    Path dir;
+
+    private static Movie movie(String title, int year) {
+        Movie movie = new Movie();
+        movie.title = title;
+        movie.year = year;
+        return movie;
+    }
+
+    private MoviePersistence open(MovieRepository repo, FsyncPolicy policy) throws IOException {
+        return MoviePersistence.open(dir, repo, policy, 5, Long.MAX_VALUE);
+    }
+
+    @Test
+    void reopen_replaysLogAndPreservesNextId() throws Exception {
+        MovieRepository repo = new MovieRepository();
+        MoviePersistence persistence = open(repo, FsyncPolicy.SYNC);
+        repo.add(movie("Матрица", 1999));
+        Movie inception = repo.add(movie("Начало", 2010));
+        repo.add(movie("Терминатор", 1984));
+        repo.deleteById(inception.id);
+        Movie last = repo.add(movie("Чужой", 1979));
+        repo.deleteById(last.id);
+        persistence.close();
+
+        MovieRepository restored = new MovieRepository();
+        MoviePersistence reopened = open(restored, FsyncPolicy.SYNC);
+
+        assertEquals(2, restored.size());
+        assertNull(restored.findById(inception.id));
+        assertEquals("Матрица", restored.findById(1L).title);
+        assertEquals(1, restored.findByYear(1984).size());
+        assertEquals(last.id + 1, restored.add(movie("Солярис", 1972)).id,
+                "ID удалённых фильмов не должны выдаваться повторно");
+        reopened.close();
+    }
+
+    @Test
+    void snapshot_compactsLogAndRestoresWithTail() throws Exception {
+        MovieRepository repo = new MovieRepository();
+        MoviePersistence persistence = open(repo, FsyncPolicy.INTERVAL);
+        for (int i = 0; i < 1000; i++) {
+            repo.add(movie("Фильм " + i, 1990 + i % 30));
+        }
+        persistence.snapshot();
+        repo.deleteById(1L);
+        repo.add(movie("После снимка", 2020));
+        persistence.close();
+
+        try (var files = Files.list(dir)) {
+            assertEquals(2, files.count(), "После снимка должны остаться только снимок и новый журнал");
+        }
+
+        MovieRepository restored = new MovieRepository();
+        MoviePersistence reopened = open(restored, FsyncPolicy.INTERVAL);
+
+        assertEquals(1000, restored.size());
+        assertNull(restored.findById(1L));
+        assertEquals("После снимка", restored.findById(1001L).title);
+        assertEquals(1000, reopened.recoveryStats().restoredFromSnapshot());
+        assertEquals(2, reopened.recoveryStats().replayedRecords());
+        reopened.close();
+    }
+
+    @Test
+    void reopen_ignoresTornTailRecord() throws Exception {
+        MovieRepository repo = new MovieRepository();
+        MoviePersistence persistence = open(repo, FsyncPolicy.SYNC);
+        repo.add(movie("Матрица", 1999));
+        persistence.close();
+
+        Path log;
+        try (var files = Files.list(dir)) {
+            log = files.filter(f -> f.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+        }
+        byte[] partial = LogCodec.add(movie("Недописанный", 2000));
+        Files.write(log, Arrays.copyOf(partial, partial.length / 2), StandardOpenOption.APPEND);
+
+        MovieRepository restored = new MovieRepository();
+        MoviePersistence reopened = open(restored, FsyncPolicy.SYNC);
+
+        assertEquals(1, restored.size());
+        assertEquals(2, restored.add(movie("Начало", 2010)).id);
+        reopened.close();
+    }
+}
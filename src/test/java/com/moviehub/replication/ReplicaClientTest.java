@@ -0,0 +1,122 @@
+package com.moviehub.replication;
+
+import com.moviehub.model.Movie;
+import com.moviehub.persistence.LogCodec;
+import com.moviehub.server.MoviesServer;
+import com.moviehub.server.ServerConfig;
+import com.moviehub.storage.MovieRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Реплика против поддельного первичного узла: тест сам решает, когда отдать конец копии
+public class ReplicaClientTest {
+    private ServerSocket primary;
+    private MoviesServer replica;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = new ServerSocket(0);
+        replica = new MoviesServer(new ServerConfig()
+                .port(0)
+                .replicationPrimary("localhost:" + primary.getLocalPort()), new MovieRepository());
+        replica.start();
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        replica.stop();
+        primary.close();
+    }
+
+    private static Movie movie(long id, String title) {
+        Movie movie = new Movie();
+        movie.id = id;
+        movie.title = title;
+        movie.year = 1999;
+        return movie;
+    }
+
+    private static void snapshotStart(DataOutputStream out, long seq) throws Exception {
+        ReplicationProtocol.write(out, ReplicationProtocol.SNAPSHOT_START, seq, seq, 0, null);
+    }
+
+    private static void record(DataOutputStream out, long seq, Movie movie) throws Exception {
+        ReplicationProtocol.write(out, ReplicationProtocol.RECORD, seq, seq, System.currentTimeMillis(),
+                LogCodec.add(movie));
+    }
+
+    private static void snapshotEnd(DataOutputStream out, long seq) throws Exception {
+        ReplicationProtocol.write(out, ReplicationProtocol.SNAPSHOT_END, seq, seq, System.currentTimeMillis(), null);
+        out.flush();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + replica.getPort() + path))
+                .GET().build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void resync_keepsServingPreviousDataUntilSnapshotEnd() throws Exception {
+        try (Socket first = primary.accept()) {
+            assertEquals(ReplicationProtocol.NO_STATE, new DataInputStream(first.getInputStream()).readLong());
+            DataOutputStream out = new DataOutputStream(first.getOutputStream());
+            snapshotStart(out, 10);
+            record(out, 10, movie(1, "Матрица"));
+            record(out, 10, movie(2, "Начало"));
+            snapshotEnd(out, 10);
+            await(() -> replica.getReplica().getAppliedSeq() == 10, "Первая копия должна примениться");
+        }
+
+        // первичный перезапустился: прежний номер устарел, отдаётся новая копия
+        try (Socket second = primary.accept()) {
+            assertEquals(10, new DataInputStream(second.getInputStream()).readLong());
+            DataOutputStream out = new DataOutputStream(second.getOutputStream());
+            snapshotStart(out, 500);
+            record(out, 500, movie(3, "Сталкер"));
+            out.flush();
+            await(() -> replica.getReplica().isConnected(), "Реплика должна переподключиться");
+
+            HttpResponse<String> during = get("/movies");
+            assertEquals(200, during.statusCode());
+            assertTrue(during.body().contains("Матрица") && during.body().contains("Начало"),
+                    "Во время передачи копии реплика отдаёт прежний каталог целиком");
+            assertFalse(during.body().contains("Сталкер"), "Неполная копия не должна быть видна");
+            assertEquals(200, get("/movies/1").statusCode());
+
+            snapshotEnd(out, 500);
+            await(() -> replica.getReplica().getAppliedSeq() == 500, "Копия должна примениться целиком");
+        }
+
+        HttpResponse<String> after = get("/movies");
+        assertTrue(after.body().contains("Сталкер"));
+        assertFalse(after.body().contains("Матрица"), "После копии остаётся только её содержимое");
+        assertEquals(1, replica.getRepository().size());
+    }
+}
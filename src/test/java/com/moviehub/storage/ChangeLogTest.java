@@ -0,0 +1,68 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeLogTest {
+    private static Movie movie(long id) {
+        Movie movie = new Movie();
+        movie.id = id;
+        movie.title = "Фильм " + id;
+        movie.year = 2000;
+        return movie;
+    }
+
+    @Test
+    void read_whenCursorFallsOffRing_returnsNull() throws Exception {
+        ChangeLog log = new ChangeLog(4, 100);
+        for (long id = 1; id <= 6; id++) {
+            log.added(movie(id));
+        }
+
+        assertEquals(106, log.lastSeq());
+        assertNull(log.read(100, 10, 0), "Вытесненный курсор требует пересинхронизации");
+        assertNull(log.read(200, 10, 0), "Курсор из будущего (прошлый запуск) тоже");
+
+        List<ChangeLog.Event> tail = log.read(102, 10, 0);
+        assertEquals(List.of(103L, 104L, 105L, 106L), tail.stream().map(ChangeLog.Event::seq).toList());
+        assertEquals(2, log.read(102, 2, 0).size());
+        assertEquals(List.of(), log.read(106, 10, 0));
+    }
+
+    @Test
+    void reset_invalidatesEveryExistingCursor() throws Exception {
+        ChangeLog log = new ChangeLog(16, 0);
+        log.added(movie(1));
+        log.deleted(1);
+
+        log.reset();
+
+        assertNull(log.read(2, 10, 0));
+        assertEquals(List.of(), log.read(log.lastSeq(), 10, 0));
+    }
+
+    @Test
+    void read_withWait_returnsAsSoonAsEventArrives() throws Exception {
+        ChangeLog log = new ChangeLog(16, 0);
+
+        CompletableFuture<List<ChangeLog.Event>> poll = CompletableFuture.supplyAsync(() -> {
+            try {
+                return log.read(0, 10, 10_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        log.cleared();
+
+        List<ChangeLog.Event> events = poll.get(2, TimeUnit.SECONDS);
+        assertEquals(1, events.size());
+        assertEquals("clear", events.get(0).type());
+    }
+}
@@ -0,0 +1,49 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Те же проверки MovieRepositoryTest поверх компактного хранилища, плюс уплотнение слотов
+public class CompactMovieRepositoryTest extends MovieRepositoryTest {
+    @Override
+    protected MovieRepository newRepository() {
+        return new MovieRepository(new CompactMovieStore());
+    }
+
+    @Test
+    void compact_reclaimsDeletedSlotsAndKeepsOrder() {
+        CompactMovieStore store = new CompactMovieStore();
+        MovieRepository repo = new MovieRepository(store);
+
+        for (int i = 0; i < 10_000; i++) {
+            Movie movie = new Movie();
+            movie.title = "Фильм " + i;
+            movie.year = 1950 + i % 50;
+            repo.add(movie);
+        }
+        long fullBytes = store.heapBytes();
+
+        for (long id = 1; id <= 10_000; id++) {
+            if (id % 10 != 0) {
+                assertTrue(repo.deleteById(id));
+            }
+        }
+
+        assertEquals(1_000, repo.size());
+        assertTrue(store.heapBytes() < fullBytes, "Удалённые слоты должны освобождаться");
+        assertEquals("Фильм 4999", repo.findById(5_000L).title);
+        assertEquals(200, repo.findByYear(1959).size());
+
+        List<Long> ids = new ArrayList<>();
+        repo.iterateAll().forEach(m -> ids.add(m.id));
+        assertEquals(1_000, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals((i + 1) * 10L, ids.get(i));
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieRepositoryTest {
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 5_000;
+
+    private MovieRepository repo;
+
+    private static Movie movie(String title, int year) {
+        Movie movie = new Movie();
+        movie.title = title;
+        movie.year = year;
+        return movie;
+    }
+
+    protected MovieRepository newRepository() {
+        return new MovieRepository();
+    }
+
+    @BeforeEach
+    void setUp() {
+        repo = newRepository();
+    }
+
+    @Test
+    void add_fromManyThreads_noLostOrDuplicateIds() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> results = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                start.await();
+                List<Long> ids = new ArrayList<>(PER_THREAD);
+                for (int i = 0; i < PER_THREAD; i++) {
+                    ids.add(repo.add(movie("Фильм " + thread + "-" + i, 2000)).id);
+                }
+                return ids;
+            }));
+        }
+
+        start.countDown();
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> result : results) {
+            for (Long id : result.get()) {
+                assertTrue(ids.add(id), "ID " + id + " выдан дважды");
+            }
+        }
+        pool.shutdown();
+
+        int expected = THREADS * PER_THREAD;
+        assertEquals(expected, ids.size());
+        assertEquals(expected, repo.size(), "Ни одна вставка не должна потеряться");
+        assertEquals(expected, repo.findAll().size());
+        for (long id = 1; id <= expected; id++) {
+            assertNotNull(repo.findById(id), "Фильм " + id + " потерян");
+        }
+    }
+
+    @Test
+    void addAndDelete_concurrently_leaveConsistentState() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                int kept = 0;
+                for (int i = 0; i < PER_THREAD; i++) {
+                    Movie saved = repo.add(movie("Фильм", 1999));
+                    if (i % 2 == 0) {
+                        assertTrue(repo.deleteById(saved.id));
+                        assertFalse(repo.deleteById(saved.id), "Повторное удаление должно вернуть false");
+                    } else {
+                        kept++;
+                    }
+                }
+                return kept;
+            }));
+        }
+
+        start.countDown();
+
+        int kept = 0;
+        for (Future<Integer> result : results) {
+            kept += result.get();
+        }
+        pool.shutdown();
+
+        assertEquals(kept, repo.size());
+        assertEquals(kept, repo.findByYear(1999).size());
+    }
+
+    @Test
+    void findAll_whileWriting_returnsOrderedSnapshot() throws Exception {
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < THREADS * PER_THREAD; i++) {
+                Movie saved = repo.add(movie("Фильм", 2010));
+                if (saved.id % 3 == 0) {
+                    repo.deleteById(saved.id - 1);
+                }
+            }
+        });
+        writer.start();
+
+        try {
+            while (writer.isAlive()) {
+                Collection<Movie> snapshot = repo.findAll();
+                long previous = 0;
+                for (Movie m : snapshot) {
+                    assertTrue(m.id > previous, "findAll должен возвращать фильмы в порядке добавления");
+                    previous = m.id;
+                }
+            }
+        } finally {
+            writer.join();
+        }
+    }
+
+    @Test
+    void clear_resetsIds() {
+        repo.add(movie("Матрица", 1999));
+        repo.add(movie("Начало", 2010));
+
+        repo.clear();
+
+        assertEquals(0, repo.size());
+        assertEquals(1, repo.add(movie("Терминатор", 1984)).id);
+    }
+
+    @Test
+    void findByIds_returnsMoviesInRequestOrderAndNullsForMissing() {
+        Movie matrix = repo.add(movie("Матрица", 1999));
+        Movie inception = repo.add(movie("Начало", 2010));
+        Movie deleted = repo.add(movie("Терминатор", 1984));
+        repo.deleteById(deleted.id);
+
+        Movie[] found = repo.findByIds(new long[]{inception.id, 999, matrix.id, deleted.id});
+
+        assertEquals(4, found.length);
+        assertEquals("Начало", found[0].title);
+        assertNull(found[1], "Несуществующий ID - null");
+        assertEquals("Матрица", found[2].title);
+        assertNull(found[3], "Удалённый фильм не должен находиться");
+    }
+
+    @Test
+    void findByYear_usesIndexMaintainedByAddAndDelete() {
+        Movie matrix = repo.add(movie("Матрица", 1999));
+        repo.add(movie("Бойцовский клуб", 1999));
+        repo.add(movie("Начало", 2010));
+
+        assertEquals(2, repo.findByYear(1999).size());
+        assertTrue(repo.deleteById(matrix.id));
+        assertEquals(1, repo.findByYear(1999).size());
+        assertEquals(0, repo.findByYear(2000).size());
+
+        assertEquals(List.of("Бойцовский клуб", "Начало"),
+                repo.findByYearRange(1990, 2010).stream().map(m -> m.title).toList());
+        assertTrue(repo.findByYearRange(2011, 2000).isEmpty());
+
+        repo.clear();
+        assertTrue(repo.findByYear(2010).isEmpty());
+    }
+
+    @Test
+    void query_combinesYearRangePrefixSortAndLimit() {
+        repo.add(movie("Матрица", 1999));
+        repo.add(movie("Матрица: Перезагрузка", 2003));
+        repo.add(movie("Мастер и Маргарита", 2005));
+        Movie revolution = repo.add(movie("матрица: революция", 2003));
+        repo.add(movie("Начало", 2010));
+
+        List<String> titles = repo.query(new MovieQuery().titlePrefix("МАТР").sort(MovieQuery.Sort.YEAR)
+                        .descending(true)).stream().map(m -> m.title).toList();
+        assertEquals(List.of("матрица: революция", "Матрица: Перезагрузка", "Матрица"), titles,
+                "Префикс без учёта регистра, по убыванию года, при равном годе - по убыванию ID");
+
+        assertEquals(List.of("Мастер и Маргарита", "Матрица: Перезагрузка"),
+                repo.query(new MovieQuery().yearFrom(2000).yearTo(2009).sort(MovieQuery.Sort.TITLE).limit(2))
+                        .stream().map(m -> m.title).toList());
+
+        repo.deleteById(revolution.id);
+        assertEquals(List.of("Матрица: Перезагрузка"),
+                repo.query(new MovieQuery().titlePrefix("матрица: ").yearFrom(2000)).stream().map(m -> m.title).toList());
+        assertTrue(repo.query(new MovieQuery().titlePrefix("трица")).isEmpty(), "Префикс - только начало названия");
+        assertTrue(repo.query(new MovieQuery().yearFrom(2010).yearTo(2000)).isEmpty());
+    }
+
+    @Test
+    void query_onLargeCatalog_parallelTopNMatchesFullSort() {
+        List<Movie> batch = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            batch.add(movie((i % 7 == 0 ? "Фильм " : "Кино ") + (i * 7919 % 60_000), 1900 + i % 120));
+        }
+        repo.addAll(batch);
+
+        // первый запрос идёт по индексу слов, второй - параллельным полным обходом
+        for (MovieQuery top : List.of(
+                new MovieQuery().yearFrom(1950).titlePrefix("фильм").sort(MovieQuery.Sort.TITLE).limit(50),
+                new MovieQuery().yearTo(1950).sort(MovieQuery.Sort.TITLE).descending(true).limit(50))) {
+            List<Long> expected = repo.findAll().stream()
+                    .filter(top::matches)
+                    .sorted(top.comparator())
+                    .limit(50)
+                    .map(m -> m.id)
+                    .toList();
+            assertEquals(expected, repo.query(top).stream().map(m -> m.id).toList());
+        }
+        assertEquals(60_000, repo.query(new MovieQuery().sort(MovieQuery.Sort.YEAR)).size());
+        assertEquals(60_000L, repo.query(new MovieQuery().descending(true).limit(1)).get(0).id);
+    }
+
+    @Test
+    void stats_followAddDeleteRestoreAndClear() {
+        Movie matrix = repo.add(movie("Матрица", 1999));
+        repo.add(movie("Бойцовский клуб", 1999));
+        repo.add(movie("Начало", 2010));
+        repo.add(movie("Сталкер", 1979));
+
+        MovieStats.Summary stats = repo.stats();
+        assertEquals(4, stats.total());
+        assertEquals(1979, stats.minYear());
+        assertEquals(2010, stats.maxYear());
+        assertEquals(2L, stats.byYear().get(1999));
+        assertEquals(List.of(1970, 1990, 2010), List.copyOf(stats.byDecade().keySet()));
+
+        Movie replaced = movie("Матрица", 2003);
+        replaced.id = matrix.id;
+        repo.restore(replaced);
+        repo.deleteById(repo.query(new MovieQuery().titlePrefix("сталкер")).get(0).id);
+
+        stats = repo.stats();
+        assertEquals(3, stats.total(), "Замена при восстановлении не должна менять общее число");
+        assertEquals(1999, stats.minYear(), "Опустевший год не должен считаться минимальным");
+        assertEquals(1L, stats.byYear().get(1999));
+        assertEquals(1L, stats.byDecade().get(2000));
+        assertFalse(stats.byYear().containsKey(1979));
+
+        repo.clear();
+        stats = repo.stats();
+        assertEquals(0, stats.total());
+        assertNull(stats.minYear());
+        assertTrue(stats.byYear().isEmpty());
+    }
+
+    @Test
+    void add_whenSingleWriter_incrementsModCountOnceAndUsesItAsVersion() {
+        long before = repo.getModCount();
+        Movie movie = repo.add(movie("Матрица", 1999));
+
+        assertEquals(before + 1, repo.getModCount(), "Вставка должна увеличивать счётчик один раз");
+        assertEquals(repo.getModCount(), movie.version, "Версия должна совпадать с новым значением счётчика");
+    }
+
+    @Test
+    void versions_areDistinctAndSurviveStoreAndClear() {
+        Movie first = repo.add(movie("Матрица", 1999));
+        long afterAdd = repo.getModCount();
+        Movie second = repo.add(movie("Начало", 2010));
+
+        assertTrue(second.version > first.version);
+        assertEquals(first.version, repo.findById(first.id).version, "Хранилище должно сохранять версию");
+        assertTrue(repo.getModCount() > afterAdd);
+
+        repo.deleteById(second.id);
+        long afterDelete = repo.getModCount();
+        repo.clear();
+        Movie reused = repo.add(movie("Терминатор", 1984));
+
+        assertTrue(repo.getModCount() > afterDelete);
+        assertEquals(first.id, reused.id);
+        assertNotEquals(first.version, reused.version, "Повторно выданный ID должен получить новую версию");
+    }
+
+    @Test
+    void mutations_whenBeforeListenerFails_leaveRepositoryUnchanged() {
+        Movie kept = repo.add(movie("Сталкер", 1979));
+        long modCount = repo.getModCount();
+        repo.addListener(new MovieRepositoryListener() {
+            @Override
+            public void beforeAdd(Movie movie) {
+                throw new IllegalStateException("журнал недоступен");
+            }
+
+            @Override
+            public void beforeDelete(Movie movie) {
+                throw new IllegalStateException("журнал недоступен");
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> repo.add(movie("Солярис", 1972)));
+        assertThrows(IllegalStateException.class, () -> repo.deleteById(kept.id));
+
+        assertEquals(1, repo.size(), "Отклонённая запись не должна попасть в память");
+        assertNotNull(repo.findById(kept.id), "Отклонённое удаление не должно удалить фильм");
+        assertTrue(repo.search("солярис", 10).isEmpty());
+        assertEquals(1, repo.stats().total());
+        assertEquals(modCount, repo.getModCount());
+    }
+}
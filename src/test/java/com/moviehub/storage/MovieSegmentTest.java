@@ -0,0 +1,150 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieSegmentTest {
+    @TempDir
+    Path dir;
+
+    private static Movie movie(long id, String title, int year) {
+        Movie movie = new Movie();
+        movie.id = id;
+        movie.title = title;
+        movie.year = year;
+        return movie;
+    }
+
+    private MovieRepository repoWithSegment() throws Exception {
+        Path file = dir.resolve("base.seg");
+        MovieSegmentWriter.write(file, List.of(
+                movie(1, "Матрица", 1999),
+                movie(2, "Терминатор", 1984),
+                movie(5, "Бойцовский клуб", 1999),
+                movie(7, "Сталкер", 1979)));
+
+        MovieRepository repo = new MovieRepository();
+        repo.mountSegment(MovieSegment.open(file));
+        return repo;
+    }
+
+    @Test
+    void segment_servesLookupsFromMappedFile() throws Exception {
+        MovieRepository repo = repoWithSegment();
+
+        assertEquals(4, repo.size());
+        assertEquals("Сталкер", repo.findById(7L).title);
+        assertNull(repo.findById(3L));
+        assertEquals(List.of("Матрица", "Бойцовский клуб"),
+                repo.findByYear(1999).stream().map(m -> m.title).toList());
+        assertEquals(List.of("Сталкер", "Терминатор"),
+                repo.findByYearRange(1970, 1990).stream().map(m -> m.title).toList());
+    }
+
+    @Test
+    void overlay_addsAndDeletesOnTopOfSegment() throws Exception {
+        MovieRepository repo = repoWithSegment();
+
+        Movie added = new Movie();
+        added.title = "Начало";
+        added.year = 1999;
+        repo.add(added);
+
+        assertEquals(8, added.id, "Новые ID должны идти после ID сегмента");
+        assertTrue(repo.deleteById(1L));
+        assertFalse(repo.deleteById(1L));
+        assertNull(repo.findById(1L));
+
+        assertEquals(4, repo.size());
+        assertEquals(List.of("Бойцовский клуб", "Начало"),
+                repo.findByYear(1999).stream().map(m -> m.title).toList());
+
+        List<Long> ids = new ArrayList<>();
+        repo.iterateAll().forEach(m -> ids.add(m.id));
+        assertEquals(List.of(2L, 5L, 7L, 8L), ids);
+        assertEquals(List.of(7L, 8L), repo.findPage(5, 10).stream().map(m -> m.id).toList());
+
+        repo.clear();
+        assertEquals(0, repo.size());
+        assertNull(repo.findById(2L));
+    }
+
+    @Test
+    void query_mergesSegmentAndOverlayUsingYearIndex() throws Exception {
+        MovieRepository repo = repoWithSegment();
+        Movie added = new Movie();
+        added.title = "Матрица: Перезагрузка";
+        added.year = 2003;
+        repo.add(added);
+        repo.deleteById(5L);
+
+        assertEquals(List.of(8L, 1L, 2L), repo.query(new MovieQuery().yearFrom(1980).sort(MovieQuery.Sort.YEAR)
+                .descending(true)).stream().map(m -> m.id).toList());
+        assertEquals(List.of("Матрица", "Матрица: Перезагрузка"),
+                repo.query(new MovieQuery().titlePrefix("матрица")).stream().map(m -> m.title).toList());
+    }
+
+    @Test
+    void search_indexesSegmentTitlesOnFirstSearch() throws Exception {
+        MovieRepository repo = repoWithSegment();
+        repo.deleteById(5L);
+        repo.add(movie(0, "Матрица: Перезагрузка", 2003));
+
+        assertEquals(List.of(1L, 8L), repo.search("матр", 10).stream().map(m -> m.id).toList(),
+                "Поиск находит фильмы сегмента и изменяемого слоя");
+        assertTrue(repo.search("бойцовский", 10).isEmpty(), "Удалённый до индексации фильм базы не ищется");
+
+        repo.deleteById(1L);
+        assertEquals(List.of(8L), repo.search("матр", 10).stream().map(m -> m.id).toList());
+
+        repo.detachBase();
+        assertTrue(repo.search("сталкер", 10).isEmpty(), "Отключённая база не ищется");
+        assertEquals(List.of(8L), repo.search("матр", 10).stream().map(m -> m.id).toList());
+    }
+
+    @Test
+    void segment_keepsPerYearCountsInHeader() throws Exception {
+        MovieRepository repo = repoWithSegment();
+        MovieSegment segment = repo.getSegments().get(0);
+
+        List<String> buckets = new ArrayList<>();
+        for (int i = 0; i < segment.yearBuckets(); i++) {
+            buckets.add(segment.yearOf(i) + ":" + segment.yearCount(i));
+        }
+        assertEquals(List.of("1979:1", "1984:1", "1999:2"), buckets);
+
+        repo.restoreDeletedBase(5L);
+        assertNull(repo.findById(5L));
+        assertEquals(3, repo.stats().total(), "Удаление базы из снимка вычитается из сводки");
+        assertEquals(1L, repo.stats().byYear().get(1999));
+    }
+
+    @Test
+    void stats_countSegmentAndOverlayUntilBaseIsDetached() throws Exception {
+        MovieRepository repo = repoWithSegment();
+        Movie added = new Movie();
+        added.title = "Начало";
+        added.year = 2010;
+        repo.add(added);
+        repo.deleteById(2L);
+
+        MovieStats.Summary stats = repo.stats();
+        assertEquals(4, stats.total());
+        assertEquals(1979, stats.minYear());
+        assertEquals(2L, stats.byDecade().get(1990));
+        assertNull(stats.byDecade().get(1980), "Удалённый фильм базы не должен считаться");
+
+        repo.detachBase();
+        stats = repo.stats();
+        assertEquals(1, stats.total());
+        assertEquals(2010, stats.minYear());
+        assertEquals(2010, stats.maxYear());
+    }
+}
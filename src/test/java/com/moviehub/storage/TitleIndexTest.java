@@ -0,0 +1,78 @@
+package com.moviehub.storage;
+
+import com.moviehub.model.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TitleIndexTest {
+    private static Movie movie(String title, int year) {
+        Movie movie = new Movie();
+        movie.title = title;
+        movie.year = year;
+        return movie;
+    }
+
+    private static List<String> titles(List<Movie> movies) {
+        return movies.stream().map(m -> m.title).toList();
+    }
+
+    @Test
+    void tokenize_foldsCaseYoAndCompatibilityForms() {
+        assertEquals(List.of("елки", "палки", "2"), TitleIndex.tokenize("ЁЛКИ-палки ２"));
+        assertEquals(List.of("amelie"), TitleIndex.tokenize("AMELIE!"));
+        assertEquals(List.of(), TitleIndex.tokenize(" -- "));
+    }
+
+    @Test
+    void search_byPrefix_ranksExactAndLeadingMatchesFirst() {
+        MovieRepository repo = new MovieRepository();
+        repo.add(movie("Матрица: Перезагрузка", 2003));
+        repo.add(movie("Это Матрица", 1999));
+        repo.add(movie("Матрица", 1999));
+        repo.add(movie("Мать", 1926));
+        repo.add(movie("Терминатор", 1984));
+
+        assertEquals(List.of("Матрица", "Матрица: Перезагрузка", "Это Матрица"),
+                titles(repo.search("матрица", 10)));
+        assertEquals(List.of("Матрица", "Мать", "Матрица: Перезагрузка", "Это Матрица"),
+                titles(repo.search("мат", 10)), "Короткие названия, начинающиеся с префикса, должны идти первыми");
+        assertEquals(List.of("Матрица: Перезагрузка"), titles(repo.search("матрица пере", 10)));
+        assertEquals(List.of(), titles(repo.search("матрица терм", 10)));
+        assertEquals(2, repo.search("мат", 2).size());
+    }
+
+    @Test
+    void prefixCandidates_takesShortestPostingsOrGivesUpAboveLimit() {
+        TitleIndex index = new TitleIndex();
+        index.add(1, "Матрица: Перезагрузка");
+        index.add(2, "Матрица");
+        index.add(3, "Мать");
+        index.add(4, "Перезагрузка мира");
+
+        assertArrayEquals(new long[]{1, 2, 3}, index.prefixCandidates("мат", 10));
+        assertArrayEquals(new long[]{4}, index.prefixCandidates("перезагрузка ми", 10),
+                "Должен выбираться самый короткий список");
+        assertArrayEquals(new long[0], index.prefixCandidates("солярис ", 10));
+        assertNull(index.prefixCandidates("мат", 2), "Слишком много кандидатов - нужен полный обход");
+        assertNull(index.prefixCandidates("!!", 10));
+    }
+
+    @Test
+    void search_afterDeleteAndClear_forgetsRemovedTitles() {
+        MovieRepository repo = new MovieRepository();
+        Movie saved = repo.add(movie("Сталкер", 1979));
+        repo.add(movie("Солярис", 1972));
+
+        repo.deleteById(saved.id);
+
+        assertEquals(List.of(), repo.search("сталкер", 10));
+        assertEquals(List.of("Солярис"), titles(repo.search("с", 10)));
+
+        repo.clear();
+
+        assertEquals(List.of(), repo.search("с", 10));
+    }
+}